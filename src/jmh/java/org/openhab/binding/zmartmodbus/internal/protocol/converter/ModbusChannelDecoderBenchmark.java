@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.protocol.converter;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusReportOn;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusUnitsOfMeasure;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusValueClass;
+import org.openhab.binding.zmartmodbus.internal.controller.ModbusThingChannel;
+import org.openhab.binding.zmartmodbus.internal.util.Register;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.ThingUID;
+import org.openhab.core.types.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding a sample with the decoder compiled when the channel is added, against resolving value class, unit and
+ * scale for every sample as {@link ModbusBaseConverter#fromModbusToState} does.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModbusChannelDecoderBenchmark {
+
+    @Param({ "Int16", "Float32" })
+    public String valueClass;
+
+    @Param({ "true", "false" })
+    public boolean units;
+
+    private ModbusThingChannel channel;
+    private ModbusChannelDecoder decoder;
+    private ByteBuffer payload;
+
+    @Setup
+    public void setUp() {
+        ThingUID thingUID = new ThingUID("zmartmodbus:data:benchmark");
+        channel = new ModbusThingChannel(thingUID, new ChannelUID(thingUID, "value"), "benchmark",
+                ModbusValueClass.valueOf(valueClass), 1, units ? ModbusUnitsOfMeasure.Temperature : null, 1,
+                ModbusReportOn.Always);
+        decoder = ModbusBaseConverter.compileDecoder(channel);
+        payload = Register.registerView(new byte[] { 0x00, 0x00, 0x00, (byte) 0xd7, 0x41, 0x20, 0x00, 0x00 });
+    }
+
+    @Benchmark
+    public State compiled() {
+        return decoder.decode(payload);
+    }
+
+    @Benchmark
+    public State resolvedPerSample() {
+        return ModbusBaseConverter.fromModbusToState(channel, payload);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.transceiver;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.zmartmodbus.internal.util.Crc16;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding a read request into a pooled {@link ModbusRequest} and framing it in place, against building the frame in
+ * new arrays as the function and the transceivers used to. Run with {@code -prof gc} to see the allocation rate.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModbusRequestBenchmark {
+
+    private static final int UNIT_ADDR = 1;
+    private static final int READ_HOLDING_REGISTERS = 3;
+
+    private final ModbusRequestPool pool = new ModbusRequestPool();
+    private int address = 0;
+
+    @Benchmark
+    public int pooledRtu() {
+        ModbusRequest request = pool.acquire().start(UNIT_ADDR, READ_HOLDING_REGISTERS).putShort(nextAddress())
+                .putShort(10);
+        byte[] frame = request.appendCrc();
+        int result = frame[ModbusRequest.HEADER_LENGTH + request.rtuLength() - 1];
+        pool.release(request);
+        return result;
+    }
+
+    @Benchmark
+    public int pooledMbap() {
+        ModbusRequest request = pool.acquire().start(UNIT_ADDR, READ_HOLDING_REGISTERS).putShort(nextAddress())
+                .putShort(10);
+        ByteBuffer frame = request.mbapFrame(address);
+        int result = frame.remaining();
+        pool.release(request);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] allocatedRtu() {
+        int dataAddress = nextAddress();
+        byte[] cmd = new byte[] { UNIT_ADDR, READ_HOLDING_REGISTERS, (byte) (dataAddress >> 8), (byte) dataAddress, 0,
+                10 };
+        byte[] frame = new byte[cmd.length + 2];
+        System.arraycopy(cmd, 0, frame, 0, cmd.length);
+        int crc = Crc16.getCrc16(cmd, cmd.length, Crc16.SEED);
+        frame[cmd.length] = (byte) crc;
+        frame[cmd.length + 1] = (byte) (crc >> 8);
+        return frame;
+    }
+
+    private int nextAddress() {
+        address = (address + 1) & 0xffff;
+        return address;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link BitVector} operations on the coil paths: scanning the 48 Jablotron element flags for the few that are
+ * set, with {@link BitVector#nextSetBit} and bit by bit, splitting a block read with {@link BitVector#rangeOf} and
+ * building a vector from a response.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitVectorBenchmark {
+
+    private static final int FLAGS = 48;
+
+    private BitVector flags;
+    private BitVector coils;
+    private byte[] response;
+
+    @Setup
+    public void setUp() {
+        flags = new BitVector(FLAGS);
+        flags.setBit(3, true);
+        flags.setBit(41, true);
+        response = new byte[] { 0x55, (byte) 0xaa, 0x0f, (byte) 0xf0, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66 };
+        coils = BitVector.createBitVector(response, response.length * 8);
+    }
+
+    @Benchmark
+    public int scanSetBits() {
+        int sum = 0;
+        for (int i = flags.nextSetBit(0); i >= 0 && i < FLAGS; i = flags.nextSetBit(i + 1)) {
+            sum += i;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int scanEveryBit() {
+        int sum = 0;
+        for (int i = 0; i < FLAGS; i++) {
+            if (flags.getBit(i)) {
+                sum += i;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BitVector rangeOf() {
+        return coils.rangeOf(5, 40);
+    }
+
+    @Benchmark
+    public BitVector createFromResponse() {
+        return BitVector.createBitVector(response, response.length * 8);
+    }
+}
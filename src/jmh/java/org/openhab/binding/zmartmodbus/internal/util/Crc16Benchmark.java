@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The slicing-by-8 {@link Crc16} against a table lookup per byte, on a short request and on full size frames. The
+ * running variant feeds the frame in the chunks a serial port typically delivers.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Crc16Benchmark {
+
+    private static final int CHUNK = 32;
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = ((crc & 1) != 0) ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+            }
+            TABLE[i] = crc;
+        }
+    }
+
+    @Param({ "8", "256" })
+    public int length;
+
+    private byte[] frame;
+
+    @Setup
+    public void setUp() {
+        frame = new byte[length];
+        new Random(42).nextBytes(frame);
+        if (Crc16.getCrc16(frame, length, Crc16.SEED) != byteTable()) {
+            throw new IllegalStateException("CRC mismatch");
+        }
+    }
+
+    @Benchmark
+    public int slicingBy8() {
+        return Crc16.getCrc16(frame, length, Crc16.SEED);
+    }
+
+    @Benchmark
+    public int running() {
+        int crc = Crc16.SEED;
+        for (int offset = 0; offset < length; offset += CHUNK) {
+            crc = Crc16.update(crc, frame, offset, Math.min(CHUNK, length - offset));
+        }
+        return crc;
+    }
+
+    @Benchmark
+    public int byteTable() {
+        int crc = Crc16.SEED;
+        for (int i = 0; i < length; i++) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ frame[i]) & 0xff];
+        }
+        return crc;
+    }
+}
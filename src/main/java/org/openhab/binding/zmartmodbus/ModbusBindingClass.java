@@ -18,6 +18,9 @@ import static org.openhab.binding.zmartmodbus.ModbusBindingConstants.THING_JABLO
 import static org.openhab.binding.zmartmodbus.ModbusBindingConstants.THING_JABLOTRON_TP150;
 import static org.openhab.binding.zmartmodbus.ModbusBindingConstants.THING_NILAN_COMFORT300;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import javax.measure.Unit;
 import javax.measure.quantity.Dimensionless;
 import javax.measure.quantity.Power;
@@ -76,6 +79,20 @@ public class ModbusBindingClass {
      */
     public static final int MAX_BITS = 2000;
 
+    private static final Pattern INTERVAL_PATTERN = Pattern.compile("(\\d+)(ms|s|m|h|)");
+
+    /**
+     * Defines the maximum number of registers in multiple read
+     * of input or holding registers (<b>125</b>).
+     */
+    public static final int MAX_REGISTERS = 125;
+
+    /**
+     * Defines the maximum number of registers in multiple write
+     * of holding registers (<b>123</b>).
+     */
+    public static final int MAX_WRITE_REGISTERS = 123;
+
     /**
      * Defines the ModbusFunction slave exception offset that is added to the
      * function code, to flag an exception.
@@ -223,6 +240,31 @@ public class ModbusBindingClass {
         Undef; // 0x03
     }
 
+    /**
+     * Dispatch lanes in order of priority. The weight is the share of the bus a lane gets with weighted ordering.
+     */
+    public static enum ModbusActionLane {
+        Write("write", 8),
+        OnDemand("ondemand", 4),
+        Poll("poll", 1);
+
+        private ModbusActionLane(final String text, final int weight) {
+            this.text = text;
+            this.weight = weight;
+        }
+
+        private final String text;
+        private final int weight;
+
+        public String getLabel() {
+            return text;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+
     public static enum ModbusReportOn {
         Always("always"),
         Change("change"),
@@ -257,6 +299,7 @@ public class ModbusBindingClass {
         Once("once"),
         Slow("slow"),
         Fast("fast"),
+        Interval("interval"), // Own polling interval e.g. 500ms, 5s, 2m
         Unknown("unknown");
 
         private ModbusFeedRepeat(final String text) {
@@ -276,11 +319,37 @@ public class ModbusBindingClass {
                         return c;
                     }
                 }
+                if (intervalMillis(text) > 0) {
+                    return Interval;
+                }
             }
             // Set 'Slow' as default
             return Slow;
         }
 
+        /**
+         * Parse a polling interval like 500ms, 5s, 2m or 1h (no unit means seconds)
+         *
+         * @return interval in milliseconds, 0 if text is not an interval
+         */
+        public static long intervalMillis(String text) {
+            Matcher matcher = INTERVAL_PATTERN.matcher(text.trim().toLowerCase());
+            if (!matcher.matches()) {
+                return 0;
+            }
+            long value = Long.parseLong(matcher.group(1));
+            switch (matcher.group(2)) {
+            case "ms":
+                return value;
+            case "m":
+                return value * 60000;
+            case "h":
+                return value * 3600000;
+            default:
+                return value * 1000;
+            }
+        }
+
     }
 
     public static enum ModbusNodeClass {
@@ -538,6 +607,8 @@ public class ModbusBindingClass {
         Int32_swap("int32_swap", 4),
         Uint32_swap("uint32_swap", 4),
         Float32_swap("float32_swap", 4),
+        Int64("int64", 8),
+        Float64("float64", 8),
         /*
          * Custom value class - used for special conversion
          */
@@ -92,6 +92,15 @@ public class ModbusBindingConstants {
         public static final String CHANNEL_MESSAGE_COUNT = "message_count";
         public static final String CHANNEL_TIMEOUT_COUNT = "timeout_count";
         public static final String CHANNEL_FAILED_COUNT = "failed_count";
+        public static final String CHANNEL_IDLE_TIME = "idle_time";
+        public static final String CHANNEL_SAVED_READS = "saved_reads";
+        public static final String CHANNEL_SKIPPED_CONVERSIONS = "skipped_conversions";
+        public static final String CHANNEL_QUEUE_DEPTH = "queue_depth";
+        public static final String CHANNEL_BYTES_SENT = "bytes_sent";
+        public static final String CHANNEL_BYTES_RECEIVED = "bytes_received";
+        public static final String CHANNEL_CRC_ERRORS = "crc_errors";
+        public static final String CHANNEL_EXCEPTION_COUNT = "exception_count";
+        public static final String CHANNEL_RETRY_COUNT = "retry_count";
 
         public static final String CHANNEL_DEVICE_INFO = "deviceInfo";
 
@@ -138,6 +147,13 @@ public class ModbusBindingConstants {
         public static final String PROPERTY_PARENTTHINGUID = "modbus_parentthinguid";
         public static final String PROPERTY_CHANNELID = "modbus_channelid";
         public static final String PROPERTY_ELEMENTID = "modbus_elementid";
+        public static final String PROPERTY_POLL_PERIOD = "modbus_pollperiod_";
+        public static final String PROPERTY_LANE_LATENCY = "modbus_latency_";
+        public static final String PROPERTY_LANE_QUEUE = "modbus_queue_";
+        public static final String PROPERTY_POLL_RATE = "modbus_pollrate_";
+        public static final String PROPERTY_POLL_LOAD = "modbus_pollload";
+        public static final String PROPERTY_UNIT_STATS = "modbus_unit_";
+        public static final String PROPERTY_FUNCTION_LATENCY = "modbus_function_";
 
         // Indicated 'slave' set 'off' or does not exist in configuration
         public static final int SLAVE_UNAVAILABLE = 0;
@@ -153,6 +169,7 @@ public class ModbusBindingConstants {
         public static final String PROPERTY_CHANNELCFG_REPORTON = "reportOn";
         public static final String PROPERTY_CHANNELCFG_UOM = "unit";
         public static final String PROPERTY_CHANNELCFG_SCALE = "scale";
+        public static final String PROPERTY_CHANNELCFG_WORDORDER = "wordorder";
 
         public final static String OFFLINE_CTLR_OFFLINE = "@text/modbus.thingstate.controller_offline";
         public final static String OFFLINE_CTLR_ONLINE = "@text/modbus.thingstate.controller_online";
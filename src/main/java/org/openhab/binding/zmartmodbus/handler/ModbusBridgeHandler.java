@@ -13,6 +13,7 @@
 package org.openhab.binding.zmartmodbus.handler;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -29,17 +30,28 @@ import org.openhab.core.types.RefreshType;
 import org.openhab.core.types.State;
 import org.openhab.core.io.transport.serial.SerialPortManager;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionLane;
 import org.openhab.binding.zmartmodbus.ModbusBindingConstants;
 import org.openhab.binding.zmartmodbus.internal.config.ModbusBridgeConfiguration;
 import org.openhab.binding.zmartmodbus.internal.config.ModbusSerialConfiguration;
+import org.openhab.binding.zmartmodbus.internal.config.ModbusTcpConfiguration;
 import org.openhab.binding.zmartmodbus.internal.controller.ModbusController;
 import org.openhab.binding.zmartmodbus.internal.discovery.ModbusSlaveDiscoveryService;
 import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolException;
+import org.openhab.binding.zmartmodbus.internal.factory.ModbusActionDispatcher;
+import org.openhab.binding.zmartmodbus.internal.factory.ModbusActionFeed;
+import org.openhab.binding.zmartmodbus.internal.factory.ModbusBusThread;
+import org.openhab.binding.zmartmodbus.internal.factory.ModbusDataSets;
+import org.openhab.binding.zmartmodbus.internal.factory.ModbusReadPlanner;
 import org.openhab.binding.zmartmodbus.internal.listener.StateListener;
 import org.openhab.binding.zmartmodbus.internal.protocol.IModbusIOHandler;
 import org.openhab.binding.zmartmodbus.internal.protocol.ModbusCounters;
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusAction;
 import org.openhab.binding.zmartmodbus.internal.streams.ModbusState;
+import org.openhab.binding.zmartmodbus.internal.transceiver.ModbusRequestPool;
+import org.openhab.binding.zmartmodbus.internal.transceiver.ModbusRtuTcpTransceiver;
 import org.openhab.binding.zmartmodbus.internal.transceiver.ModbusSerialTransceiver;
+import org.openhab.binding.zmartmodbus.internal.transceiver.ModbusTcpTransceiver;
 import org.openhab.binding.zmartmodbus.internal.transceiver.ModbusTransceiver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +69,9 @@ public class ModbusBridgeHandler extends BaseBridgeHandler implements IModbusIOH
 
     private Logger logger = LoggerFactory.getLogger(ModbusBridgeHandler.class);
 
+    // Properties are persisted with the thing, so the statistics in them are only refreshed now and then
+    private static final int MINUTES_BETWEEN_PROPERTY_UPDATES = 10;
+
     protected ModbusBridgeConfiguration modbusBridgeConfig;
     protected ModbusTransceiver transceiver = null;
     protected ModbusController controller;
@@ -64,15 +79,20 @@ public class ModbusBridgeHandler extends BaseBridgeHandler implements IModbusIOH
 
     // Checks if msgCounter should update to SmartHome - can be set from UI
     private Disposable updateCounterDisposable = null;
+    private Disposable updatePropertiesDisposable = null;
 
     private StateListener stateSubscriber = null;
 
     private ScheduledFuture<?> connectorTask;
 
-    private ScheduledFuture<?> slowPollTask;
-    private ScheduledFuture<?> fastPollTask;
+    // Thread owning the bus
+    private ModbusBusThread busThread = null;
+
+    // Request buffers reused by every transaction of the bridge
+    private final ModbusRequestPool requestPool = new ModbusRequestPool();
 
     private ModbusSerialConfiguration modbusSerialConfig;
+    private ModbusTcpConfiguration modbusTcpConfig;
 
     private SerialPortManager serialPortManager;
 
@@ -97,7 +117,11 @@ public class ModbusBridgeHandler extends BaseBridgeHandler implements IModbusIOH
 
         logger.debug("Initializing Modbus BridgeHandler : {}", thing.getUID());
         modbusBridgeConfig = getConfigAs(ModbusBridgeConfiguration.class);
-        modbusSerialConfig = getConfigAs(ModbusSerialConfiguration.class);
+        if (isNetworkBridge()) {
+            modbusTcpConfig = getConfigAs(ModbusTcpConfiguration.class);
+        } else {
+            modbusSerialConfig = getConfigAs(ModbusSerialConfiguration.class);
+        }
 
         // Create a new IOController for this Bridge
         controller = new ModbusController(this);
@@ -118,11 +142,19 @@ public class ModbusBridgeHandler extends BaseBridgeHandler implements IModbusIOH
 
     protected void initTransceiver() {
 
-        updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_PENDING, "Opening serial port");
         if (transceiver != null) {
             transceiver.disconnect();
         }
-        transceiver = new ModbusSerialTransceiver(serialPortManager, modbusSerialConfig, counters);
+        if (getThing().getThingTypeUID().equals(ModbusBindingConstants.BRIDGE_TYPE_RTU)) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_PENDING, "Connecting to gateway");
+            transceiver = new ModbusRtuTcpTransceiver(modbusTcpConfig, counters);
+        } else if (isNetworkBridge()) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_PENDING, "Connecting to gateway");
+            transceiver = new ModbusTcpTransceiver(modbusTcpConfig, counters);
+        } else {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_PENDING, "Opening serial port");
+            transceiver = new ModbusSerialTransceiver(serialPortManager, modbusSerialConfig, counters);
+        }
 
         try {
             logger.debug("We wil now connect and then initialize the Network");
@@ -141,19 +173,22 @@ public class ModbusBridgeHandler extends BaseBridgeHandler implements IModbusIOH
     public void dispose() {
         logger.debug("Dispose Bridge called : {}", thing.getBridgeUID());
 
-        // Cancel all slow running Modbus actions
-        if (slowPollTask != null && !slowPollTask.isDone()) {
-            slowPollTask.cancel(true);
+        // Stop polling
+        if (getController() != null) {
+            getController().getActionFeed().stop();
+            getController().getActionDispatcher().stop();
         }
-
-        // Cancel all fast running Modbus actions
-        if (fastPollTask != null && !fastPollTask.isDone()) {
-            fastPollTask.cancel(true);
+        if (busThread != null) {
+            busThread.stop();
+            busThread = null;
         }
 
         if ((updateCounterDisposable != null) && !updateCounterDisposable.isDisposed()) {
             updateCounterDisposable.dispose();
         }
+        if ((updatePropertiesDisposable != null) && !updatePropertiesDisposable.isDisposed()) {
+            updatePropertiesDisposable.dispose();
+        }
 
         if (transceiver != null) {
             transceiver.disconnect();
@@ -186,29 +221,32 @@ public class ModbusBridgeHandler extends BaseBridgeHandler implements IModbusIOH
 
         updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_PENDING, "Starting action feeds");
 
-        // Make an initial slow run to get data filled in
-        getController().getActionFeed().execSlowActions();
-
-        // Hereafter we schedule it with SlowPool delay
-        slowPollTask = scheduler.scheduleWithFixedDelay(new Runnable() {
-            @Override
-            public void run() {
-                getController().getActionFeed().execSlowActions();
-            }
-        }, 0, modbusBridgeConfig.getSlowPoll(), TimeUnit.SECONDS);
-
-        // Make an initial fast run to get data filled in
-        getController().getActionFeed().execFastActions();
-
-        // Hereafter we schedule it with FastPoll delay
-        fastPollTask = scheduler.scheduleWithFixedDelay(new Runnable() {
-            @Override
-            public void run() {
-                getController().getActionFeed().execFastActions();
-            }
-        }, 0, modbusBridgeConfig.getFastPoll(), TimeUnit.SECONDS);
+        // Merge reads of neighbouring datasets into block reads
+        if (modbusBridgeConfig.isMergeReads()) {
+            getController().getActionFeed()
+                    .setReadPlanner(new ModbusReadPlanner(modbusBridgeConfig.getMaxReadGap(), this::supportsBlockReads));
+        } else {
+            getController().getActionFeed().setReadPlanner(null);
+        }
 
+        // Writes and on-demand actions go ahead of queued polls
+        getController().getActionDispatcher()
+                .setWriteMerging(modbusBridgeConfig.isMergeWrites() ? this::supportsBlockWrites : null);
+        getController().getActionDispatcher().setMaxQueuedReads(modbusBridgeConfig.getMaxQueuedReads());
+        // Modbus TCP gets several requests on the wire at once, the others one at a time
+        getController().getActionDispatcher().setMaxInFlight(transceiver.getMaxTransactionsInFlight());
+        // All bus I/O of the bridge runs on its own thread
+        if (busThread == null || !busThread.isRunning()) {
+            busThread = new ModbusBusThread("OH-binding-" + getThing().getUID().getAsString() + "-bus");
+            busThread.start();
+        }
+        getController().getActionDispatcher().start(busThread, modbusBridgeConfig.getDispatchOrdering());
         getController().startListening();
+
+        // Poll every dataset when due, spread over its interval
+        getController().getActionFeed().setAdaptive(modbusBridgeConfig.isAdaptivePolling());
+        getController().getActionFeed().start(scheduler, modbusBridgeConfig.getSlowPoll() * 1000L,
+                modbusBridgeConfig.getFastPoll() * 1000L);
     }
 
     private void initializeCounters() {
@@ -216,10 +254,28 @@ public class ModbusBridgeHandler extends BaseBridgeHandler implements IModbusIOH
             if (!updateCounterDisposable.isDisposed())
                 updateCounterDisposable.dispose();
         }
+        if (updatePropertiesDisposable != null) {
+            if (!updatePropertiesDisposable.isDisposed())
+                updatePropertiesDisposable.dispose();
+        }
         counters.clearCounters();
         updateCounterDisposable = Observable
-                .interval(modbusSerialConfig.getTimeBetweenCounterUpdates(), TimeUnit.SECONDS)
+                .interval(getTimeBetweenCounterUpdates(), TimeUnit.SECONDS)
                 .doOnNext(n -> refreshCounters()).subscribe();
+        updatePropertiesDisposable = Observable
+                .interval(MINUTES_BETWEEN_PROPERTY_UPDATES, TimeUnit.MINUTES)
+                .doOnNext(n -> refreshProperties()).subscribe();
+    }
+
+    private int getTimeBetweenCounterUpdates() {
+        int seconds = isNetworkBridge() ? modbusTcpConfig.getTimeBetweenCounterUpdates()
+                : modbusSerialConfig.getTimeBetweenCounterUpdates();
+        return Math.max(1, seconds);
+    }
+
+    private boolean isNetworkBridge() {
+        return getThing().getThingTypeUID().equals(ModbusBindingConstants.BRIDGE_TYPE_TCP)
+                || getThing().getThingTypeUID().equals(ModbusBindingConstants.BRIDGE_TYPE_RTU);
     }
 
     /**
@@ -232,6 +288,101 @@ public class ModbusBridgeHandler extends BaseBridgeHandler implements IModbusIOH
                 new DecimalType(counters.getTimeOutCounter()));
         updateState(new ChannelUID(getThing().getUID(), ModbusBindingConstants.CHANNEL_FAILED_COUNT),
                 new DecimalType(counters.getFailedCounter()));
+        updateState(new ChannelUID(getThing().getUID(), ModbusBindingConstants.CHANNEL_IDLE_TIME),
+                new DecimalType(counters.getAverageIdleTimeMillis()));
+        updateState(new ChannelUID(getThing().getUID(), ModbusBindingConstants.CHANNEL_SAVED_READS),
+                new DecimalType(counters.getSavedReadCounter()));
+        updateState(new ChannelUID(getThing().getUID(), ModbusBindingConstants.CHANNEL_SKIPPED_CONVERSIONS),
+                new DecimalType(counters.getSkippedConversionCounter()));
+        updateState(new ChannelUID(getThing().getUID(), ModbusBindingConstants.CHANNEL_BYTES_SENT),
+                new DecimalType(counters.getBytesSent()));
+        updateState(new ChannelUID(getThing().getUID(), ModbusBindingConstants.CHANNEL_BYTES_RECEIVED),
+                new DecimalType(counters.getBytesReceived()));
+        updateState(new ChannelUID(getThing().getUID(), ModbusBindingConstants.CHANNEL_CRC_ERRORS),
+                new DecimalType(counters.getCrcErrorCounter()));
+        updateState(new ChannelUID(getThing().getUID(), ModbusBindingConstants.CHANNEL_EXCEPTION_COUNT),
+                new DecimalType(counters.getExceptionCounter()));
+        updateState(new ChannelUID(getThing().getUID(), ModbusBindingConstants.CHANNEL_RETRY_COUNT),
+                new DecimalType(counters.getRetryCounter()));
+        if (getController() != null) {
+            int queueDepth = 0;
+            for (ModbusActionLane lane : ModbusActionLane.values()) {
+                queueDepth += getController().getActionDispatcher().getQueueDepth(lane);
+            }
+            updateState(new ChannelUID(getThing().getUID(), ModbusBindingConstants.CHANNEL_QUEUE_DEPTH),
+                    new DecimalType(queueDepth));
+        }
+    }
+
+    /**
+     * Refresh the statistics reported as bridge properties, far less often than the counter channels
+     */
+    private void refreshProperties() {
+        if (getController() == null) {
+            return;
+        }
+        Map<String, String> properties = editProperties();
+        refreshPollPeriods(properties);
+        refreshPollRates(properties);
+        refreshLaneLatencies(properties);
+        refreshRoundTrips(properties);
+        updateProperties(properties);
+    }
+
+    /**
+     * Report target and actual polling period of every dataset
+     */
+    private void refreshPollPeriods(Map<String, String> properties) {
+        ModbusDataSets dataSets = getController().getModbusFactory().getDataSets();
+        properties.keySet().removeIf(key -> key.startsWith(ModbusBindingConstants.PROPERTY_POLL_PERIOD));
+        getController().getActionFeed().getPollPeriods().forEach((dataSetId, period) -> {
+            String dataSetKey = dataSets.getDataSetKey(dataSetId);
+            if (dataSetKey != null) {
+                properties.put(ModbusBindingConstants.PROPERTY_POLL_PERIOD + dataSetKey,
+                        String.format("target %d ms, actual %d ms", period[0], period[1]));
+            }
+        });
+    }
+
+    /**
+     * Report target and achieved poll rate of every feed and the load of the poll schedule
+     */
+    private void refreshPollRates(Map<String, String> properties) {
+        ModbusActionFeed<ModbusAction> actionFeed = getController().getActionFeed();
+        properties.keySet().removeIf(key -> key.startsWith(ModbusBindingConstants.PROPERTY_POLL_RATE));
+        actionFeed.getPollRates().forEach((feed, rate) -> properties.put(
+                ModbusBindingConstants.PROPERTY_POLL_RATE + feed,
+                String.format("target %.3f Hz, achieved %.3f Hz", rate[0], rate[1])));
+        double[] load = actionFeed.getPollLoad();
+        properties.put(ModbusBindingConstants.PROPERTY_POLL_LOAD, String.format("load %.2f, stretch %.2f, skipped %d",
+                load[0], load[1], actionFeed.getSkippedRounds()));
+    }
+
+    /**
+     * Report queue to wire latency and queue depth of the dispatch lanes
+     */
+    private void refreshLaneLatencies(Map<String, String> properties) {
+        ModbusActionDispatcher dispatcher = getController().getActionDispatcher();
+        for (ModbusActionLane lane : ModbusActionLane.values()) {
+            properties.put(ModbusBindingConstants.PROPERTY_LANE_LATENCY + lane.getLabel(),
+                    dispatcher.getLatency(lane).summary());
+            properties.put(ModbusBindingConstants.PROPERTY_LANE_QUEUE + lane.getLabel(),
+                    String.format("depth %d, peak %d, dropped %d", dispatcher.getQueueDepth(lane),
+                            dispatcher.getPeakQueueDepth(lane), dispatcher.getDropped(lane)));
+        }
+    }
+
+    /**
+     * Report round trip latency per unit address and per function code
+     */
+    private void refreshRoundTrips(Map<String, String> properties) {
+        properties.keySet().removeIf(key -> key.startsWith(ModbusBindingConstants.PROPERTY_UNIT_STATS)
+                || key.startsWith(ModbusBindingConstants.PROPERTY_FUNCTION_LATENCY));
+        counters.forEachUnit((unitAddr, summary) -> properties
+                .put(ModbusBindingConstants.PROPERTY_UNIT_STATS + unitAddr, summary));
+        counters.forEachFunctionCode((functionCode, latency) -> properties.put(
+                ModbusBindingConstants.PROPERTY_FUNCTION_LATENCY + String.format("%02X", functionCode),
+                latency.summary()));
     }
 
     public boolean isConnected() {
@@ -313,11 +464,38 @@ public class ModbusBridgeHandler extends BaseBridgeHandler implements IModbusIOH
         return counters;
     }
 
+    /**
+     * @return the thread owning the bus, null when not connected
+     */
+    public ModbusBusThread getBusThread() {
+        return busThread;
+    }
+
+    public ModbusRequestPool getRequestPool() {
+        return requestPool;
+    }
+
     public ModbusThingHandler getThingHandlerByUID(ThingUID thingUID) {
         Thing thing = getThing().getThing(thingUID);
         return (thing != null) ? (ModbusThingHandler) thing.getHandler() : null;
     }
 
+    /**
+     * Tells if reads of a thing may span several datasets
+     */
+    private boolean supportsBlockReads(ThingUID thingUID) {
+        ModbusThingHandler handler = getThingHandlerByUID(thingUID);
+        return (handler != null) && handler.getModbusFunction().supportsBlockReads();
+    }
+
+    /**
+     * Tells if writes to a thing may span several datasets
+     */
+    private boolean supportsBlockWrites(ThingUID thingUID) {
+        ModbusThingHandler handler = getThingHandlerByUID(thingUID);
+        return (handler != null) && handler.getModbusFunction().supportsBlockWrites();
+    }
+
     protected void onSuccessfulOperation() {
         // update without error -> we're back online
         if (getThing().getStatus() == ThingStatus.OFFLINE) {
@@ -334,6 +512,10 @@ public class ModbusBridgeHandler extends BaseBridgeHandler implements IModbusIOH
         return modbusSerialConfig;
     }
 
+    public ModbusTcpConfiguration getModbusTcpConfig() {
+        return modbusTcpConfig;
+    }
+
     /**
      * Finds and returns a child thing for a given UID of this bridge.
      *
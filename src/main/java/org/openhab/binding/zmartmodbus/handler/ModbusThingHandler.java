@@ -17,7 +17,6 @@ import static org.openhab.binding.zmartmodbus.ModbusBindingConstants.*;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -57,6 +56,7 @@ import org.openhab.binding.zmartmodbus.internal.streams.ModbusMessage;
 import org.openhab.binding.zmartmodbus.internal.util.BitVector;
 import org.openhab.binding.zmartmodbus.internal.util.Jablotron;
 import org.openhab.binding.zmartmodbus.internal.util.Register;
+import org.openhab.binding.zmartmodbus.internal.util.RegisterCodec.WordOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -247,6 +247,9 @@ public class ModbusThingHandler extends ConfigStatusThingHandler {
                 } else {
                     ModbusDataSet dataSet = new ModbusDataSet(thing.getUID(), messageClass, start, length, offset,
                             channelId, elementId, reportOn, feedRepeat, ModbusDataSetClass.SmartHome, nodeClass);
+                    if (feedRepeat == ModbusFeedRepeat.Interval) {
+                        dataSet.setPollInterval(ModbusFeedRepeat.intervalMillis(cfg[1]));
+                    }
 
                     getBridgeHandler().getController().getModbusFactory().getDataSets().addDataSet(dataSetKey, dataSet);
 
@@ -285,13 +288,14 @@ public class ModbusThingHandler extends ConfigStatusThingHandler {
             int scale = (scaleStr != null) ? Integer.decode(scaleStr) : 0;
 
             if (properties.containsKey(PROPERTY_CHANNELCFG_INDEX)) {
-                getBridgeHandler().getController().getModbusFactory().getDataSets()
-                        .addChannel(new ModbusThingChannel(thing.getUID(), channel.getUID(),
-                                makeDataSetKey(properties.get(PROPERTY_CHANNELCFG_DATASET), thing.getUID()),
-                                ModbusValueClass.fromString(properties.get(PROPERTY_CHANNELCFG_VALUETYPE)),
-                                addressWizard(properties.get(PROPERTY_CHANNELCFG_INDEX), channelId, elementId),
-                                unitsOfMeasure, scale,
-                                ModbusReportOn.fromString(properties.get(PROPERTY_CHANNELCFG_REPORTON))));
+                ModbusThingChannel modbusChannel = new ModbusThingChannel(thing.getUID(), channel.getUID(),
+                        makeDataSetKey(properties.get(PROPERTY_CHANNELCFG_DATASET), thing.getUID()),
+                        ModbusValueClass.fromString(properties.get(PROPERTY_CHANNELCFG_VALUETYPE)),
+                        addressWizard(properties.get(PROPERTY_CHANNELCFG_INDEX), channelId, elementId),
+                        unitsOfMeasure, scale, ModbusReportOn.fromString(properties.get(PROPERTY_CHANNELCFG_REPORTON)));
+                // Word order of multi-register values, if not the one of the value type
+                modbusChannel.setWordOrder(WordOrder.fromString(properties.get(PROPERTY_CHANNELCFG_WORDORDER)));
+                getBridgeHandler().getController().getModbusFactory().getDataSets().addChannel(modbusChannel);
                 logger.debug("Adding channel {}", channel.getUID());
             }
         }
@@ -354,15 +358,15 @@ public class ModbusThingHandler extends ConfigStatusThingHandler {
     public void handleInternalMsg(ModbusMessage modbusMessage) {
         logger.debug("Received discovery message");
         int dataSetId = modbusMessage.getDataSetId();
-        int elementAddress = Register.registersToIntSwap((byte[]) modbusMessage.getPayload(), 0);
+        int elementAddress = Register.registersToIntSwap(Register.registerView(modbusMessage.getPayload()), 0);
 
         if (elementAddress != 0) {
             BitVector assignmentMap = BitVector
-                    .createBitVectorSwap(Arrays.copyOfRange(((byte[]) modbusMessage.getPayload()), 4, 8));
+                    .createBitVectorSwap(Register.copyOfRange(Register.registerView(modbusMessage.getPayload()), 4, 8));
             // assignmentMap.setMSBAccess();
             assignmentMap.forceSize(17);
             BitVector status = BitVector
-                    .createBitVectorSwap(Arrays.copyOfRange(((byte[]) modbusMessage.getPayload()), 16, 18), 16);
+                    .createBitVectorSwap(Register.copyOfRange(Register.registerView(modbusMessage.getPayload()), 16, 18), 16);
             // status.setMSBAccess();
             if (!status.getBit(9)) {
                 // We assume it is a Thermostat as it is not a magnetic contact
@@ -19,7 +19,7 @@ import static org.openhab.binding.zmartmodbus.ModbusBindingConstants.THING_TYPE_
 import static org.openhab.binding.zmartmodbus.ModbusBindingConstants.THING_JABLOTRON_TP150_NAME;
 import static org.openhab.binding.zmartmodbus.internal.util.Register.registerToUnsignedShort;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 import org.openhab.core.library.types.StringType;
 import org.openhab.core.thing.ChannelUID;
@@ -59,23 +59,27 @@ public class ModbusThingHandlerJablotron extends ModbusThingHandler {
     public void handleInternalMsg(ModbusMessage modbusMessage) {
         int dataSetId = modbusMessage.getDataSetId();
         String dataSetKey = getController().getModbusFactory().getDataSets().getDataSetKey(dataSetId);
+        if (dataSetKey == null) {
+            logger.debug("Received internal message for removed dataSet {}", dataSetId);
+            return;
+        }
 
         logger.debug("Received internal message - dataSet: {}", dataSetKey);
 
         switch (dataSetKey) {
             case "get-device-info": {
-                byte[] response = (byte[]) modbusMessage.getPayload();
+                ByteBuffer response = Register.registerView(modbusMessage.getPayload());
 
                 // We got a response, no build the deviceInfo
                 String serialNo = String.format("%2$08d-%1$08d",
-                        registerToUnsignedShort(Arrays.copyOfRange(response, 0, 2)),
-                        registerToUnsignedShort(Arrays.copyOfRange(response, 2, 4)));
-                String hwVersion = "MC110" + String.format("%1$02d", response[4] & 0xEF);
+                        registerToUnsignedShort(response, 0),
+                        registerToUnsignedShort(response, 2));
+                String hwVersion = "MC110" + String.format("%1$02d", response.get(4) & 0xEF);
                 String swVersion = "MC610" + String.format("%1$02d.%2$02d",
-                        registerToUnsignedShort(Arrays.copyOfRange(response, 6, 8)) & 0x0FF0 >> 4,
-                        registerToUnsignedShort(Arrays.copyOfRange(response, 6, 8)) & 0x000F);
+                        registerToUnsignedShort(response, 6) & 0x0FF0 >> 4,
+                        registerToUnsignedShort(response, 6) & 0x000F);
                 String deviceName = "AC-"
-                        + String.format("%1$03d", registerToUnsignedShort(Arrays.copyOfRange(response, 8, 10)));
+                        + String.format("%1$03d", registerToUnsignedShort(response, 8));
 
                 ModbusDeviceInfo modbusDeviceInfo = new ModbusDeviceInfo(serialNo, hwVersion, swVersion, deviceName);
 
@@ -87,15 +91,15 @@ public class ModbusThingHandlerJablotron extends ModbusThingHandler {
             default: 
                 if (dataSetKey.contains("discovery")) {
 
-                int elementAddress = Register.registersToIntSwap((byte[]) modbusMessage.getPayload(), 0);
+                int elementAddress = Register.registersToIntSwap(Register.registerView(modbusMessage.getPayload()), 0);
 
                 if (elementAddress != 0) {
                     BitVector assignmentMap = BitVector
-                            .createBitVectorSwap(Arrays.copyOfRange(((byte[]) modbusMessage.getPayload()), 4, 8));
+                            .createBitVectorSwap(Register.copyOfRange(Register.registerView(modbusMessage.getPayload()), 4, 8));
                     // assignmentMap.setMSBAccess();
                     assignmentMap.forceSize(17);
                     BitVector status = BitVector
-                            .createBitVectorSwap(Arrays.copyOfRange(((byte[]) modbusMessage.getPayload()), 16, 18), 16);
+                            .createBitVectorSwap(Register.copyOfRange(Register.registerView(modbusMessage.getPayload()), 16, 18), 16);
                     // status.setMSBAccess();
                     if (!status.getBit(9)) {
                         // We assume it is a Thermostat as it is not a magnetic contact
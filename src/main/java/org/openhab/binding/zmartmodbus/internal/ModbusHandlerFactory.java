@@ -92,7 +92,8 @@ public class ModbusHandlerFactory extends BaseThingHandlerFactory {
 
         if (SUPPORTED_BRIDGE_TYPES_UIDS.contains(thingTypeUID)) {
             // Handle Bridge controllers here
-            if (thingTypeUID.equals(BRIDGE_TYPE_SERIAL)) {
+            if (thingTypeUID.equals(BRIDGE_TYPE_SERIAL) || thingTypeUID.equals(BRIDGE_TYPE_TCP)
+                    || thingTypeUID.equals(BRIDGE_TYPE_RTU)) {
                 controller = new ModbusBridgeHandler((Bridge) thing, serialPortManager);
             }
 
@@ -23,6 +23,17 @@ package org.openhab.binding.zmartmodbus.internal.config;
 public class ModbusBridgeConfiguration extends ModbusBaseConfiguration {
     private int slowPoll = 40000;
     private int fastPoll = 4000;
+    // Unused registers (or coils) allowed between datasets merged into one read
+    private int maxReadGap = 0;
+    private boolean mergeReads = true;
+    // Merge queued writes to neighbouring registers into one request
+    private boolean mergeWrites = true;
+    // Reads allowed to wait for the bus before the oldest periodic read is dropped
+    private int maxQueuedReads = 256;
+    // Ordering of the write, on-demand and poll lanes: strict or weighted
+    private String dispatchOrdering = "strict";
+    // Stretch the polling intervals when the bus cannot keep up
+    private boolean adaptivePolling = true;
 
     public int getSlowPoll() {
         return slowPoll;
@@ -40,5 +51,53 @@ public class ModbusBridgeConfiguration extends ModbusBaseConfiguration {
         this.fastPoll = fastPoll;
     }
 
+    public int getMaxReadGap() {
+        return maxReadGap;
+    }
+
+    public void setMaxReadGap(int maxReadGap) {
+        this.maxReadGap = maxReadGap;
+    }
+
+    public boolean isMergeReads() {
+        return mergeReads;
+    }
+
+    public void setMergeReads(boolean mergeReads) {
+        this.mergeReads = mergeReads;
+    }
+
+    public boolean isMergeWrites() {
+        return mergeWrites;
+    }
+
+    public void setMergeWrites(boolean mergeWrites) {
+        this.mergeWrites = mergeWrites;
+    }
+
+    public int getMaxQueuedReads() {
+        return maxQueuedReads;
+    }
+
+    public void setMaxQueuedReads(int maxQueuedReads) {
+        this.maxQueuedReads = maxQueuedReads;
+    }
+
+    public String getDispatchOrdering() {
+        return dispatchOrdering;
+    }
+
+    public void setDispatchOrdering(String dispatchOrdering) {
+        this.dispatchOrdering = dispatchOrdering;
+    }
+
+    public boolean isAdaptivePolling() {
+        return adaptivePolling;
+    }
+
+    public void setAdaptivePolling(boolean adaptivePolling) {
+        this.adaptivePolling = adaptivePolling;
+    }
+
 
 }
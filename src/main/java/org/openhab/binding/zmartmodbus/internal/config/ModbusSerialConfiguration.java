@@ -50,6 +50,11 @@ public class ModbusSerialConfiguration {
     private int connectMaxTries;
     private int connectTimeoutMillis;
 
+    // "event" parks the receiver until the serial port signals data, "poll" sleeps between reads
+    private String receiveMode = "event";
+    // RTU inter-frame gap, 0 = calculate t3.5 from baud rate
+    private int frameGapMillis;
+
     // Time between updating the reported counters in OpenHAB
     private int timeBetweenCounterUpdates;
 
@@ -169,6 +174,26 @@ public class ModbusSerialConfiguration {
         this.connectTimeoutMillis = connectTimeoutMillis;
     }
 
+    public String getReceiveMode() {
+        return receiveMode;
+    }
+
+    public void setReceiveMode(String receiveMode) {
+        this.receiveMode = receiveMode;
+    }
+
+    public boolean isEventDriven() {
+        return !"poll".equalsIgnoreCase(receiveMode);
+    }
+
+    public int getFrameGapMillis() {
+        return frameGapMillis;
+    }
+
+    public void setFrameGapMillis(int frameGapMillis) {
+        this.frameGapMillis = frameGapMillis;
+    }
+
     public boolean isValid() {
         return this.port != null;
     }
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.config;
+
+import static org.openhab.binding.zmartmodbus.ModbusBindingClass.DEFAULT_PORT;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link ModbusTcpConfiguration} holds the configuration of a TCP connected
+ * Modbus controller
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusTcpConfiguration {
+
+    private String host = "";
+    private int port = DEFAULT_PORT;
+
+    private int connectTimeoutMillis = 10000;
+    // Time to wait for a response before the transaction times out
+    private int receiveTimeoutMillis = 3000;
+    // Number of requests allowed in flight at the same time (1 = no pipelining)
+    private int maxTransactionsInFlight = 4;
+
+    // Time between updating the reported counters in OpenHAB
+    private int timeBetweenCounterUpdates = 30;
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public int getReceiveTimeoutMillis() {
+        return receiveTimeoutMillis;
+    }
+
+    public void setReceiveTimeoutMillis(int receiveTimeoutMillis) {
+        this.receiveTimeoutMillis = receiveTimeoutMillis;
+    }
+
+    public int getMaxTransactionsInFlight() {
+        return Math.max(1, maxTransactionsInFlight);
+    }
+
+    public void setMaxTransactionsInFlight(int maxTransactionsInFlight) {
+        this.maxTransactionsInFlight = maxTransactionsInFlight;
+    }
+
+    public int getTimeBetweenCounterUpdates() {
+        return timeBetweenCounterUpdates;
+    }
+
+    public void setTimeBetweenCounterUpdates(int timeBetweenCounterUpdates) {
+        this.timeBetweenCounterUpdates = timeBetweenCounterUpdates;
+    }
+
+    public boolean isValid() {
+        return !host.isEmpty() && port > 0;
+    }
+}
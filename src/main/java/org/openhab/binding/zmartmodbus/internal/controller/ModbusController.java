@@ -12,8 +12,12 @@
  */
 package org.openhab.binding.zmartmodbus.internal.controller;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.openhab.binding.zmartmodbus.handler.ModbusBridgeHandler;
 import org.openhab.binding.zmartmodbus.internal.factory.ModbusHandler;
+import org.openhab.binding.zmartmodbus.internal.factory.ModbusActionDispatcher;
 import org.openhab.binding.zmartmodbus.internal.factory.ModbusActionFeed;
 import org.openhab.binding.zmartmodbus.internal.factory.ModbusFactory;
 import org.openhab.binding.zmartmodbus.internal.listener.ActionListener;
@@ -25,9 +29,8 @@ import org.openhab.binding.zmartmodbus.internal.streams.ModbusState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
-import io.reactivex.flowables.ConnectableFlowable;
+import io.reactivex.processors.PublishProcessor;
 
 /**
  * This interface defines interface to communicate ModbusFunction controller.
@@ -42,95 +45,89 @@ public class ModbusController {
     private ModbusBridgeHandler bridgeHandler;
 
     private boolean connected = false; // Connected to ModbusFunction
-    private boolean listening = false; // Connected to ModbusFunction
+    private volatile boolean listening = false; // Connected to ModbusFunction
 
     /**
      * Constants for managing the ModbusFunction protocol
      */
     static final String PROTOCOL_NAME = "modbusFunction";
 
+    /**
+     * Messages of periodic reads allowed to wait for processing, the oldest (stale) ones are dropped beyond
+     */
+    static final int MAX_QUEUED_EVENTS = 1024;
+
+    // Messages and states are processed here, so the bus thread only hands them over
+    private ExecutorService eventExecutor;
+
     private ModbusActionFeed<ModbusAction> actionFeed = new ModbusActionFeed<ModbusAction>();
     private ModbusHandler modbusHandler = new ModbusHandler();
     private ModbusFactory modbusFactory = new ModbusFactory();
-
-    private ConnectableFlowable<ModbusAction> hotAction;
-    private ConnectableFlowable<ModbusMessage> hotMessage;
-    private ConnectableFlowable<ModbusState> hotStateFromModbus;
-    private ConnectableFlowable<ModbusState> hotStateToModbus;
-
-    public Flowable<ModbusAction> modbusActionQueue = Flowable.create(emitter -> {
-        ActionListener listener = new ActionListener() {
-            @Override
-            public void modbusAction(ModbusAction event) {
-                emitter.onNext(event);
-                if (event.isLast()) {
-                    emitter.onComplete();
-                }
+    private ModbusActionDispatcher actionDispatcher;
+
+    // Messages of the bus, published on the event thread
+    private final PublishProcessor<ModbusMessage> hotMessage = PublishProcessor.create();
+    private volatile ModbusMessageQueue messageQueue;
+
+    // Actions are queued (bounded) in the dispatcher, the listener never blocks
+    private final ActionListener actionListener = new ActionListener() {
+        @Override
+        public void modbusAction(ModbusAction event) {
+            if (listening) {
+                actionDispatcher.submit(event);
             }
+        }
 
-            @Override
-            public void error(Throwable e) {
-                emitter.onError(e);
-            }
-        };
-        actionFeed.register(listener);
-        modbusHandler.register(listener);
-        modbusFactory.register(listener);
-    }, BackpressureStrategy.BUFFER);
-
-    public Flowable<ModbusMessage> modbusMessageQueue = Flowable.create(emitter -> {
-        MessageListener listener = new MessageListener() {
-            @Override
-            public void modbusMessage(ModbusMessage event) {
-                emitter.onNext(event);
-                if (event.isLast()) {
-                    emitter.onComplete();
-                }
+        @Override
+        public void error(Throwable e) {
+            logger.warn("Action listener caught an error: {}", e.getMessage());
+        }
+    };
+
+    private final MessageListener messageListener = new MessageListener() {
+        @Override
+        public void modbusMessage(ModbusMessage event) {
+            ModbusMessageQueue queue = messageQueue;
+            if (listening && queue != null) {
+                queue.offer(event);
             }
+        }
 
-            @Override
-            public void error(Throwable e) {
-                emitter.onError(e);
-            }
-        };
-        modbusHandler.register(listener);
-    }, BackpressureStrategy.BUFFER);
-
-    public Flowable<ModbusState> modbusStateFromModbusQueue = Flowable.create(emitter -> {
-        StateListener listener = new StateListener() {
-            @Override
-            public void modbusState(ModbusState event) {
-                emitter.onNext(event);
-                if (event.isLast()) {
-                    emitter.onComplete();
-                }
+        @Override
+        public void error(Throwable e) {
+            logger.warn("Message listener caught an error: {}", e.getMessage());
+        }
+    };
+
+    // States are made from messages on the event thread, so they are bounded by the message queue
+    private final StateListener stateFromModbusListener = new StateListener() {
+        @Override
+        public void modbusState(ModbusState event) {
+            if (listening) {
+                bridgeHandler.handleUpdate(event);
             }
+        }
 
-            @Override
-            public void error(Throwable e) {
-                emitter.onError(e);
-            }
-        };
-        modbusFactory.register(listener);
-    }, BackpressureStrategy.BUFFER);
-
-    public Flowable<ModbusState> modbusStateToModbusQueue = Flowable.create(emitter -> {
-        StateListener listener = new StateListener() {
-            @Override
-            public void modbusState(ModbusState event) {
-                emitter.onNext(event);
-                if (event.isLast()) {
-                    emitter.onComplete();
-                }
+        @Override
+        public void error(Throwable e) {
+            logger.warn("State listener caught an error: {}", e.getMessage());
+        }
+    };
+
+    // Commands become writes, which are never dropped but coalesced in the dispatcher
+    private final StateListener stateToModbusListener = new StateListener() {
+        @Override
+        public void modbusState(ModbusState event) {
+            if (listening) {
+                getModbusFactory().stateListener().onNext(event);
             }
+        }
 
-            @Override
-            public void error(Throwable e) {
-                emitter.onError(e);
-            }
-        };
-        bridgeHandler.register(listener);
-    }, BackpressureStrategy.BUFFER);
+        @Override
+        public void error(Throwable e) {
+            logger.warn("State listener caught an error: {}", e.getMessage());
+        }
+    };
 
     /**
      * Creates a new instance of the ModbusFunction controller class.
@@ -142,6 +139,12 @@ public class ModbusController {
         logger.debug("Starting ModbusFunction controller {}", bridgeHandler);
         this.bridgeHandler = bridgeHandler;
         this.modbusHandler.setBridgeHandler(bridgeHandler);
+        this.modbusFactory.setCounters(bridgeHandler.getCounters());
+        this.actionDispatcher = new ModbusActionDispatcher(modbusHandler::communicate, bridgeHandler.getCounters());
+        // Do not queue a poll again while the previous one waits for the bus
+        this.actionFeed.setPendingCheck(actionDispatcher::isPending);
+        // Measure the time polls hold the bus
+        this.actionDispatcher.setCompletionListener(actionFeed::completed);
 
         // If we are not the controller, then get device information populated
         /*
@@ -177,32 +180,36 @@ public class ModbusController {
         logger.debug("Controller start listening....");
 
         if (!this.listening) {
-
-            logger.debug("Start listening ModbusActionQueue");
-            hotAction = modbusActionQueue.publish();
-            hotAction.connect();
-            hotAction.subscribe(modbusAction -> getModbusHandler().modbusCommunicator().onNext(modbusAction));
-
-            logger.debug("Start listening ModbusMessageQueue");
-            hotMessage = modbusMessageQueue.publish();
-            hotMessage.connect();
-            hotMessage.filter(modbusMessage -> !modbusMessage.isInternal())
-                    .subscribe(modbusMessage -> getModbusFactory().messageListener().onNext(modbusMessage));
-
-            logger.debug("Start listening ModbusStateFromModbusQueue");
-            hotStateFromModbus = modbusStateFromModbusQueue.publish();
-            hotStateFromModbus.connect();
-            hotStateFromModbus.subscribe(modbusState -> bridgeHandler.handleUpdate(modbusState));
-
-            logger.debug("Start listening ModbusStateToModbusQueue");
-            hotStateToModbus = modbusStateToModbusQueue.publish();
-            hotStateToModbus.connect();
-            hotStateToModbus.subscribe(modbusState -> getModbusFactory().stateListener().onNext(modbusState));
+            eventExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable,
+                        "OH-binding-" + bridgeHandler.getThing().getUID().getAsString() + "-events");
+                thread.setDaemon(true);
+                return thread;
+            });
+            messageQueue = new ModbusMessageQueue(MAX_QUEUED_EVENTS, eventExecutor, this::processMessage);
+
+            logger.debug("Start listening for actions, messages and states");
+            actionFeed.register(actionListener);
+            modbusHandler.register(actionListener);
+            modbusFactory.register(actionListener);
+            modbusHandler.register(messageListener);
+            modbusFactory.register(stateFromModbusListener);
+            bridgeHandler.register(stateToModbusListener);
 
             setListening(true);
         }
     }
 
+    /**
+     * Runs on the event thread, internal messages go to the thing handlers only
+     */
+    private void processMessage(ModbusMessage modbusMessage) {
+        if (!modbusMessage.isInternal()) {
+            modbusFactory.updateDataSet(modbusMessage);
+        }
+        hotMessage.onNext(modbusMessage);
+    }
+
     public void updateChannelFromModbus(ModbusThingChannel channel) {
         // logger.debug("Controller received update Channel {} {} {}", channel.getUID(), channel.getDataSetKey(), channel.getState());
         bridgeHandler.handleUpdate(channel.getUID(), channel.getState());
@@ -212,23 +219,12 @@ public class ModbusController {
         // Signal to listener to stop
         logger.debug("Stop listening...");
 
-        logger.debug("Stop listening for actions");
-        hotAction.connect().dispose();
-        hotAction.subscribe().dispose();
-
-        logger.debug("Stop listening for messages");
-        hotMessage.connect().dispose();
-        hotMessage.subscribe().dispose();
-
-        logger.debug("Stop listening for stateFromModbus");
-        hotStateFromModbus.connect().dispose();
-        hotStateFromModbus.subscribe().dispose();
-
-        logger.debug("Stop listening for stateToModbus");
-        hotStateToModbus.connect().dispose();
-        hotStateToModbus.subscribe().dispose();
-
         setListening(false);
+        ModbusMessageQueue queue = messageQueue;
+        if (queue != null) {
+            queue.clear();
+        }
+        eventExecutor.shutdownNow();
     }
 
     public ModbusFactory getModbusFactory() {
@@ -239,11 +235,15 @@ public class ModbusController {
         return actionFeed;
     }
 
+    public ModbusActionDispatcher getActionDispatcher() {
+        return actionDispatcher;
+    }
+
     public ModbusHandler getModbusHandler() {
         return modbusHandler;
     }
 
-    public ConnectableFlowable<ModbusMessage> getHotMessage() {
+    public Flowable<ModbusMessage> getHotMessage() {
         return hotMessage;
     }
 
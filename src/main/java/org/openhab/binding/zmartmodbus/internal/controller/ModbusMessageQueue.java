@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.controller;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ModbusMessageQueue} hands the messages read from the bus over to the event thread of a bridge. It holds
+ * at most capacity messages of periodic reads: when the event thread falls behind, the oldest of them is dropped, as
+ * the next poll reads the data again. Internal messages and messages of on-demand reads always get through, their
+ * number is bounded by the dispatcher lanes they come from.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public class ModbusMessageQueue {
+
+    private Logger logger = LoggerFactory.getLogger(ModbusMessageQueue.class);
+
+    private final int capacity;
+    private final Executor executor;
+    private final Consumer<ModbusMessage> consumer;
+
+    // Guarded by itself, as is draining
+    private final Deque<ModbusMessage> queue = new ArrayDeque<>();
+    private boolean draining = false;
+
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    /**
+     * @param capacity number of messages that may wait for the event thread
+     * @param executor runs the consumer, one message at a time
+     * @param consumer processes the messages in the order they were offered
+     */
+    public ModbusMessageQueue(int capacity, Executor executor, Consumer<ModbusMessage> consumer) {
+        this.capacity = Math.max(1, capacity);
+        this.executor = executor;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Queue a message for the event thread, never blocks
+     */
+    public void offer(ModbusMessage message) {
+        synchronized (queue) {
+            if (queue.size() >= capacity && !makeRoom(message)) {
+                logger.debug("Message queue full, message of dataset {} dropped", message.getDataSetId());
+                return;
+            }
+            queue.add(message);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Event thread stopped, queued messages dropped");
+            clear();
+        }
+    }
+
+    /**
+     * Drop the oldest message of a periodic read
+     *
+     * @return false if the new message is to be dropped instead. Must hold the lock.
+     */
+    private boolean makeRoom(ModbusMessage message) {
+        for (Iterator<ModbusMessage> iterator = queue.iterator(); iterator.hasNext();) {
+            if (isDroppable(iterator.next())) {
+                iterator.remove();
+                countDropped();
+                return true;
+            }
+        }
+        if (isDroppable(message)) {
+            countDropped();
+            return false;
+        }
+        // Only messages which must get through are waiting, let the queue grow
+        return true;
+    }
+
+    private void countDropped() {
+        if (dropped.getAndIncrement() % capacity == 0) {
+            logger.warn("Message queue full, oldest messages of periodic reads dropped ({} so far)", dropped.get());
+        }
+    }
+
+    private static boolean isDroppable(ModbusMessage message) {
+        return message.isPeriodic() && !message.isInternal();
+    }
+
+    private void drain() {
+        while (true) {
+            ModbusMessage message;
+            synchronized (queue) {
+                message = queue.poll();
+                if (message == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                consumer.accept(message);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to process message of dataset {}: {}", message.getDataSetId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drop all queued messages
+     */
+    public void clear() {
+        synchronized (queue) {
+            queue.clear();
+            draining = false;
+        }
+    }
+
+    /**
+     * @return number of messages dropped since the start
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -20,6 +20,9 @@ import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusDataType;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusReportOn;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusUnitsOfMeasure;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusValueClass;
+import org.openhab.binding.zmartmodbus.internal.protocol.converter.ModbusBaseConverter;
+import org.openhab.binding.zmartmodbus.internal.protocol.converter.ModbusChannelDecoder;
+import org.openhab.binding.zmartmodbus.internal.util.RegisterCodec.WordOrder;
 
 /**
  *
@@ -36,10 +39,14 @@ public class ModbusThingChannel {
     private ModbusDataType dataType;
     private ModbusUnitsOfMeasure unitsOfMeasure;
     private int scale;
+    private WordOrder wordOrder = null; // null for the order of the value class
     private State state = null;
     private State oldState = null;
     private ModbusReportOn reportOn;
     private boolean internal = false; // True if channel is only used internally by controller
+    private ModbusChannelDecoder decoder = null;
+    private long raw = 0; // last raw value, see ModbusRawDecoder
+    private boolean rawValid = false;
 
     public ModbusThingChannel(ThingUID thingUID, ChannelUID uid, String dataSetKey, ModbusValueClass valueClass, int index,
             ModbusUnitsOfMeasure unitsOfMeasure, int scale, ModbusReportOn reportOn) {
@@ -102,6 +109,20 @@ public class ModbusThingChannel {
         this.state = state;
     }
 
+    /**
+     * Remember the raw value the state is built from
+     *
+     * @return true if it differs from the previous raw value or is the first one
+     */
+    public boolean updateRaw(long raw) {
+        if (rawValid && this.raw == raw) {
+            return false;
+        }
+        this.raw = raw;
+        rawValid = true;
+        return true;
+    }
+
     public boolean stateChanged() {
         if (oldState.equals(state)) {
             return false;
@@ -110,6 +131,17 @@ public class ModbusThingChannel {
         }
     }
 
+    /**
+     * @return the word order of multi-register values, null if the value class tells the order
+     */
+    public WordOrder getWordOrder() {
+        return wordOrder;
+    }
+
+    public void setWordOrder(WordOrder wordOrder) {
+        this.wordOrder = wordOrder;
+    }
+
     public ModbusReportOn getReportOn() {
         return reportOn;
     }
@@ -133,6 +165,20 @@ public class ModbusThingChannel {
         return unitsOfMeasure;
     }
 
+    /**
+     * @return the decoder of the payload, built when the channel was added
+     */
+    public ModbusChannelDecoder getDecoder() {
+        if (decoder == null) {
+            decoder = ModbusBaseConverter.compileDecoder(this);
+        }
+        return decoder;
+    }
+
+    public void setDecoder(ModbusChannelDecoder decoder) {
+        this.decoder = decoder;
+    }
+
     public boolean isLast() {
         return false;
     }
@@ -0,0 +1,700 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.factory;
+
+import static org.openhab.binding.zmartmodbus.ModbusBindingClass.MAX_WRITE_REGISTERS;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionClass;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionLane;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusFeedRepeat;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusMessageClass;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusReportOn;
+import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolErrorCode;
+import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolException;
+import org.openhab.binding.zmartmodbus.internal.protocol.ModbusCounters;
+import org.openhab.binding.zmartmodbus.internal.protocol.ModbusFunction.ModbusTransaction;
+import org.openhab.binding.zmartmodbus.internal.protocol.ModbusHistogram;
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusAction;
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusActionBlock;
+import org.openhab.core.thing.ThingUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ModbusActionDispatcher} queues actions in a write lane, an on-demand lane (Once actions) and a
+ * background poll lane, and sends them to the bus. Up to maxInFlight actions may wait for their response at the same
+ * time (one on a serial line, the transaction window on Modbus TCP); the next one is sent as soon as one of them is
+ * done. A retry goes to the lane of the action it repeats.
+ * With strict ordering a lane is only served when all lanes above it are empty; with weighted ordering every waiting
+ * lane gets a share of the bus given by its weight, so polling keeps going during a burst of writes.
+ *
+ * A read of a dataset that is already queued in the same or a higher lane, or is on the wire right now, is not sent
+ * again: the pending read delivers the data to all requesters. A write to a target that already has a queued write
+ * cancels the queued one and goes to the back of the lane, so it lands after every write queued before it (last writer
+ * wins). Queued writes to neighbouring registers of a unit are sent as one request, merged in queue order. The time
+ * from queueing to sending is recorded per lane.
+ *
+ * The number of queued reads is bounded: when the bus cannot keep up, the oldest periodic read is dropped. Writes are
+ * never dropped, coalescing keeps at most one queued write per target.
+ *
+ * Requests of async {@link org.openhab.binding.zmartmodbus.internal.protocol.ModbusFunction} callers are queued in the
+ * lane they ask for and sent in turn with the actions of that lane. Their future fails when they are dropped.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public class ModbusActionDispatcher {
+
+    private Logger logger = LoggerFactory.getLogger(ModbusActionDispatcher.class);
+
+    public static final String ORDERING_STRICT = "strict";
+    public static final String ORDERING_WEIGHTED = "weighted";
+
+    public static final int DEFAULT_MAX_QUEUED_READS = 256;
+
+    private static final ModbusActionLane[] LANES = ModbusActionLane.values();
+
+    private static class Pending {
+        volatile ModbusAction action; // replaced by the block when queued writes are merged into it
+        final ModbusActionLane lane;
+        final long queued;
+        // Set when the action is taken off the queue or cancelled
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        Pending(ModbusAction action, ModbusActionLane lane, long queued) {
+            this.action = action;
+            this.lane = lane;
+            this.queued = queued;
+        }
+
+        boolean isBefore(Pending other) {
+            return lane.ordinal() <= other.lane.ordinal();
+        }
+
+        boolean claim() {
+            return done.compareAndSet(false, true);
+        }
+
+        boolean isDone() {
+            return done.get();
+        }
+    }
+
+    /**
+     * A request of an async caller, it takes no part in collapsing reads or coalescing writes
+     */
+    private static class TransactionAction<T> extends ModbusAction {
+        final ModbusActionLane lane;
+        final ModbusTransaction<CompletableFuture<T>> transaction;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        TransactionAction(ModbusActionLane lane, ModbusTransaction<CompletableFuture<T>> transaction) {
+            super(null, 0, ModbusMessageClass.Unknown, ModbusActionClass.Status, ModbusFeedRepeat.Once, 0, 0, 0,
+                    ModbusReportOn.Always);
+            this.lane = lane;
+            this.transaction = transaction;
+        }
+
+        /**
+         * Start the transaction, the future of the caller completes with it
+         *
+         * @return the future of the caller
+         */
+        CompletableFuture<T> run() {
+            if (future.isDone()) {
+                // Given up by the caller
+                return future;
+            }
+            try {
+                transaction.call().whenComplete((result, failure) -> {
+                    if (failure != null) {
+                        future.completeExceptionally(
+                                (failure instanceof CompletionException) ? failure.getCause() : failure);
+                    } else {
+                        future.complete(result);
+                    }
+                });
+            } catch (ModbusProtocolException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
+        void dropped() {
+            future.completeExceptionally(
+                    new ModbusProtocolException("Request dropped", ModbusProtocolErrorCode.NOT_AVAILABLE));
+        }
+
+        @Override
+        public String toString() {
+            return "modbusAction = request, " + lane.getLabel();
+        }
+    }
+
+    private final Map<ModbusActionLane, Queue<Pending>> lanes = new EnumMap<>(ModbusActionLane.class);
+    private final Map<ModbusActionLane, ModbusHistogram> latencies = new EnumMap<>(ModbusActionLane.class);
+
+    // Queue depth gauges by lane ordinal
+    private final AtomicIntegerArray depth = new AtomicIntegerArray(LANES.length);
+    private final AtomicIntegerArray peakDepth = new AtomicIntegerArray(LANES.length);
+    private final AtomicIntegerArray dropped = new AtomicIntegerArray(LANES.length);
+    private volatile int maxQueuedReads = DEFAULT_MAX_QUEUED_READS;
+
+    // Queued reads by dataset id and the reads on the wire, guarded by queuedReads
+    private final Map<Integer, Pending> queuedReads = new HashMap<>();
+    private final List<Pending> onTheWire = new ArrayList<>();
+
+    // Queued writes by target, guarded by queuedWrites
+    private final Map<String, Pending> queuedWrites = new HashMap<>();
+    private volatile Predicate<ThingUID> blockWritesSupported = null;
+
+    // Only touched by the draining thread
+    private final int[] credits = new int[LANES.length];
+
+    // Number of submits and completions not yet seen by the draining thread, only one thread drains at a time
+    private final AtomicInteger wip = new AtomicInteger(0);
+
+    // Actions sent and waiting for their response
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private volatile int maxInFlight = 1;
+
+    // Told when the bus thread stops before draining, the queued actions are dropped with it
+    private final ModbusBusThread.DroppableTask drainTask = new ModbusBusThread.DroppableTask() {
+        @Override
+        public void run() {
+            drain();
+        }
+
+        @Override
+        public void dropped() {
+            wip.set(0);
+            dropQueued();
+        }
+    };
+
+    private final Function<ModbusAction, CompletableFuture<?>> communicator;
+    private final ModbusCounters counters;
+    private volatile Executor executor = Runnable::run;
+    private volatile boolean weighted = false;
+    private volatile BiConsumer<ModbusAction, Long> completionListener = (action, nanos) -> {
+    };
+
+    /**
+     * @param communicator sends an action to the bus, the future completes when the action is done
+     * @param counters counts the reads saved
+     */
+    public ModbusActionDispatcher(Function<ModbusAction, CompletableFuture<?>> communicator, ModbusCounters counters) {
+        this.communicator = communicator;
+        this.counters = counters;
+        for (ModbusActionLane lane : LANES) {
+            lanes.put(lane, new ConcurrentLinkedQueue<>());
+            latencies.put(lane, new ModbusHistogram());
+        }
+    }
+
+    /**
+     * @param executor runs the dispatching (the bus thread of the bridge), the caller's thread is used if not set
+     * @param ordering {@link #ORDERING_STRICT} or {@link #ORDERING_WEIGHTED}
+     */
+    public void start(Executor executor, String ordering) {
+        this.executor = executor;
+        this.weighted = ORDERING_WEIGHTED.equalsIgnoreCase(ordering);
+        logger.debug("Dispatching actions with {} ordering", weighted ? ORDERING_WEIGHTED : ORDERING_STRICT);
+    }
+
+    /**
+     * @param blockWritesSupported tells if a unit accepts writes across dataset boundaries, null to not merge writes
+     */
+    public void setWriteMerging(Predicate<ThingUID> blockWritesSupported) {
+        this.blockWritesSupported = blockWritesSupported;
+    }
+
+    /**
+     * @param completionListener told the time (ns) each action held the bus once it is done
+     */
+    public void setCompletionListener(BiConsumer<ModbusAction, Long> completionListener) {
+        this.completionListener = completionListener;
+    }
+
+    /**
+     * @param maxInFlight number of actions that may wait for their response at the same time
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        logger.debug("Up to {} actions in flight", this.maxInFlight);
+    }
+
+    /**
+     * @param maxQueuedReads number of reads (polls and on-demand) that may wait for the bus
+     */
+    public void setMaxQueuedReads(int maxQueuedReads) {
+        this.maxQueuedReads = Math.max(1, maxQueuedReads);
+    }
+
+    /**
+     * Drop all queued actions
+     */
+    public void stop() {
+        executor = Runnable::run;
+        dropQueued();
+    }
+
+    private void dropQueued() {
+        for (ModbusActionLane lane : LANES) {
+            Pending pending;
+            while ((pending = lanes.get(lane).poll()) != null) {
+                if (pending.claim()) {
+                    depth.decrementAndGet(lane.ordinal());
+                    dropped(pending);
+                }
+            }
+        }
+        synchronized (queuedReads) {
+            queuedReads.clear();
+        }
+        synchronized (queuedWrites) {
+            queuedWrites.clear();
+        }
+    }
+
+    /**
+     * Queue an action in its lane
+     */
+    public void submit(ModbusAction action) {
+        Pending pending = new Pending(action, laneOf(action), System.nanoTime());
+        if (action.getActionClass() == ModbusActionClass.Read && !addRead(pending)) {
+            logger.trace("Dataset {} already being read, {} dropped", action.getDataSetId(), action);
+            counters.incrementSavedReadCounter();
+            return;
+        }
+        if (action.getActionClass() == ModbusActionClass.Write) {
+            addWrite(pending);
+        }
+        enqueue(pending);
+    }
+
+    /**
+     * Queue a request of an async caller in a lane, it is started on the bus in turn with the actions of the lane
+     *
+     * @param transaction starts the request on the bus thread and returns its future response
+     * @return completed with the result, or exceptionally with the {@link ModbusProtocolException} or when dropped
+     */
+    public <T> CompletableFuture<T> submit(ModbusActionLane lane,
+            ModbusTransaction<CompletableFuture<T>> transaction) {
+        TransactionAction<T> action = new TransactionAction<>(lane, transaction);
+        enqueue(new Pending(action, lane, System.nanoTime()));
+        return action.future;
+    }
+
+    private void enqueue(Pending pending) {
+        lanes.get(pending.lane).offer(pending);
+        depth.incrementAndGet(pending.lane.ordinal());
+        if (pending.lane != ModbusActionLane.Write) {
+            while (depth.get(ModbusActionLane.Poll.ordinal())
+                    + depth.get(ModbusActionLane.OnDemand.ordinal()) > maxQueuedReads && dropOldestRead()) {
+                // Keep within bounds
+            }
+        }
+        peakDepth.accumulateAndGet(pending.lane.ordinal(), depth.get(pending.lane.ordinal()), Math::max);
+        schedule();
+    }
+
+    /**
+     * Let the draining thread look at the lanes again
+     */
+    private void schedule() {
+        if (wip.getAndIncrement() == 0) {
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Dispatcher shut down, queued actions dropped");
+                wip.set(0);
+                dropQueued();
+            }
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        while (true) {
+            Pending pending;
+            while (inFlight.get() < maxInFlight && (pending = next()) != null) {
+                send(pending);
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void send(Pending pending) {
+        inFlight.incrementAndGet();
+        long started = System.nanoTime();
+        CompletableFuture<?> done;
+        try {
+            if (pending.action instanceof TransactionAction) {
+                done = ((TransactionAction<?>) pending.action).run();
+            } else {
+                done = communicator.apply(pending.action);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to send action {}: {}", pending.action, e.getMessage());
+            done = CompletableFuture.completedFuture(null);
+        }
+        done.whenComplete((result, failure) -> completed(pending, started));
+    }
+
+    /**
+     * An action got its response (or gave up), its place in the window is free for the next one
+     */
+    private void completed(Pending pending, long started) {
+        synchronized (queuedReads) {
+            onTheWire.remove(pending);
+        }
+        inFlight.decrementAndGet();
+        completionListener.accept(pending.action, System.nanoTime() - started);
+        schedule();
+    }
+
+    /**
+     * Register a read unless its datasets are already being read or queued in the same or a higher lane. Queued reads
+     * covered by the new read in a lower lane are cancelled.
+     *
+     * @return false if the read is not needed
+     */
+    private boolean addRead(Pending pending) {
+        List<Integer> dataSetIds = dataSetIds(pending.action);
+        synchronized (queuedReads) {
+            // Late requesters get the result of a read on the wire, a retry is the read on the wire itself
+            for (Pending sent : onTheWire) {
+                if (sent.action.getOrigin() != pending.action.getOrigin()
+                        && dataSetIds(sent.action).containsAll(dataSetIds)) {
+                    return false;
+                }
+            }
+            boolean covered = true;
+            for (Integer dataSetId : dataSetIds) {
+                Pending queued = queuedReads.get(dataSetId);
+                if (queued == null || !queued.isBefore(pending)) {
+                    covered = false;
+                    break;
+                }
+            }
+            if (covered) {
+                return false;
+            }
+            for (Integer dataSetId : dataSetIds) {
+                Pending queued = queuedReads.get(dataSetId);
+                if (queued != null && pending.isBefore(queued) && dataSetIds.containsAll(dataSetIds(queued.action))) {
+                    if (cancel(queued)) {
+                        counters.incrementSavedReadCounter();
+                    }
+                    removeRead(queued);
+                    queued = null;
+                }
+                if (queued == null || pending.isBefore(queued)) {
+                    queuedReads.put(dataSetId, pending);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Register a write, a queued write to the same target is cancelled as the new value replaces it
+     */
+    private void addWrite(Pending pending) {
+        String key = writeKey(pending.action);
+        synchronized (queuedWrites) {
+            Pending queued = queuedWrites.put(key, pending);
+            // The new value is queued at the back, behind writes that came after the one it replaces
+            if (queued != null && cancel(queued)) {
+                logger.trace("Queued write to {} replaced by {}", key, pending.action);
+            }
+        }
+    }
+
+    private static String writeKey(ModbusAction action) {
+        return action.getThingUID().getAsString() + ":" + action.getMessageClass() + ":"
+                + (action.getStart() + action.getOffset()) + ":" + action.getLength();
+    }
+
+    /**
+     * Take a write off the queue and merge the queued register writes next to it into it
+     */
+    private void takeWrite(Pending pending) {
+        synchronized (queuedWrites) {
+            queuedWrites.remove(writeKey(pending.action), pending);
+            Predicate<ThingUID> merging = blockWritesSupported;
+            ModbusAction first = pending.action;
+            if (merging == null || !isRegisterWrite(first) || !merging.test(first.getThingUID())) {
+                return;
+            }
+
+            int start = first.getStart() + first.getOffset();
+            byte[] data = (byte[]) first.getPayload();
+            int merged = 0;
+            boolean mergedInPass;
+            do {
+                // Ranges of the writes left in the queue, later writes to the same registers must stay after them
+                List<int[]> skipped = new ArrayList<>();
+                mergedInPass = false;
+                for (Pending other : lanes.get(ModbusActionLane.Write)) {
+                    ModbusAction action = other.action;
+                    if (other.isDone() || !isRegisterWrite(action)
+                            || !action.getThingUID().equals(first.getThingUID())) {
+                        continue;
+                    }
+                    int otherStart = action.getStart() + action.getOffset();
+                    int otherEnd = otherStart + ((byte[]) action.getPayload()).length / 2;
+                    int end = start + data.length / 2;
+                    boolean blocked = skipped.stream().anyMatch(range -> otherStart < range[1] && range[0] < otherEnd);
+                    if (blocked || otherStart > end || otherEnd < start
+                            || Math.max(end, otherEnd) - Math.min(start, otherStart) > MAX_WRITE_REGISTERS) {
+                        skipped.add(new int[] { otherStart, otherEnd });
+                        continue;
+                    }
+                    if (!cancel(other)) {
+                        continue;
+                    }
+                    int newStart = Math.min(start, otherStart);
+                    byte[] newData = new byte[(Math.max(end, otherEnd) - newStart) * 2];
+                    System.arraycopy(data, 0, newData, (start - newStart) * 2, data.length);
+                    System.arraycopy(action.getPayload(), 0, newData, (otherStart - newStart) * 2,
+                            (otherEnd - otherStart) * 2);
+                    start = newStart;
+                    data = newData;
+                    queuedWrites.remove(writeKey(action), other);
+                    merged++;
+                    mergedInPass = true;
+                }
+            } while (mergedInPass);
+
+            if (merged > 0) {
+                ModbusAction block = new ModbusAction(first.getThingUID(), first.getDataSetId(),
+                        ModbusMessageClass.Holding, ModbusActionClass.Write, ModbusFeedRepeat.Once, start,
+                        data.length / 2, 0, first.getReportOn());
+                block.setPayload(data);
+                logger.debug("Merged {} writes into {} registers from {}", merged + 1, data.length / 2, start);
+                pending.action = block;
+            }
+        }
+    }
+
+    private static boolean isRegisterWrite(ModbusAction action) {
+        return action.getMessageClass() == ModbusMessageClass.Holding && action.getPayload() instanceof byte[]
+                && ((byte[]) action.getPayload()).length > 0 && ((byte[]) action.getPayload()).length % 2 == 0;
+    }
+
+    /**
+     * Take an action off its queue without sending it
+     *
+     * @return false if it was already taken
+     */
+    private boolean cancel(Pending pending) {
+        if (!pending.claim()) {
+            return false;
+        }
+        depth.decrementAndGet(pending.lane.ordinal());
+        lanes.get(pending.lane).remove(pending);
+        return true;
+    }
+
+    /**
+     * Drop the oldest periodic read, or if there are none the oldest on-demand read
+     *
+     * @return false if there was no read to drop
+     */
+    private boolean dropOldestRead() {
+        for (ModbusActionLane lane : new ModbusActionLane[] { ModbusActionLane.Poll, ModbusActionLane.OnDemand }) {
+            for (Pending pending : lanes.get(lane)) {
+                synchronized (queuedReads) {
+                    if (cancel(pending)) {
+                        removeRead(pending);
+                        dropped(pending);
+                        dropped.incrementAndGet(lane.ordinal());
+                        logger.debug("Queue full, dropped {}", pending.action);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tell the caller of a dropped request
+     */
+    private static void dropped(Pending pending) {
+        if (pending.action instanceof TransactionAction) {
+            ((TransactionAction<?>) pending.action).dropped();
+        }
+    }
+
+    /**
+     * @return true if the action is waiting for or on the bus
+     */
+    public boolean isPending(ModbusAction action) {
+        synchronized (queuedReads) {
+            Pending queued = queuedReads.get(action.getDataSetId());
+            if (queued != null && queued.action == action) {
+                return true;
+            }
+            for (Pending sent : onTheWire) {
+                if (sent.action == action) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Remove the dataset entries of a read. Must hold the lock.
+     */
+    private void removeRead(Pending pending) {
+        for (Integer dataSetId : dataSetIds(pending.action)) {
+            queuedReads.remove(dataSetId, pending);
+        }
+    }
+
+    private static List<Integer> dataSetIds(ModbusAction action) {
+        if (action instanceof ModbusActionBlock) {
+            List<ModbusAction> members = ((ModbusActionBlock) action).getMembers();
+            Integer[] dataSetIds = new Integer[members.size()];
+            for (int i = 0; i < dataSetIds.length; i++) {
+                dataSetIds[i] = members.get(i).getDataSetId();
+            }
+            return List.of(dataSetIds);
+        }
+        return List.of(action.getDataSetId());
+    }
+
+    /**
+     * @return the next action to send, null if all lanes are empty
+     */
+    private Pending next() {
+        Pending pending;
+        while ((pending = take()) != null && !pending.claim()) {
+            // Cancelled while queued
+        }
+        if (pending == null) {
+            return null;
+        }
+        depth.decrementAndGet(pending.lane.ordinal());
+        latencies.get(pending.lane).record(System.nanoTime() - pending.queued);
+        switch (pending.action.getActionClass()) {
+            case Read:
+                synchronized (queuedReads) {
+                    removeRead(pending);
+                    onTheWire.add(pending);
+                }
+                break;
+            case Write:
+                takeWrite(pending);
+                break;
+            default:
+                break;
+        }
+        return pending;
+    }
+
+    private Pending take() {
+        ModbusActionLane selected = null;
+        if (weighted) {
+            // Smooth weighted round robin over the lanes with waiting actions
+            int total = 0;
+            for (ModbusActionLane lane : LANES) {
+                if (!lanes.get(lane).isEmpty()) {
+                    credits[lane.ordinal()] += lane.getWeight();
+                    total += lane.getWeight();
+                    if (selected == null || credits[lane.ordinal()] > credits[selected.ordinal()]) {
+                        selected = lane;
+                    }
+                }
+            }
+            if (selected != null) {
+                credits[selected.ordinal()] -= total;
+            }
+        } else {
+            for (ModbusActionLane lane : LANES) {
+                if (!lanes.get(lane).isEmpty()) {
+                    selected = lane;
+                    break;
+                }
+            }
+        }
+        if (selected == null) {
+            return null;
+        }
+        return lanes.get(selected).poll();
+    }
+
+    static ModbusActionLane laneOf(ModbusAction action) {
+        if (action.getActionClass() == ModbusActionClass.Write) {
+            return ModbusActionLane.Write;
+        }
+        // Retries are copies sent once, the lane follows the action they were copied from
+        if (action.getOrigin().getFeedRepeat() == ModbusFeedRepeat.Once) {
+            return ModbusActionLane.OnDemand;
+        }
+        return ModbusActionLane.Poll;
+    }
+
+    /**
+     * @return number of actions waiting in a lane
+     */
+    public int getQueueDepth(ModbusActionLane lane) {
+        return depth.get(lane.ordinal());
+    }
+
+    /**
+     * @return largest number of actions that waited in a lane
+     */
+    public int getPeakQueueDepth(ModbusActionLane lane) {
+        return peakDepth.get(lane.ordinal());
+    }
+
+    /**
+     * @return number of actions dropped from a full lane
+     */
+    public int getDropped(ModbusActionLane lane) {
+        return dropped.get(lane.ordinal());
+    }
+
+    /**
+     * @return queue to wire latency of a lane
+     */
+    public ModbusHistogram getLatency(ModbusActionLane lane) {
+        return latencies.get(lane);
+    }
+}
@@ -14,7 +14,13 @@ package org.openhab.binding.zmartmodbus.internal.factory;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Predicate;
 
 import org.openhab.core.thing.ThingUID;
 import org.openhab.binding.zmartmodbus.internal.listener.ActionListener;
@@ -33,12 +39,34 @@ public class ModbusActionFeed<T> {
 
     private Logger logger = LoggerFactory.getLogger(ModbusActionFeed.class);
 
-    private List<ModbusAction> slowActions = Collections.synchronizedList(new ArrayList<ModbusAction>());
-    private List<ModbusAction> fastActions = Collections.synchronizedList(new ArrayList<ModbusAction>());
+    // All periodic actions (slow, fast and own interval)
+    private List<ModbusAction> actions = Collections.synchronizedList(new ArrayList<ModbusAction>());
+
+    // Polling intervals (ms) of the slow and fast feeds
+    private long slowInterval = 60000;
+    private long fastInterval = 10000;
+
+    private ModbusReadPlanner readPlanner = null;
+
+    // Planned actions of each interval and the intervals to plan again, guarded by actions
+    private final Map<Long, List<ModbusAction>> plans = new TreeMap<>();
+    private final Set<Long> stale = new HashSet<>();
+    private boolean allStale = true;
 
     private ActionListener subscriber = null;
 
+    private final ModbusPollScheduler pollScheduler = new ModbusPollScheduler(action -> subscriber.modbusAction(action));
+
     public ModbusActionFeed() {
+        // Changes are planned in one go on the next tick of the scheduler
+        pollScheduler.setPlanner(this::replan);
+    }
+
+    /**
+     * @param pending tells if a periodic action sent earlier still waits for the bus
+     */
+    public void setPendingCheck(Predicate<ModbusAction> pending) {
+        pollScheduler.setPendingCheck(pending);
     }
 
     public void addAction(ModbusAction action) {
@@ -48,14 +76,13 @@ public class ModbusActionFeed<T> {
                 subscriber.modbusAction(action);
                 break;
             case Slow:
-                synchronized (slowActions) {
-                    slowActions.add(action);
-                }
-                break;
             case Fast:
-                synchronized (fastActions) {
-                    fastActions.add(action);
+            case Interval:
+                synchronized (actions) {
+                    actions.add(action);
+                    stale.add(getInterval(action));
                 }
+                pollScheduler.replanLater();
                 break;
             default:
                 logger.error("Action FeedRepeat not found {}", action.getDataSetId());
@@ -64,30 +91,138 @@ public class ModbusActionFeed<T> {
     }
 
     public void removeActions(ThingUID thingUID) {
-        synchronized (slowActions) {
-            slowActions.removeIf(action -> action.getThingUID().equals(thingUID));
+        synchronized (actions) {
+            actions.removeIf(action -> {
+                if (action.getThingUID().equals(thingUID)) {
+                    stale.add(getInterval(action));
+                    return true;
+                }
+                return false;
+            });
         }
-        synchronized (fastActions) {
-            fastActions.removeIf(action -> action.getThingUID().equals(thingUID));
+        pollScheduler.replanLater();
+    }
+
+    /**
+     * Start polling
+     *
+     * @param executor executor running the polls
+     * @param slowInterval interval (ms) of slow actions
+     * @param fastInterval interval (ms) of fast actions
+     */
+    public void start(ScheduledExecutorService executor, long slowInterval, long fastInterval) {
+        logger.debug("Start polling slow = {} ms - fast = {} ms", slowInterval, fastInterval);
+        synchronized (actions) {
+            this.slowInterval = slowInterval;
+            this.fastInterval = fastInterval;
+            allStale = true;
         }
+        pollScheduler.replanLater();
+        pollScheduler.start(executor);
     }
 
-    public void execSlowActions() {
-        logger.debug("execSlowActions ({})", slowActions.size());
-        synchronized(slowActions) {
-            slowActions.forEach(action -> {
-                subscriber.modbusAction(action);
-            });
+    public void stop() {
+        pollScheduler.stop();
+    }
+
+    /**
+     * Plan the actions of the intervals changed since the last plan and hand them all to the scheduler. A batch of
+     * added or removed actions (e.g. the channels of a thing) is planned once, and only the intervals it touches.
+     */
+    private void replan() {
+        Map<Long, List<ModbusAction>> byInterval = new TreeMap<>();
+        synchronized (actions) {
+            if (!allStale && stale.isEmpty()) {
+                return;
+            }
+            if (allStale) {
+                plans.clear();
+            } else {
+                stale.forEach(plans::remove);
+            }
+            Map<Long, List<ModbusAction>> changed = new TreeMap<>();
+            for (ModbusAction action : actions) {
+                long interval = getInterval(action);
+                if (interval > 0 && (allStale || stale.contains(interval))) {
+                    changed.computeIfAbsent(interval, k -> new ArrayList<>()).add(action);
+                }
+            }
+            changed.forEach(
+                    (interval, list) -> plans.put(interval, (readPlanner != null) ? readPlanner.plan(list) : list));
+            logger.debug("Planned {} of {} polling intervals", changed.size(), plans.size());
+            stale.clear();
+            allStale = false;
+            byInterval.putAll(plans);
         }
+        pollScheduler.reschedule(byInterval);
     }
 
-    public void execFastActions() {
-        logger.debug("execFastActions ({})", fastActions.size());
-        synchronized(fastActions) {
-            fastActions.forEach(action -> {
-                subscriber.modbusAction(action);
-            });
+    private long getInterval(ModbusAction action) {
+        switch (action.getFeedRepeat()) {
+            case Slow:
+                return slowInterval;
+            case Fast:
+                return fastInterval;
+            case Interval:
+                return action.getPollInterval();
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Set the planner used to merge reads, null sends every action on its own
+     */
+    public void setReadPlanner(ModbusReadPlanner readPlanner) {
+        synchronized (actions) {
+            this.readPlanner = readPlanner;
+            allStale = true;
         }
+        pollScheduler.replanLater();
+    }
+
+    /**
+     * @param adaptive stretch the polling intervals when the bus cannot keep up
+     */
+    public void setAdaptive(boolean adaptive) {
+        pollScheduler.setAdaptive(adaptive);
+    }
+
+    /**
+     * Tell the time an action held the bus, used to measure the load of the polls
+     */
+    public void completed(ModbusAction action, long nanos) {
+        pollScheduler.completed(action, nanos);
+    }
+
+    /**
+     * @return target and achieved polls per second of each feed (slow, fast or the interval of own interval actions)
+     */
+    public Map<String, double[]> getPollRates() {
+        Map<String, double[]> rates = new TreeMap<>();
+        pollScheduler.getPollRates().forEach((interval, rate) -> {
+            String feed = (interval == fastInterval) ? "fast" : (interval == slowInterval) ? "slow" : interval + "ms";
+            rates.put(feed, rate);
+        });
+        return rates;
+    }
+
+    /**
+     * @return share of the bus asked for by the polls and the stretch of the intervals
+     */
+    public double[] getPollLoad() {
+        return pollScheduler.getLoad();
+    }
+
+    public long getSkippedRounds() {
+        return pollScheduler.getSkippedRounds();
+    }
+
+    /**
+     * @return target and actual polling period in milliseconds for each dataset
+     */
+    public Map<Integer, long[]> getPollPeriods() {
+        return pollScheduler.getPollPeriods();
     }
 
     public void register(ActionListener listener) {
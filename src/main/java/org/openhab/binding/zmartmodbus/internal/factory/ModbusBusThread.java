@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.factory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ModbusBusThread} is the one thread of a bridge that talks to the bus. Tasks are handed over through a
+ * lock-free multi-producer single-consumer ring, so producers never block, and the thread parks while the ring is
+ * empty. Serial waits therefore do not tie up the shared scheduler pool, and the transceiver is only ever used from
+ * this thread.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public class ModbusBusThread implements Executor {
+
+    private Logger logger = LoggerFactory.getLogger(ModbusBusThread.class);
+
+    public static final int DEFAULT_CAPACITY = 256; // power of two
+
+    /**
+     * A task told when it is dropped, because the thread stopped before running it
+     */
+    public interface DroppableTask extends Runnable {
+        void dropped();
+    }
+
+    private final AtomicReferenceArray<Runnable> ring;
+    private final int mask;
+
+    // Next slot to claim, shared by the producers
+    private final AtomicLong tail = new AtomicLong(0);
+    // Next slot to run, only written by the bus thread
+    private volatile long head = 0;
+
+    private final Thread thread;
+    private volatile boolean running = false;
+    private volatile boolean waiting = false;
+
+    /**
+     * @param name name of the thread
+     */
+    public ModbusBusThread(String name) {
+        this(name, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param name name of the thread
+     * @param capacity number of tasks that may wait, rounded up to a power of two
+     */
+    public ModbusBusThread(String name, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stop the thread when the running task is done, waiting tasks are dropped at once
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        dropWaiting();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return true if called from the bus thread itself
+     */
+    public boolean isCurrentThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Run a task on the bus thread
+     *
+     * @throws RejectedExecutionException if stopped or the ring is full
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (!running) {
+            throw new RejectedExecutionException("Bus thread " + thread.getName() + " stopped");
+        }
+        long slot;
+        do {
+            slot = tail.get();
+            if (slot - head >= ring.length()) {
+                throw new RejectedExecutionException("Bus thread " + thread.getName() + " busy");
+            }
+        } while (!tail.compareAndSet(slot, slot + 1));
+        int index = (int) slot & mask;
+        ring.set(index, task);
+        if (!running && ring.compareAndSet(index, task, null)) {
+            // Stopped while publishing, the task is not seen by the thread nor by stop()
+            drop(task);
+            return;
+        }
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        logger.debug("Bus thread {} started", thread.getName());
+        while (running) {
+            int index = (int) head & mask;
+            // Taken with getAndSet, so a task is either run here or dropped by stop()
+            Runnable task = ring.getAndSet(index, null);
+            if (task == null) {
+                if (tail.get() != head) {
+                    // Slot claimed, the producer is about to publish the task
+                    Thread.onSpinWait();
+                    continue;
+                }
+                waiting = true;
+                if (tail.get() == head && running) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+                continue;
+            }
+            head++;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.warn("Bus thread {} task failed: {}", thread.getName(), e.getMessage());
+            }
+        }
+        dropWaiting();
+        logger.debug("Bus thread {} stopped", thread.getName());
+    }
+
+    private void dropWaiting() {
+        for (int i = 0; i < ring.length(); i++) {
+            Runnable task = ring.getAndSet(i, null);
+            if (task != null) {
+                drop(task);
+            }
+        }
+    }
+
+    private void drop(Runnable task) {
+        if (task instanceof DroppableTask) {
+            try {
+                ((DroppableTask) task).dropped();
+            } catch (RuntimeException e) {
+                logger.warn("Bus thread {} failed to drop task: {}", thread.getName(), e.getMessage());
+            }
+        }
+    }
+}
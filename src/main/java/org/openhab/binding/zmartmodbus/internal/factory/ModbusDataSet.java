@@ -14,7 +14,14 @@ package org.openhab.binding.zmartmodbus.internal.factory;
 
 import static org.openhab.binding.zmartmodbus.ModbusBindingConstants.ID_NOT_USED;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -27,6 +34,7 @@ import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusMessageClass;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusNodeClass;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusReportOn;
 import org.openhab.binding.zmartmodbus.internal.util.BitVector;
+import org.openhab.binding.zmartmodbus.internal.util.Register;
 
 /**
  * @author Peter Kristensen - Initial contribution
@@ -36,6 +44,13 @@ import org.openhab.binding.zmartmodbus.internal.util.BitVector;
 public class ModbusDataSet {
 
     @Nullable Object payload;
+    // Bytes of the last payload received and the bytes that changed with it
+    private byte @Nullable [] snapshot = null;
+    private final BitSet changed = new BitSet();
+    private boolean allChanged = true;
+    // Payload bytes [from, to) each channel is converted from, and the channels by payload byte built from them
+    private final Map<ChannelUID, int[]> channelWindows = new ConcurrentHashMap<>();
+    private volatile ChannelUID @Nullable [][] channelIndex = null;
     private ThingUID thingUID;
     private int dataSetId;
 
@@ -50,6 +65,7 @@ public class ModbusDataSet {
     private int offset = 0; // Offset to be used with custom addressing of coils
     private ModbusReportOn reportOn = ModbusReportOn.Unknown; // Only report on change
     private ModbusFeedRepeat feedRepeat = ModbusFeedRepeat.Fast;
+    private long pollInterval = 0; // Own polling interval (ms) when feedRepeat is Interval
     private boolean internal = false;
 
     private CopyOnWriteArrayList<ChannelUID> channels = new CopyOnWriteArrayList<>();
@@ -123,6 +139,87 @@ public class ModbusDataSet {
         this.payload = payload;
     }
 
+    /**
+     * Store a payload received from the unit and mark the bytes that differ from the previous one. Coils are compared
+     * a byte (8 coils) at a time. Registers arrive as a view of the response the frame decoder copied out of its
+     * receive buffer, and the payload keeps that view. The snapshot is copied from it only for the first payload or
+     * one of another size; after that only the changed bytes are written into it, so a poll copies its data once.
+     *
+     * @param payload ByteBuffer or byte[] of registers or BitVector of coils
+     * @return true if any byte changed
+     */
+    public boolean updatePayload(Object payload) {
+        this.payload = payload;
+        ByteBuffer data = (payload instanceof BitVector) ? ByteBuffer.wrap(((BitVector) payload).getBytes())
+                : (payload instanceof ByteBuffer || payload instanceof byte[]) ? Register.registerView(payload) : null;
+        changed.clear();
+
+        byte[] previous = snapshot;
+        if (data == null || previous == null || previous.length != data.limit()) {
+            allChanged = true;
+            snapshot = (data != null) ? Register.copyOfRange(data, 0, data.limit()) : null;
+            return true;
+        }
+        allChanged = false;
+        for (int i = 0; i < previous.length; i++) {
+            byte value = data.get(i);
+            if (value != previous[i]) {
+                changed.set(i);
+                previous[i] = value;
+            }
+        }
+        return !changed.isEmpty();
+    }
+
+    /**
+     * @return true if the last payload is the first one, has another size than before or is not made of bytes
+     */
+    public boolean isAllChanged() {
+        return allChanged;
+    }
+
+    /**
+     * @return the channels converted from bytes that changed with the last payload
+     */
+    public Collection<ChannelUID> getChangedChannels() {
+        byte[] data = snapshot;
+        if (allChanged || data == null) {
+            return channels;
+        }
+        ChannelUID[][] index = channelIndex;
+        if (index == null || index.length != data.length) {
+            index = buildChannelIndex(data.length);
+        }
+        Set<ChannelUID> changedChannels = new LinkedHashSet<>();
+        for (int i = changed.nextSetBit(0); i >= 0 && i < index.length; i = changed.nextSetBit(i + 1)) {
+            for (ChannelUID uid : index[i]) {
+                changedChannels.add(uid);
+            }
+        }
+        return changedChannels;
+    }
+
+    private ChannelUID[][] buildChannelIndex(int size) {
+        ChannelUID[][] index = new ChannelUID[size][];
+        int[] count = new int[size];
+        for (int[] window : channelWindows.values()) {
+            for (int i = Math.max(0, window[0]); i < Math.min(size, window[1]); i++) {
+                count[i]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            index[i] = new ChannelUID[count[i]];
+            count[i] = 0;
+        }
+        channelWindows.forEach((uid, window) -> {
+            for (int i = Math.max(0, window[0]); i < Math.min(size, window[1]); i++) {
+                index[i][count[i]++] = uid;
+            }
+        });
+        channelIndex = index;
+        return index;
+    }
+
     public ThingUID getThingUID() {
         return thingUID;
     }
@@ -159,6 +256,22 @@ public class ModbusDataSet {
      * @return true on channelUID added successfully
      */
     public boolean addChannel(ChannelUID uid) {
+        return addChannel(uid, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Add a channel converted from part of the payload
+     *
+     * @param uid
+     * @param from first byte of the payload used by the channel
+     * @param to byte after the last one used by the channel
+     * @return true on channelUID added successfully
+     */
+    public boolean addChannel(ChannelUID uid, int from, int to) {
+        channelWindows.put(uid, new int[] { from, to });
+        channelIndex = null;
+        // Convert all channels on the next payload, so the new one gets a state
+        snapshot = null;
         return this.channels.add(uid);
     }
 
@@ -169,6 +282,8 @@ public class ModbusDataSet {
      * @return true on channelUID removed successfully
      */
     public boolean removeChannel(ChannelUID uid) {
+        channelWindows.remove(uid);
+        channelIndex = null;
         return this.channels.remove(uid);
     }
 
@@ -238,4 +353,15 @@ public class ModbusDataSet {
     public ModbusFeedRepeat getFeedRepeat() {
         return feedRepeat;
     }
+
+    /**
+     * @return polling interval in milliseconds, only used when feedRepeat is Interval
+     */
+    public long getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
 }
@@ -12,19 +12,31 @@
  */
 package org.openhab.binding.zmartmodbus.internal.factory;
 
+import static org.openhab.binding.zmartmodbus.ModbusBindingConstants.ID_NOT_USED;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Map.Entry;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.ThingUID;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusReportOn;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusValueClass;
 import org.openhab.binding.zmartmodbus.internal.controller.ModbusThingChannel;
+import org.openhab.binding.zmartmodbus.internal.protocol.converter.ModbusBaseConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 /**
+ * The datasets and channels of a bridge.
+ *
+ * Datasets are kept in an array indexed by their dataSetId, together with their keys, so both lookups by id are a
+ * plain array access. The array is copied on every change (datasets are only added and removed with things) and
+ * readers always see a complete snapshot without locking. Ids of removed datasets are handed out again, the longest
+ * free first.
+ *
  * @author  Peter Kristensen, Zmartify - Initial contribution
  * 
  */
@@ -32,13 +44,58 @@ public class ModbusDataSets {
 
     private Logger logger = LoggerFactory.getLogger(ModbusDataSets.class);
 
-    private AtomicInteger dataSetCounter = new AtomicInteger(0);
+    /**
+     * Snapshot of the datasets, never changed once published
+     */
+    private static final class Registry {
+        final ModbusDataSet[] dataSets; // indexed by dataSetId, null if removed
+        final String[] keys; // key of each dataSet
+        final List<ModbusDataSet> values;
+        final List<List<ModbusDataSet>> byElementId; // indexed by elementId
+        final List<List<ModbusDataSet>> byChannelId; // indexed by channelId, datasets without element only
 
-    // Maintains a list of dataSetKeys (string name of dataset)
-    private static ConcurrentHashMap<String, Integer> dataSetList = new ConcurrentHashMap<String, Integer>();
+        Registry(ModbusDataSet[] dataSets, String[] keys) {
+            this.dataSets = dataSets;
+            this.keys = keys;
+            List<ModbusDataSet> values = new ArrayList<>();
+            List<List<ModbusDataSet>> byElementId = new ArrayList<>();
+            List<List<ModbusDataSet>> byChannelId = new ArrayList<>();
+            for (ModbusDataSet dataSet : dataSets) {
+                if (dataSet != null) {
+                    values.add(dataSet);
+                    if (dataSet.getElementId() != ID_NOT_USED) {
+                        index(byElementId, dataSet.getElementId(), dataSet);
+                    } else {
+                        index(byChannelId, dataSet.getChannelId(), dataSet);
+                    }
+                }
+            }
+            this.values = Collections.unmodifiableList(values);
+            this.byElementId = byElementId;
+            this.byChannelId = byChannelId;
+        }
 
-    // The dataSets lookup list
-    private ConcurrentHashMap<Integer, ModbusDataSet> dataSets = new ConcurrentHashMap<Integer, ModbusDataSet>();
+        private static void index(List<List<ModbusDataSet>> index, int id, ModbusDataSet dataSet) {
+            if (id < 0) {
+                return;
+            }
+            while (index.size() <= id) {
+                index.add(new ArrayList<>(1));
+            }
+            index.get(id).add(dataSet);
+        }
+
+        static List<ModbusDataSet> lookup(List<List<ModbusDataSet>> index, int id) {
+            return (id >= 0 && id < index.size()) ? Collections.unmodifiableList(index.get(id))
+                    : Collections.emptyList();
+        }
+    }
+
+    private volatile Registry registry = new Registry(new ModbusDataSet[0], new String[0]);
+
+    // dataSetKey (string name of dataset) to dataSetId. Ids of removed datasets are never handed out again, actions
+    // and messages still carrying one must not reach a dataset added later.
+    private final ConcurrentHashMap<String, Integer> dataSetIds = new ConcurrentHashMap<String, Integer>();
 
     // The channel to modbus channel lookup
     private ConcurrentHashMap<ChannelUID, ModbusThingChannel> channels = new ConcurrentHashMap<ChannelUID, ModbusThingChannel>();
@@ -81,7 +138,9 @@ public class ModbusDataSets {
                     channel.setReportOn(getDataSet(dataSetId).getReportOn());
                 }
                 // Add it to the dataset for lookup and save it in the channels map
-                getDataSet(dataSetId).addChannel(channel.getUID());
+                channel.setDecoder(ModbusBaseConverter.compileDecoder(channel));
+                int[] window = ModbusBaseConverter.payloadWindow(channel);
+                getDataSet(dataSetId).addChannel(channel.getUID(), window[0], window[1]);
                 channels.put(channel.getUID(), channel);
             }
         }
@@ -128,16 +187,19 @@ public class ModbusDataSets {
      * @param dataSet
      */
     public void addDataSet(String dataSetKey, ModbusDataSet dataSet) {
-        synchronized (dataSetList) {
-            if (!dataSetList.containsKey(dataSetKey)) {
-                synchronized (dataSets) {
-                    int dataSetId = dataSetCounter.getAndIncrement();
-                    dataSetList.put(dataSetKey, dataSetId);
-                    dataSet.setDataSetId(dataSetId);
-                    dataSets.put(dataSetId, dataSet);
-                }
+        synchronized (dataSetIds) {
+            if (dataSetIds.containsKey(dataSetKey)) {
+                return;
             }
-
+            Registry current = registry;
+            int dataSetId = current.dataSets.length;
+            ModbusDataSet[] dataSets = Arrays.copyOf(current.dataSets, dataSetId + 1);
+            String[] keys = Arrays.copyOf(current.keys, dataSetId + 1);
+            dataSets[dataSetId] = dataSet;
+            keys[dataSetId] = dataSetKey;
+            dataSet.setDataSetId(dataSetId);
+            registry = new Registry(dataSets, keys);
+            dataSetIds.put(dataSetKey, dataSetId);
         }
     }
 
@@ -148,16 +210,19 @@ public class ModbusDataSets {
      * @return
      */
     public ModbusDataSet getDataSet(int dataSetId) {
-        return dataSets.get(dataSetId);
+        ModbusDataSet[] dataSets = registry.dataSets;
+        return (dataSetId >= 0 && dataSetId < dataSets.length) ? dataSets[dataSetId] : null;
     }
 
+    /**
+     * Return dataSetKey based on dataSetId
+     *
+     * @param dataSetId
+     * @return the key or null if there is no such dataSet (any more)
+     */
     public String getDataSetKey(int dataSetId) {
-        for (Entry<String, Integer> keySet : dataSetList.entrySet() ) {
-            if (keySet.getValue().equals(dataSetId)) {
-                return keySet.getKey();
-            }
-        }
-        return "UNKNOWN";
+        String[] keys = registry.keys;
+        return (dataSetId >= 0 && dataSetId < keys.length) ? keys[dataSetId] : null;
     }
 
     /**
@@ -167,11 +232,7 @@ public class ModbusDataSets {
      * @return
      */
     public ModbusDataSet getDataSet(String dataSetKey) {
-        return dataSets.get(dataSetList.get(dataSetKey));
-    }
-
-    public ConcurrentHashMap<String, Integer> getDataSetList() {
-        return dataSetList;
+        return getDataSet(getDataSetId(dataSetKey));
     }
 
     /**
@@ -180,8 +241,29 @@ public class ModbusDataSets {
      * @param dataSetKey
      * @return
      */
-    public static int getDataSetId(String dataSetKey) {
-        return dataSetList.getOrDefault(dataSetKey, -1);
+    public int getDataSetId(String dataSetKey) {
+        return dataSetIds.getOrDefault(dataSetKey, -1);
+    }
+
+    /**
+     * Return the dataSets of a Jablotron element. The element and channel of a dataSet are taken when it is added.
+     *
+     * @param elementId
+     * @return
+     */
+    public List<ModbusDataSet> getDataSetsByElementId(int elementId) {
+        return Registry.lookup(registry.byElementId, elementId);
+    }
+
+    /**
+     * Return the dataSets of a Jablotron channel which do not belong to an element, {@code ID_NOT_USED} gives the
+     * dataSets of the controller itself
+     *
+     * @param channelId
+     * @return
+     */
+    public List<ModbusDataSet> getDataSetsByChannelId(int channelId) {
+        return Registry.lookup(registry.byChannelId, channelId);
     }
 
     /**
@@ -190,7 +272,7 @@ public class ModbusDataSets {
      * @return
      */
     public Collection<ModbusDataSet> getDataSets() {
-        return dataSets.values();
+        return registry.values;
     }
 
     /**
@@ -199,17 +281,22 @@ public class ModbusDataSets {
      * @param nodeId
      */
     public void removeDataSets(ThingUID thingUID) {
-        synchronized (dataSets) {
-            dataSets.values().forEach(dataSet -> {
-                if (dataSet.getThingUID().equals(thingUID)) {
-                    for (Entry<String, Integer> dataSetListEntry : dataSetList.entrySet()) {
-                        if (dataSetListEntry.getValue() == dataSet.getDataSetId()) {
-                            dataSetList.remove(dataSetListEntry.getKey());
-                        }
-                    }
-                    dataSets.remove(dataSet.getDataSetId());
+        synchronized (dataSetIds) {
+            Registry current = registry;
+            ModbusDataSet[] dataSets = current.dataSets.clone();
+            String[] keys = current.keys.clone();
+            boolean removed = false;
+            for (int dataSetId = 0; dataSetId < dataSets.length; dataSetId++) {
+                if (dataSets[dataSetId] != null && dataSets[dataSetId].getThingUID().equals(thingUID)) {
+                    dataSetIds.remove(keys[dataSetId]);
+                    dataSets[dataSetId] = null;
+                    keys[dataSetId] = null;
+                    removed = true;
                 }
-            });
+            }
+            if (removed) {
+                registry = new Registry(dataSets, keys);
+            }
         }
     }
 }
@@ -14,7 +14,12 @@ package org.openhab.binding.zmartmodbus.internal.factory;
 
 import static org.openhab.binding.zmartmodbus.ModbusBindingConstants.ID_NOT_USED;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.thing.ChannelUID;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionClass;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusFeedRepeat;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusReportOn;
@@ -22,7 +27,10 @@ import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusValueClass;
 import org.openhab.binding.zmartmodbus.internal.controller.ModbusThingChannel;
 import org.openhab.binding.zmartmodbus.internal.listener.ActionListener;
 import org.openhab.binding.zmartmodbus.internal.listener.StateListener;
+import org.openhab.binding.zmartmodbus.internal.protocol.ModbusCounters;
 import org.openhab.binding.zmartmodbus.internal.protocol.converter.ModbusBaseConverter;
+import org.openhab.binding.zmartmodbus.internal.protocol.converter.ModbusChannelDecoder;
+import org.openhab.binding.zmartmodbus.internal.protocol.converter.ModbusRawDecoder;
 import org.openhab.binding.zmartmodbus.internal.streams.ModbusAction;
 import org.openhab.binding.zmartmodbus.internal.streams.ModbusMessage;
 import org.openhab.binding.zmartmodbus.internal.streams.ModbusState;
@@ -51,43 +59,47 @@ public class ModbusFactory {
     @Nullable
     private ActionListener actionSubscriber = null;
 
+    private ModbusCounters counters = new ModbusCounters();
+
     public ModbusFactory() {
     }
 
+    public void setCounters(final ModbusCounters counters) {
+        this.counters = counters;
+    }
+
     public void requestDataSetUpdateByElementId(final int elementId) {
-        for (final ModbusDataSet dataSet : dataSets.getDataSets()) {
-            if (dataSet.getElementId() == elementId) {
-                // Initiate a read of all the dataSet information to check for updates
-                actionSubscriber.modbusAction(new ModbusAction(dataSet, ModbusActionClass.Read, ModbusFeedRepeat.Once));
-            }
-        }
+        requestDataSetUpdate(dataSets.getDataSetsByElementId(elementId));
     }
 
     public void requestDataSetUpdateByChannelId(final int channelId) {
-        for (final ModbusDataSet dataSet : dataSets.getDataSets()) {
-            if (dataSet.getChannelId() == channelId) {
-                // only update pure channels, elements will get update anyway via ElementID
-                if (dataSet.getElementId() == ID_NOT_USED) {
-                    // Initiate a read of all the dataSet information to check for updates
-                    actionSubscriber
-                            .modbusAction(new ModbusAction(dataSet, ModbusActionClass.Read, ModbusFeedRepeat.Once));
-                }
-            }
-        }
+        // only update pure channels, elements will get update anyway via ElementID
+        requestDataSetUpdate(dataSets.getDataSetsByChannelId(channelId));
     }
 
     public void requestDataSetUpdateController() {
-        // Update all channels, which are not linked to element or channel --->
-        // controller
-        for (final ModbusDataSet dataSet : dataSets.getDataSets()) {
-            if (dataSet.getChannelId() == ID_NOT_USED) {
-                // only update pure channels, elements will get update anyway via ElementID
-                if (dataSet.getElementId() == ID_NOT_USED) {
-                    // Initiate a read of all the dataSet information to check for updates
-                    actionSubscriber
-                            .modbusAction(new ModbusAction(dataSet, ModbusActionClass.Read, ModbusFeedRepeat.Once));
-                }
-            }
+        // Update all channels, which are not linked to element or channel ---> controller
+        requestDataSetUpdate(dataSets.getDataSetsByChannelId(ID_NOT_USED));
+    }
+
+    private void requestDataSetUpdate(final List<ModbusDataSet> dataSetList) {
+        final List<ModbusAction> batch = new ArrayList<>(dataSetList.size());
+        addReads(batch, dataSetList);
+        submit(batch);
+    }
+
+    /**
+     * Add a read of all the dataSet information to check for updates
+     */
+    private static void addReads(final List<ModbusAction> batch, final List<ModbusDataSet> dataSetList) {
+        for (final ModbusDataSet dataSet : dataSetList) {
+            batch.add(new ModbusAction(dataSet, ModbusActionClass.Read, ModbusFeedRepeat.Once));
+        }
+    }
+
+    private void submit(final List<ModbusAction> batch) {
+        if (!batch.isEmpty()) {
+            actionSubscriber.modbusActions(batch);
         }
     }
 
@@ -162,84 +174,138 @@ public class ModbusFactory {
 
             @Override
             public void onNext(final ModbusMessage modbusMessage) {
-                final int dataSetId = modbusMessage.getDataSetId();
-                if (dataSets.getDataSet(dataSetId).getReportOn().equals(ModbusReportOn.Change)) {
-                    if (!dataSets.getDataSet(dataSetId).getPayload().equals(modbusMessage.getPayload())) {
-                        // Update as there is a change
-                        updateDataSet(modbusMessage);
-                    }
-                } else {
-                    // Always update
-                    updateDataSet(modbusMessage);
-                }
+                updateDataSet(modbusMessage);
             }
         };
     }
 
     /**
      * updateDataSet - performs the actual update of datasets received by the
-     * Observer from Modbus
+     * Observer from Modbus. Only channels whose bytes changed are converted again,
+     * the others keep (and if reported always, report) their last state.
      *
      * @param modbusMessage
      */
     public void updateDataSet(final ModbusMessage modbusMessage) {
 
         synchronized (dataSets) {
-            dataSets.getDataSet(modbusMessage.getDataSetId()).getChannels().forEach(uid -> {
-                final ModbusThingChannel channel = dataSets.getChannel(uid);
-                BitVector payload = null;
-                // Handle special datasets
-                switch (channel.getValueClass()) {
-                case Jablotron_elementChangeFlags:
-                    payload = (BitVector) modbusMessage.getPayload();
-                    logger.debug("elementChangeFlags: {}", payload.toString());
-                    for (int elementId = 0; elementId < 48; elementId++) {
-                        if (payload.getBit(elementId)) {
-                            requestDataSetUpdateByElementId(elementId);
-                        }
-                    }
-                    break;
-                case Jablotron_channelChangeFlags:
-                    payload = (BitVector) modbusMessage.getPayload();
-                    logger.debug("channelChangeFlags: {}", payload.toString());
-                    for (int channelId = 0; channelId < 16; channelId++) {
-                        if (payload.getBit(channelId)) {
-                            requestDataSetUpdateByChannelId(channelId);
-                        }
-                    }
-                    if (payload.getBit(16)) {
-                        requestDataSetUpdateController();
-                    }
-                    break;
-                case Jablotron_packetdataChangeFlags:
-                    payload = (BitVector) modbusMessage.getPayload();
-                    logger.debug("packetdataChangeFlags: {}", payload.toString());
-                    for (int channelId = 0; channelId < 16; channelId++) {
-                        if (payload.getBit(channelId)) {
-                            // requestDataSetUpdateByChannelId(channelId);
+            final ModbusDataSet dataSet = dataSets.getDataSet(modbusMessage.getDataSetId());
+            if (dataSet == null) {
+                // Thing removed while the message was on its way
+                return;
+            }
+            // Save payload for change control
+            dataSet.updatePayload(modbusMessage.getPayload());
+            if (dataSet.isAllChanged() || hasChangeFlags(dataSet)) {
+                dataSet.getChannels().forEach(uid -> updateChannel(uid, modbusMessage.getPayload()));
+                return;
+            }
+
+            // Convert the channels of the changed bytes only
+            final Collection<ChannelUID> changedChannels = dataSet.getChangedChannels();
+            changedChannels.forEach(uid -> updateChannel(uid, modbusMessage.getPayload()));
+
+            // Same bytes give the same state
+            if (dataSet.getReportOn().equals(ModbusReportOn.Always)) {
+                dataSet.getChannels().forEach(uid -> {
+                    if (!changedChannels.contains(uid)) {
+                        final ModbusThingChannel channel = dataSets.getChannel(uid);
+                        counters.incrementSkippedConversionCounter();
+                        channel.updateState(channel.getState());
+                        if (channel.getReportOn().equals(ModbusReportOn.Always)) {
+                            stateSubscriber.modbusState(new ModbusState(uid, channel.getState()));
                         }
                     }
-                    if (payload.getBit(16)) {
-                        logger.info("*** PACKETDATA CHANGE ON CONTROLLER SIDE ***");
-                    }
+                });
+            } else {
+                counters.addSkippedConversions(dataSet.getChannels().size() - changedChannels.size());
+            }
+        }
+    }
 
-                    break;
+    /**
+     * Convert the payload of a channel and report the new state
+     */
+    private void updateChannel(final ChannelUID uid, final Object modbusPayload) {
+        final ModbusThingChannel channel = dataSets.getChannel(uid);
+        BitVector payload = null;
+        // Handle special datasets
+        switch (channel.getValueClass()) {
+        case Jablotron_elementChangeFlags:
+            payload = (BitVector) modbusPayload;
+            logger.debug("elementChangeFlags: {}", payload.toString());
+            final List<ModbusAction> elementReads = new ArrayList<>();
+            for (int elementId = payload.nextSetBit(0); elementId >= 0
+                    && elementId < 48; elementId = payload.nextSetBit(elementId + 1)) {
+                addReads(elementReads, dataSets.getDataSetsByElementId(elementId));
+            }
+            submit(elementReads);
+            break;
+        case Jablotron_channelChangeFlags:
+            payload = (BitVector) modbusPayload;
+            logger.debug("channelChangeFlags: {}", payload.toString());
+            final List<ModbusAction> channelReads = new ArrayList<>();
+            for (int channelId = payload.nextSetBit(0); channelId >= 0
+                    && channelId < 16; channelId = payload.nextSetBit(channelId + 1)) {
+                addReads(channelReads, dataSets.getDataSetsByChannelId(channelId));
+            }
+            if (payload.getBit(16)) {
+                addReads(channelReads, dataSets.getDataSetsByChannelId(ID_NOT_USED));
+            }
+            submit(channelReads);
+            break;
+        case Jablotron_packetdataChangeFlags:
+            payload = (BitVector) modbusPayload;
+            logger.debug("packetdataChangeFlags: {}", payload.toString());
+            for (int channelId = 0; channelId < 16; channelId++) {
+                if (payload.getBit(channelId)) {
+                    // requestDataSetUpdateByChannelId(channelId);
+                }
+            }
+            if (payload.getBit(16)) {
+                logger.info("*** PACKETDATA CHANGE ON CONTROLLER SIDE ***");
+            }
 
-                default:
-                    // Handle normal situations
-                    channel.updateState(ModbusBaseConverter.fromModbusToState(channel, modbusMessage.getPayload()));
-                    if (channel.stateChanged() || channel.getReportOn().equals(ModbusReportOn.Always)) {
+            break;
+
+        default:
+            // Handle normal situations
+            final ModbusChannelDecoder decoder = channel.getDecoder();
+            final boolean always = channel.getReportOn().equals(ModbusReportOn.Always);
+            if (decoder instanceof ModbusRawDecoder) {
+                // Compare the raw number first, an unchanged number gives the same state
+                final ModbusRawDecoder rawDecoder = (ModbusRawDecoder) decoder;
+                final long raw = rawDecoder.raw(modbusPayload);
+                if (!channel.updateRaw(raw)) {
+                    counters.incrementSkippedConversionCounter();
+                    channel.updateState(channel.getState());
+                    if (always) {
                         stateSubscriber.modbusState(new ModbusState(uid, channel.getState()));
                     }
+                    break;
                 }
-            });
-            // Save payload for change control
-            dataSets.getDataSet(modbusMessage.getDataSetId()).setPayload(modbusMessage.getPayload());
+                channel.updateState(rawDecoder.toState(raw));
+            } else {
+                channel.updateState(decoder.decode(modbusPayload));
+            }
+            if (channel.stateChanged() || always) {
+                stateSubscriber.modbusState(new ModbusState(uid, channel.getState()));
+            }
         }
     }
 
+    /**
+     * Change flags request updates every time they are read, also when they are the same as last time
+     */
+    private boolean hasChangeFlags(final ModbusDataSet dataSet) {
+        return dataSet.getChannels().stream().map(uid -> dataSets.getChannel(uid).getValueClass())
+                .anyMatch(valueClass -> valueClass == ModbusValueClass.Jablotron_elementChangeFlags
+                        || valueClass == ModbusValueClass.Jablotron_channelChangeFlags
+                        || valueClass == ModbusValueClass.Jablotron_packetdataChangeFlags);
+    }
+
     public int getDataSetId(final String dataSetKey) {
-        return dataSets.getDataSetList().getOrDefault(dataSetKey, -1);
+        return dataSets.getDataSetId(dataSetKey);
     }
 
     public ModbusDataSets getDataSets() {
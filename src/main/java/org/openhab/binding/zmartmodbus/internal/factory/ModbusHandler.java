@@ -17,23 +17,27 @@ import static org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionCla
 import static org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionClass.Write;
 import static org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusFeedRepeat.Once;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusFeedRepeat;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusMessageClass;
 import org.openhab.binding.zmartmodbus.handler.ModbusBridgeHandler;
 import org.openhab.binding.zmartmodbus.handler.ModbusThingHandler;
 import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolException;
 import org.openhab.binding.zmartmodbus.internal.listener.ActionListener;
 import org.openhab.binding.zmartmodbus.internal.listener.MessageListener;
-import org.openhab.binding.zmartmodbus.internal.protocol.ModbusCommEvent;
 import org.openhab.binding.zmartmodbus.internal.protocol.ModbusFunction;
 import org.openhab.binding.zmartmodbus.internal.streams.ModbusAction;
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusActionBlock;
 import org.openhab.binding.zmartmodbus.internal.streams.ModbusMessage;
 import org.openhab.binding.zmartmodbus.internal.util.BitVector;
+import org.openhab.binding.zmartmodbus.internal.util.Register;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import io.reactivex.Observer;
-import io.reactivex.disposables.Disposable;
-
 /**
  * @author Peter Kristensen - Initial contribution
  *
@@ -43,6 +47,8 @@ public class ModbusHandler {
 
     private Logger logger = LoggerFactory.getLogger(ModbusHandler.class);
 
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
     @Nullable
     private ModbusBridgeHandler bridgeHandler;
     @Nullable
@@ -53,154 +59,193 @@ public class ModbusHandler {
     public ModbusHandler() {
     }
 
-    public Observer<ModbusAction> modbusCommunicator() {
-        return new Observer<ModbusAction>() {
-            // Set listening flag - can be turned off to stop listening
+    /**
+     * Send an action to the bus and hand the data read on as messages. Runs on the bus thread, the response is
+     * handled on the thread completing the transaction.
+     *
+     * @return completed when the action is done, also when it failed
+     */
+    public CompletableFuture<Void> communicate(ModbusAction modbusAction) {
+        logger.trace("Received modbusAction: {}", modbusAction);
+        if (bridgeHandler == null) {
+            logger.error("BridgeHandler not set");
+            return DONE;
+        }
+        ModbusThingHandler modbusThingHandler = (ModbusThingHandler) getBridgeHandler()
+                .getThingHandlerByUID(modbusAction.getThingUID());
+        int unitAddress = modbusThingHandler.getId();
+        ModbusFunction modbusFunction = modbusThingHandler.getModbusFunction();
 
-            @Override
-            public void onSubscribe(Disposable d) {
-                logger.debug(" onSubscribe : {}", d.isDisposed());
-            }
+        if (!bridgeHandler.isConnected()) {
+            logger.error("Not CONNECTED - ModbusAction discarded");
+            return DONE;
+        }
 
-            @Override
-            public void onNext(ModbusAction modbusAction) {
-                logger.trace("Received modbusAction: {}", modbusAction);
-                if (bridgeHandler == null) {
-                    logger.error("BridgeHandler not set");
-                    return;
-                }
-                Object payload = null;
-                @SuppressWarnings("unused")
-                ModbusCommEvent commEvent = null;
-                ModbusThingHandler modbusThingHandler = (ModbusThingHandler) getBridgeHandler()
-                        .getThingHandlerByUID(modbusAction.getThingUID());
-                int unitAddress = modbusThingHandler.getId();
-                ModbusFunction modbusFunction = modbusThingHandler.getModbusFunction();
-
-                try {
-
-                    if (!bridgeHandler.isConnected()) {
-                        logger.error("Not CONNECTED - ModbusAction discarded");
+        CompletableFuture<?> transaction = DONE;
+        if (modbusAction instanceof ModbusActionBlock) {
+            transaction = readBlock(modbusFunction, unitAddress, (ModbusActionBlock) modbusAction);
+        } else if (modbusAction.getActionClass().equals(Read)) {
+            CompletableFuture<?> payload = null;
+            switch (modbusAction.getMessageClass()) {
+                case Coil:
+                    payload = modbusFunction.readCoilsAsync(unitAddress, modbusAction.getStart(),
+                            modbusAction.getOffset(), modbusAction.getLength());
+                    break;
+                case Discrete:
+                    payload = modbusFunction.readDiscreteInputsAsync(unitAddress, modbusAction.getStart(),
+                            modbusAction.getOffset(), modbusAction.getLength());
+                    break;
+                case Holding:
+                    payload = modbusFunction.readHoldingRegistersAsync(unitAddress, modbusAction.getStart(),
+                            modbusAction.getLength());
+                    break;
+                case Input:
+                    payload = modbusFunction.readInputRegistersAsync(unitAddress, modbusAction.getStart(),
+                            modbusAction.getLength());
+                    break;
+                default:
+                    break;
+            }
+            if (payload != null) {
+                transaction = payload.thenAccept(data -> messageSubscriber.modbusMessage(new ModbusMessage(
+                        modbusAction.getDataSetId(), data, modbusAction.isInternal(), isPeriodic(modbusAction))));
+            }
+        } else if (modbusAction.getActionClass().equals(Write)) {
+            switch (modbusAction.getMessageClass()) {
+                case Coil:
+                    if (modbusAction.getLength() <= 1) {
+                        transaction = modbusFunction.writeSingleCoilAsync(unitAddress, modbusAction.getStart(),
+                                modbusAction.getOffset(), (boolean) modbusAction.getPayload());
                     } else {
-                        if (modbusAction.getActionClass().equals(Read)) {
-                            switch (modbusAction.getMessageClass()) {
-                            case Coil:
-                                payload = modbusFunction.readCoils(unitAddress, modbusAction.getStart(),
-                                        modbusAction.getOffset(), modbusAction.getLength());
-                                break;
-                            case Discrete:
-                                payload = modbusFunction.readDiscreteInputs(unitAddress, modbusAction.getStart(),
-                                        modbusAction.getOffset(), modbusAction.getLength());
-                                break;
-                            case Holding:
-                                payload = modbusFunction.readHoldingRegisters(unitAddress, modbusAction.getStart(),
-                                        modbusAction.getLength());
-                                break;
-                            case Input:
-                                payload = modbusFunction.readInputRegisters(unitAddress, modbusAction.getStart(),
-                                        modbusAction.getLength());
-                                break;
-                            default:
-                                break;
-                            }
-                            if (payload != null) {
-                                messageSubscriber.modbusMessage(new ModbusMessage(modbusAction.getDataSetId(), payload,
-                                        modbusAction.isInternal()));
-                            }
-                        } else if (modbusAction.getActionClass().equals(Write)) {
-                            switch (modbusAction.getMessageClass()) {
-                            case Coil:
-                                if (modbusAction.getLength() <= 1) {
-                                    modbusFunction.writeSingleCoil(unitAddress, modbusAction.getStart(),
-                                            modbusAction.getOffset(), (boolean) modbusAction.getPayload());
-                                } else {
-                                    BitVector b = new BitVector(modbusAction.getLength());
-                                    b.setByte(0, ((byte[]) modbusAction.getPayload())[1]);
-                                    modbusFunction.writeMultipleCoils(unitAddress, modbusAction.getStart(),
-                                            modbusAction.getOffset(), b);
-                                }
-                                break;
-                            case Holding:
-                                modbusFunction.writeMultipleRegisters(unitAddress,
-                                        modbusAction.getStart() + modbusAction.getOffset(),
-                                        ((byte[]) modbusAction.getPayload()));
-                                break;
-                            case SetLogicalAddress:
-                                modbusFunction.setLogicalAddress(unitAddress);
-                                break;
-                            default:
-                                logger.warn("NODE {}: Wrong messageClass for writing {} ({})",
-                                        modbusAction.getThingUID(), modbusAction.getMessageClass(),
-                                        modbusAction.getDataSetId());
-                                break;
-                            }
-                        } else if (modbusAction.getActionClass().equals(Status)) {
-                            switch (modbusAction.getMessageClass()) {
-                            case GetCommEventCounter:
-                                commEvent = modbusFunction.getCommEventCounter(unitAddress);
-                                break;
-                            case GetCommEventLog:
-                                commEvent = modbusFunction.getCommEventLog(unitAddress);
-                                break;
-                            case ReadExceptionStatus:
-                                payload = modbusFunction.readExceptionStatus(unitAddress);
-                                break;
-                            default:
-                                logger.warn("Unsupported ModbusFunction function");
-                                break;
-                            }
-                        }
+                        BitVector b = new BitVector(modbusAction.getLength());
+                        b.setByte(0, ((byte[]) modbusAction.getPayload())[1]);
+                        transaction = modbusFunction.writeMultipleCoilsAsync(unitAddress, modbusAction.getStart(),
+                                modbusAction.getOffset(), b);
                     }
-
-                } catch (ModbusProtocolException e) {
-                    switch (e.getCode()) {
-                    case RESPONSE_TIMEOUT:
-                        // Check for possible retries (automatically counts # of retries)
-                        if (modbusAction.retry()) {
-                            // As this is a retry, only run once
-                            modbusAction.setFeedRepeat(Once);
-                            // Add it to the action feed
-                            actionSubscriber.modbusAction(modbusAction);
-                        } else {
-                            logger.error("Response TimeOut: {}", e.getMessage());
-                            getBridgeHandler().getCounters().incrementFailedCounter();
-                        }
-                        break;
-                    case TRANSACTION_FAILURE:
-                    case INVALID_CONFIGURATION:
-                    case INVALID_DATA_ADDRESS:
-                    case INVALID_DATA_LENGTH:
-                    case INVALID_DATA_TYPE:
-                        logger.error("Modbus error: {} {}", e.getCode(), e.getMessage());
-                        break;
-                    case NOT_CONNECTED:
-                        logger.error("Modbus unit ({}) NOT CONNECTED", unitAddress);
-                        break;
-                    case CONNECTION_FAILURE:
-                        logger.error("Connection failure: {} {}", e.getCause(), e.getMessage());
-                        getBridgeHandler().getTransceiver().disconnect();
-                        break;
-                    default:
-                        logger.error("We got an exception in ModbusCommunicator ({}) {}", e.getCode(),
-                                e.getCode().name());
-                        break;
-                    }
-                } catch (Exception e) {
-                    logger.error("EXCEPTION: {} {}", e.getMessage(), e.getStackTrace());
-                }
+                    break;
+                case Holding:
+                    transaction = modbusFunction.writeMultipleRegistersAsync(unitAddress,
+                            modbusAction.getStart() + modbusAction.getOffset(), ((byte[]) modbusAction.getPayload()));
+                    break;
+                case SetLogicalAddress:
+                    transaction = modbusFunction.setLogicalAddressAsync(unitAddress);
+                    break;
+                default:
+                    logger.warn("NODE {}: Wrong messageClass for writing {} ({})", modbusAction.getThingUID(),
+                            modbusAction.getMessageClass(), modbusAction.getDataSetId());
+                    break;
+            }
+        } else if (modbusAction.getActionClass().equals(Status)) {
+            switch (modbusAction.getMessageClass()) {
+                case GetCommEventCounter:
+                    transaction = modbusFunction.getCommEventCounterAsync(unitAddress);
+                    break;
+                case GetCommEventLog:
+                    transaction = modbusFunction.getCommEventLogAsync(unitAddress);
+                    break;
+                case ReadExceptionStatus:
+                    transaction = modbusFunction.readExceptionStatusAsync(unitAddress);
+                    break;
+                default:
+                    logger.warn("Unsupported ModbusFunction function");
+                    break;
             }
+        }
 
-            @Override
-            public void onError(Throwable e) {
-                logger.info("onError {}", e.getMessage());
+        return transaction.handle((result, failure) -> {
+            if (failure != null) {
+                failed(modbusAction, unitAddress,
+                        (failure instanceof CompletionException && failure.getCause() != null) ? failure.getCause()
+                                : failure);
             }
+            return null;
+        });
+    }
 
-            @Override
-            public void onComplete() {
+    private void failed(ModbusAction modbusAction, int unitAddress, Throwable failure) {
+        if (!(failure instanceof ModbusProtocolException)) {
+            logger.error("EXCEPTION: {} {}", failure.getMessage(), failure.getStackTrace());
+            return;
+        }
+        ModbusProtocolException e = (ModbusProtocolException) failure;
+        switch (e.getCode()) {
+            case RESPONSE_TIMEOUT:
+                // Check for possible retries (automatically counts # of retries)
+                // As this is a retry, only run once - periodic actions stay with the feed unchanged
+                ModbusAction retry = (modbusAction.getFeedRepeat() == Once) ? modbusAction : modbusAction.copyOnce();
+                if (retry.retry()) {
+                    getBridgeHandler().getCounters().incrementRetryCounter();
+                    // Add it to the action feed
+                    actionSubscriber.modbusAction(retry);
+                } else {
+                    logger.error("Response TimeOut: {}", e.getMessage());
+                    getBridgeHandler().getCounters().incrementFailedCounter();
+                }
+                break;
+            case TRANSACTION_FAILURE:
+            case INVALID_CONFIGURATION:
+            case INVALID_DATA_ADDRESS:
+            case INVALID_DATA_LENGTH:
+            case INVALID_DATA_TYPE:
+                logger.error("Modbus error: {} {}", e.getCode(), e.getMessage());
+                break;
+            case NOT_CONNECTED:
+                logger.error("Modbus unit ({}) NOT CONNECTED", unitAddress);
+                break;
+            case CONNECTION_FAILURE:
+                logger.error("Connection failure: {} {}", e.getCause(), e.getMessage());
                 getBridgeHandler().getTransceiver().disconnect();
-                logger.info("onComplete");
-            }
-        };
+                break;
+            default:
+                logger.error("We got an exception in ModbusCommunicator ({}) {}", e.getCode(), e.getCode().name());
+                break;
+        }
+    }
+
+    /**
+     * Read a block covering several datasets and split the response into one message per dataset
+     */
+    private CompletableFuture<Void> readBlock(ModbusFunction modbusFunction, int unitAddress, ModbusActionBlock block) {
+        switch (block.getMessageClass()) {
+            case Coil:
+            case Discrete:
+                CompletableFuture<BitVector> bits = (block.getMessageClass() == ModbusMessageClass.Coil)
+                        ? modbusFunction.readCoilsAsync(unitAddress, block.getStart(), 0, block.getLength())
+                        : modbusFunction.readDiscreteInputsAsync(unitAddress, block.getStart(), 0, block.getLength());
+                return bits.thenAccept(data -> {
+                    for (ModbusAction member : block.getMembers()) {
+                        int from = ModbusReadPlanner.address(member) - block.getStart();
+                        messageSubscriber.modbusMessage(new ModbusMessage(member.getDataSetId(),
+                                data.rangeOf(from, from + member.getLength()), member.isInternal(),
+                                isPeriodic(member)));
+                    }
+                });
+            case Holding:
+            case Input:
+                CompletableFuture<ByteBuffer> registers = (block.getMessageClass() == ModbusMessageClass.Holding)
+                        ? modbusFunction.readHoldingRegistersAsync(unitAddress, block.getStart(), block.getLength())
+                        : modbusFunction.readInputRegistersAsync(unitAddress, block.getStart(), block.getLength());
+                return registers.thenAccept(data -> {
+                    for (ModbusAction member : block.getMembers()) {
+                        int from = (member.getStart() - block.getStart()) * 2;
+                        messageSubscriber.modbusMessage(new ModbusMessage(member.getDataSetId(),
+                                Register.registerView(data, from, member.getLength() * 2), member.isInternal(),
+                                isPeriodic(member)));
+                    }
+                });
+            default:
+                logger.warn("NODE {}: Wrong messageClass for block read {}", block.getThingUID(),
+                        block.getMessageClass());
+                return DONE;
+        }
+    }
+
+    /**
+     * @return true if the action, or the one it was copied from for a retry, is read again by the next poll
+     */
+    private static boolean isPeriodic(ModbusAction action) {
+        ModbusFeedRepeat feedRepeat = action.getOrigin().getFeedRepeat();
+        return feedRepeat != Once && feedRepeat != ModbusFeedRepeat.Unknown;
     }
 
     /*
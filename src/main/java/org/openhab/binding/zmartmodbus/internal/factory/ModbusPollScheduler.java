@@ -0,0 +1,370 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.factory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusAction;
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusActionBlock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ModbusPollScheduler} sends periodic actions when they are due. Actions are kept in a priority queue
+ * ordered by their next deadline, and actions sharing an interval are spread evenly over it, so the bus sees a
+ * steady stream of requests instead of bursts.
+ *
+ * A round is skipped while the previous poll of the action still waits for the bus. In adaptive mode the time each
+ * poll holds the bus is measured as well; when the polls ask for more than {@link #TARGET_LOAD} of the bus all
+ * intervals are stretched by the same factor, so the polling rate follows what the bus can actually carry.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public class ModbusPollScheduler {
+
+    private Logger logger = LoggerFactory.getLogger(ModbusPollScheduler.class);
+
+    // Weight of the latest period in the moving average of the actual poll period
+    private static final double PERIOD_SMOOTHING = 0.2;
+
+    // Share of the bus the polls may use in adaptive mode, the rest is left for writes and on-demand reads
+    public static final double TARGET_LOAD = 0.8;
+
+    // Changes to the actions within this time (ms) are planned together
+    static final long REPLAN_DELAY = 100;
+
+    /**
+     * A periodic action and its deadline
+     */
+    private static class PollEntry {
+        final ModbusAction action;
+        final long interval; // nanoseconds
+        long phase; // delay of the second poll, spreads entries sharing an interval
+        long nextDue;
+        boolean started = false;
+        long lastRun = 0; // last poll actually sent
+        double averagePeriod = 0;
+        double serviceTime = 0; // moving average of the time (ns) the poll holds the bus
+        long skipped = 0;
+
+        PollEntry(ModbusAction action, long interval, long nextDue) {
+            this.action = action;
+            this.interval = interval;
+            this.nextDue = nextDue;
+        }
+    }
+
+    private final PriorityQueue<PollEntry> queue = new PriorityQueue<>(
+            Comparator.comparingLong((PollEntry entry) -> entry.nextDue));
+
+    // Entry for every dataset, members of a block share the entry of the block
+    private Map<Integer, PollEntry> dataSetEntries = new HashMap<>();
+
+    private final Consumer<ModbusAction> dispatcher;
+    private Predicate<ModbusAction> pending = action -> false;
+    private ScheduledExecutorService executor = null;
+    private ScheduledFuture<?> task = null;
+    private boolean dispatching = false;
+    private Runnable planner = () -> {
+    };
+    private boolean replanRequested = false;
+    private boolean adaptive = false;
+    private double load = 0;
+    private double stretch = 1;
+
+    /**
+     * @param dispatcher sends an action to the bus
+     */
+    public ModbusPollScheduler(Consumer<ModbusAction> dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * @param pending tells if an action sent earlier still waits for the bus, its next round is then skipped
+     */
+    public synchronized void setPendingCheck(Predicate<ModbusAction> pending) {
+        this.pending = pending;
+    }
+
+    /**
+     * @param planner plans the actions again and hands them to {@link #reschedule(Map)}, called on the scheduler thread
+     */
+    public synchronized void setPlanner(Runnable planner) {
+        this.planner = planner;
+    }
+
+    /**
+     * Ask the planner for new actions on the next tick, at most {@link #REPLAN_DELAY} ms from now. Further requests
+     * before that tick are folded into it.
+     */
+    public synchronized void replanLater() {
+        if (!replanRequested) {
+            replanRequested = true;
+            wakeUp();
+        }
+    }
+
+    /**
+     * @param adaptive stretch the intervals when the polls ask for more than the bus can carry
+     */
+    public synchronized void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        if (!adaptive) {
+            stretch = 1;
+        }
+    }
+
+    /**
+     * Tell the time a poll held the bus
+     *
+     * @param action the action sent
+     * @param nanos time from sending the request until the response was handled
+     */
+    public synchronized void completed(ModbusAction action, long nanos) {
+        PollEntry entry = dataSetEntries.get(action.getDataSetId());
+        if (entry != null && entry.action == action) {
+            entry.serviceTime = (entry.serviceTime == 0) ? nanos
+                    : entry.serviceTime + PERIOD_SMOOTHING * (nanos - entry.serviceTime);
+        }
+    }
+
+    /**
+     * Start sending actions when due
+     */
+    public synchronized void start(ScheduledExecutorService executor) {
+        this.executor = executor;
+        wakeUp();
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        executor = null;
+    }
+
+    /**
+     * Replace the scheduled actions. Actions already scheduled with the same interval keep their deadline, new
+     * actions are due now and spread over their interval from the second poll.
+     *
+     * @param actionsByInterval actions to send, keyed by polling interval in milliseconds
+     */
+    public synchronized void reschedule(Map<Long, List<ModbusAction>> actionsByInterval) {
+        long now = System.nanoTime();
+        Map<Integer, PollEntry> entries = new HashMap<>();
+        queue.clear();
+
+        actionsByInterval.forEach((intervalMillis, actions) -> {
+            long interval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            for (int i = 0; i < actions.size(); i++) {
+                ModbusAction action = actions.get(i);
+                PollEntry entry = new PollEntry(action, interval, now);
+                entry.phase = interval * i / actions.size();
+
+                PollEntry previous = dataSetEntries.get(action.getDataSetId());
+                if (previous != null && previous.interval == interval) {
+                    entry.nextDue = previous.nextDue;
+                    entry.lastRun = previous.lastRun;
+                    entry.started = previous.started;
+                    entry.averagePeriod = previous.averagePeriod;
+                    entry.serviceTime = previous.serviceTime;
+                    entry.skipped = previous.skipped;
+                }
+                queue.add(entry);
+                for (ModbusAction member : members(action)) {
+                    entries.put(member.getDataSetId(), entry);
+                }
+            }
+        });
+        dataSetEntries = entries;
+        logger.debug("Scheduled {} periodic actions", queue.size());
+        wakeUp();
+    }
+
+    /**
+     * Send all due actions and schedule the next run at the following deadline
+     */
+    private void run() {
+        List<ModbusAction> due = new ArrayList<>();
+        boolean replan;
+        synchronized (this) {
+            task = null;
+            dispatching = true;
+            replan = replanRequested;
+            replanRequested = false;
+        }
+        if (replan) {
+            // Outside the lock, the planner holds its own lock while it calls reschedule()
+            try {
+                planner.run();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to plan the periodic actions: {}", e.getMessage());
+            }
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            updateLoad();
+            while (!queue.isEmpty() && queue.peek().nextDue - now <= 0) {
+                PollEntry entry = queue.poll();
+                long interval = Math.round(entry.interval * stretch);
+                if (pending.test(entry.action)) {
+                    // The previous round is still queued, do not add another one behind it
+                    logger.trace("Skipped poll of {}, previous one still pending", entry.action);
+                    entry.skipped++;
+                } else {
+                    due.add(entry.action);
+                    if (entry.lastRun != 0) {
+                        long period = now - entry.lastRun;
+                        entry.averagePeriod = (entry.averagePeriod == 0) ? period
+                                : entry.averagePeriod + PERIOD_SMOOTHING * (period - entry.averagePeriod);
+                    }
+                    entry.lastRun = now;
+                }
+
+                if (entry.started) {
+                    entry.nextDue += interval;
+                } else {
+                    // First poll, from now on keep the place in the interval
+                    entry.nextDue = now + interval + Math.round(entry.phase * stretch);
+                    entry.started = true;
+                }
+                if (entry.nextDue - now <= 0) {
+                    // We are behind, do not try to catch up with a burst
+                    entry.nextDue = now + interval;
+                }
+                queue.add(entry);
+            }
+        }
+
+        for (ModbusAction action : due) {
+            try {
+                dispatcher.accept(action);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to send periodic action {}: {}", action, e.getMessage());
+            }
+        }
+
+        synchronized (this) {
+            dispatching = false;
+            wakeUp();
+        }
+    }
+
+    /**
+     * Work out the share of the bus the polls ask for and, in adaptive mode, the stretch of the intervals needed to
+     * keep it at the target. Must hold the lock.
+     */
+    private void updateLoad() {
+        double demand = 0;
+        for (PollEntry entry : queue) {
+            demand += entry.serviceTime / entry.interval;
+        }
+        load = demand;
+        double target = adaptive ? Math.max(1, demand / TARGET_LOAD) : 1;
+        if (Math.abs(target - stretch) > 0.05 * stretch) {
+            logger.debug("Poll load {}, intervals stretched by {}", String.format("%.2f", demand),
+                    String.format("%.2f", target));
+            stretch = target;
+        }
+    }
+
+    /**
+     * (Re)schedule the run at the earliest deadline. Must hold the lock.
+     */
+    private void wakeUp() {
+        if (executor == null || dispatching) {
+            // A running dispatch schedules the next run when done
+            return;
+        }
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        long delay = Long.MAX_VALUE;
+        if (!queue.isEmpty()) {
+            delay = Math.max(0, queue.peek().nextDue - System.nanoTime());
+        }
+        if (replanRequested) {
+            delay = Math.min(delay, TimeUnit.MILLISECONDS.toNanos(REPLAN_DELAY));
+        }
+        if (delay != Long.MAX_VALUE) {
+            task = executor.schedule(this::run, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static List<ModbusAction> members(ModbusAction action) {
+        if (action instanceof ModbusActionBlock) {
+            return ((ModbusActionBlock) action).getMembers();
+        }
+        return List.of(action);
+    }
+
+    /**
+     * @return target and actual (moving average) polling period in milliseconds for each dataset
+     */
+    public synchronized Map<Integer, long[]> getPollPeriods() {
+        Map<Integer, long[]> periods = new HashMap<>();
+        dataSetEntries.forEach((dataSetId, entry) -> periods.put(dataSetId, new long[] {
+                TimeUnit.NANOSECONDS.toMillis(entry.interval), Math.round(entry.averagePeriod / 1000000) }));
+        return periods;
+    }
+
+    /**
+     * @return target and achieved polls per second (Hz) of the datasets of each interval, keyed by interval (ms)
+     */
+    public synchronized Map<Long, double[]> getPollRates() {
+        Map<Long, double[]> rates = new TreeMap<>();
+        Map<Long, Integer> polled = new HashMap<>();
+        for (PollEntry entry : queue) {
+            long interval = TimeUnit.NANOSECONDS.toMillis(entry.interval);
+            double[] rate = rates.computeIfAbsent(interval, k -> new double[] { 1000.0 / k, 0 });
+            if (entry.averagePeriod > 0) {
+                rate[1] += 1e9 / entry.averagePeriod;
+                polled.merge(interval, 1, Integer::sum);
+            }
+        }
+        polled.forEach((interval, count) -> rates.get(interval)[1] /= count);
+        return rates;
+    }
+
+    /**
+     * @return share of the bus asked for by the polls (1 = fully busy) and the current stretch of the intervals
+     */
+    public synchronized double[] getLoad() {
+        return new double[] { load, stretch };
+    }
+
+    /**
+     * @return number of rounds skipped because the previous poll was still pending
+     */
+    public synchronized long getSkippedRounds() {
+        long skipped = 0;
+        for (PollEntry entry : queue) {
+            skipped += entry.skipped;
+        }
+        return skipped;
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.factory;
+
+import static org.openhab.binding.zmartmodbus.ModbusBindingClass.MAX_BITS;
+import static org.openhab.binding.zmartmodbus.ModbusBindingClass.MAX_REGISTERS;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.openhab.core.thing.ThingUID;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionClass;
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusAction;
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusActionBlock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ModbusReadPlanner} merges periodic read actions of the same unit and message class into as few
+ * requests as possible. Datasets are merged when the gap between them is at most maxGap registers (or coils) and
+ * the block stays within the PDU limits of 125 registers or 2000 coils.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public class ModbusReadPlanner {
+
+    private Logger logger = LoggerFactory.getLogger(ModbusReadPlanner.class);
+
+    private final int maxGap;
+    private final Predicate<ThingUID> blockReadsSupported;
+
+    /**
+     * @param maxGap number of unused registers (or coils) allowed between two merged datasets
+     * @param blockReadsSupported tells if the unit of a thing handles reads across dataset boundaries
+     */
+    public ModbusReadPlanner(int maxGap, Predicate<ThingUID> blockReadsSupported) {
+        this.maxGap = Math.max(0, maxGap);
+        this.blockReadsSupported = blockReadsSupported;
+    }
+
+    /**
+     * Plan the actions of one feed
+     *
+     * @param actions periodic actions of the feed
+     * @return the actions to send, merged where possible
+     */
+    public List<ModbusAction> plan(List<ModbusAction> actions) {
+        List<ModbusAction> planned = new ArrayList<>();
+        Map<String, List<ModbusAction>> groups = new LinkedHashMap<>();
+
+        for (ModbusAction action : actions) {
+            if (isMergeable(action)) {
+                groups.computeIfAbsent(action.getThingUID().getAsString() + ":" + action.getMessageClass(),
+                        k -> new ArrayList<>()).add(action);
+            } else {
+                planned.add(action);
+            }
+        }
+
+        for (List<ModbusAction> group : groups.values()) {
+            group.sort(Comparator.comparingInt(ModbusReadPlanner::address));
+            int limit = maxLength(group.get(0));
+
+            List<ModbusAction> members = new ArrayList<>();
+            int blockStart = 0;
+            int blockEnd = 0;
+            for (ModbusAction action : group) {
+                int start = address(action);
+                int end = start + action.getLength();
+                if (!members.isEmpty() && start <= blockEnd + maxGap && Math.max(end, blockEnd) - blockStart <= limit) {
+                    members.add(action);
+                    blockEnd = Math.max(end, blockEnd);
+                } else {
+                    addBlock(planned, members, blockStart, blockEnd);
+                    members = new ArrayList<>();
+                    members.add(action);
+                    blockStart = start;
+                    blockEnd = end;
+                }
+            }
+            addBlock(planned, members, blockStart, blockEnd);
+        }
+
+        logger.debug("Planned {} actions into {} requests", actions.size(), planned.size());
+        return planned;
+    }
+
+    private void addBlock(List<ModbusAction> planned, List<ModbusAction> members, int blockStart, int blockEnd) {
+        if (members.size() == 1) {
+            planned.add(members.get(0));
+        } else if (members.size() > 1) {
+            planned.add(new ModbusActionBlock(members.get(0), blockStart, blockEnd - blockStart, members));
+        }
+    }
+
+    private boolean isMergeable(ModbusAction action) {
+        if (action.getActionClass() != ModbusActionClass.Read || action.getLength() <= 0
+                || action.getLength() > maxLength(action)) {
+            return false;
+        }
+        switch (action.getMessageClass()) {
+            case Coil:
+            case Discrete:
+            case Holding:
+            case Input:
+                return blockReadsSupported.test(action.getThingUID());
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return first register or coil read by the action
+     */
+    static int address(ModbusAction action) {
+        switch (action.getMessageClass()) {
+            case Coil:
+            case Discrete:
+                return action.getStart() + action.getOffset();
+            default:
+                return action.getStart();
+        }
+    }
+
+    private static int maxLength(ModbusAction action) {
+        switch (action.getMessageClass()) {
+            case Coil:
+            case Discrete:
+                return MAX_BITS;
+            default:
+                return MAX_REGISTERS;
+        }
+    }
+}
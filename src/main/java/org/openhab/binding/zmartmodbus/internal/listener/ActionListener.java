@@ -12,6 +12,7 @@
  */
 package org.openhab.binding.zmartmodbus.internal.listener;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -33,6 +34,15 @@ public abstract class ActionListener {
 
     public abstract void modbusAction(ModbusAction event);
 
+    /**
+     * Hand over several actions at once, in order
+     */
+    public void modbusActions(List<ModbusAction> events) {
+        for (ModbusAction event : events) {
+            modbusAction(event);
+        }
+    }
+
     public abstract void error(Throwable throwable);
 
     @Override
@@ -13,11 +13,16 @@
 package org.openhab.binding.zmartmodbus.internal.protocol;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 
 /**
- * Modbus global counters
+ * Modbus global counters, and round trip latency and errors per unit address and function code.
+ * Histograms of a unit or function code are made when it is first seen, after that recording does not allocate.
  *
  * @author Peter Kristensen - Initial contribution
  *
@@ -28,6 +33,23 @@ public class ModbusCounters {
     private AtomicInteger MessageCounter = new AtomicInteger(0);
     private AtomicInteger TimeOutCounter = new AtomicInteger(0);
     private AtomicInteger FailedCounter = new AtomicInteger(0);
+    private AtomicInteger SavedReadCounter = new AtomicInteger(0);
+    private AtomicInteger SkippedConversionCounter = new AtomicInteger(0);
+    private AtomicLong IdleTimeNanos = new AtomicLong(0);
+    private AtomicLong LastIdleTimeNanos = new AtomicLong(0);
+    private AtomicLong BytesSent = new AtomicLong(0);
+    private AtomicLong BytesReceived = new AtomicLong(0);
+    private AtomicInteger CrcErrorCounter = new AtomicInteger(0);
+    private AtomicInteger ExceptionCounter = new AtomicInteger(0);
+    private AtomicInteger RetryCounter = new AtomicInteger(0);
+
+    private static final int UNITS = 256;
+    private static final int FUNCTION_CODES = 128; // the exception flag is masked off
+
+    private AtomicReferenceArray<ModbusHistogram> UnitLatencies = new AtomicReferenceArray<>(UNITS);
+    private AtomicReferenceArray<ModbusHistogram> FunctionLatencies = new AtomicReferenceArray<>(FUNCTION_CODES);
+    private AtomicIntegerArray UnitTimeOuts = new AtomicIntegerArray(UNITS);
+    private AtomicIntegerArray UnitExceptions = new AtomicIntegerArray(UNITS);
 
     /**
      *
@@ -39,6 +61,19 @@ public class ModbusCounters {
         MessageCounter = new AtomicInteger(0);
         TimeOutCounter = new AtomicInteger(0);
         FailedCounter = new AtomicInteger(0);
+        SavedReadCounter = new AtomicInteger(0);
+        SkippedConversionCounter = new AtomicInteger(0);
+        IdleTimeNanos = new AtomicLong(0);
+        LastIdleTimeNanos = new AtomicLong(0);
+        BytesSent = new AtomicLong(0);
+        BytesReceived = new AtomicLong(0);
+        CrcErrorCounter = new AtomicInteger(0);
+        ExceptionCounter = new AtomicInteger(0);
+        RetryCounter = new AtomicInteger(0);
+        UnitLatencies = new AtomicReferenceArray<>(UNITS);
+        FunctionLatencies = new AtomicReferenceArray<>(FUNCTION_CODES);
+        UnitTimeOuts = new AtomicIntegerArray(UNITS);
+        UnitExceptions = new AtomicIntegerArray(UNITS);
     }
 
     public int incrementMessageCounter() {
@@ -53,6 +88,68 @@ public class ModbusCounters {
         return FailedCounter.incrementAndGet();
     }
 
+    public int incrementSavedReadCounter() {
+        return SavedReadCounter.incrementAndGet();
+    }
+
+    public int incrementSkippedConversionCounter() {
+        return SkippedConversionCounter.incrementAndGet();
+    }
+
+    public int addSkippedConversions(int count) {
+        return SkippedConversionCounter.addAndGet(count);
+    }
+
+    public int incrementTimeOutCounter(int unitAddr) {
+        UnitTimeOuts.incrementAndGet(unitAddr & 0xff);
+        return incrementTimeOutCounter();
+    }
+
+    /**
+     * Count an exception response of a unit
+     */
+    public int incrementExceptionCounter(int unitAddr) {
+        UnitExceptions.incrementAndGet(unitAddr & 0xff);
+        return ExceptionCounter.incrementAndGet();
+    }
+
+    public int incrementRetryCounter() {
+        return RetryCounter.incrementAndGet();
+    }
+
+    public int addCrcErrors(int count) {
+        return CrcErrorCounter.addAndGet(count);
+    }
+
+    public long addBytesSent(int count) {
+        return BytesSent.addAndGet(count);
+    }
+
+    public long addBytesReceived(int count) {
+        return BytesReceived.addAndGet(count);
+    }
+
+    /**
+     * Record the time from sending a request to receiving its (non exception) response
+     *
+     * @param unitAddr unit address of the request
+     * @param functionCode function code of the request
+     * @param nanos round trip time in nanoseconds
+     */
+    public void recordRoundTrip(int unitAddr, int functionCode, long nanos) {
+        histogram(UnitLatencies, unitAddr & 0xff).record(nanos);
+        histogram(FunctionLatencies, functionCode & 0x7f).record(nanos);
+    }
+
+    private static ModbusHistogram histogram(AtomicReferenceArray<ModbusHistogram> histograms, int index) {
+        ModbusHistogram histogram = histograms.get(index);
+        if (histogram == null) {
+            histograms.compareAndSet(index, null, new ModbusHistogram());
+            histogram = histograms.get(index);
+        }
+        return histogram;
+    }
+
     public int getMessageCounter() {
         return MessageCounter.get();
     }
@@ -64,4 +161,85 @@ public class ModbusCounters {
     public int getFailedCounter() {
         return FailedCounter.get();
     }
+
+    public int getSavedReadCounter() {
+        return SavedReadCounter.get();
+    }
+
+    public int getSkippedConversionCounter() {
+        return SkippedConversionCounter.get();
+    }
+
+    public int getCrcErrorCounter() {
+        return CrcErrorCounter.get();
+    }
+
+    public int getExceptionCounter() {
+        return ExceptionCounter.get();
+    }
+
+    public int getRetryCounter() {
+        return RetryCounter.get();
+    }
+
+    public long getBytesSent() {
+        return BytesSent.get();
+    }
+
+    public long getBytesReceived() {
+        return BytesReceived.get();
+    }
+
+    /**
+     * Tell the round trip latency, time-outs and exception responses of every unit seen
+     *
+     * @param consumer given the unit address and its summary
+     */
+    public void forEachUnit(BiConsumer<Integer, String> consumer) {
+        for (int unitAddr = 0; unitAddr < UNITS; unitAddr++) {
+            ModbusHistogram histogram = UnitLatencies.get(unitAddr);
+            int timeOuts = UnitTimeOuts.get(unitAddr);
+            int exceptions = UnitExceptions.get(unitAddr);
+            if (histogram != null || timeOuts > 0 || exceptions > 0) {
+                consumer.accept(unitAddr, String.format("%s, time-outs %d, exceptions %d",
+                        (histogram != null) ? histogram.summary() : "no responses", timeOuts, exceptions));
+            }
+        }
+    }
+
+    /**
+     * Tell the round trip latency of every function code seen
+     *
+     * @param consumer given the function code and its latency histogram
+     */
+    public void forEachFunctionCode(BiConsumer<Integer, ModbusHistogram> consumer) {
+        for (int functionCode = 0; functionCode < FUNCTION_CODES; functionCode++) {
+            ModbusHistogram histogram = FunctionLatencies.get(functionCode);
+            if (histogram != null) {
+                consumer.accept(functionCode, histogram);
+            }
+        }
+    }
+
+    /**
+     * Add the time a transaction spent waiting for the bus to answer
+     *
+     * @param nanos idle time in nanoseconds
+     */
+    public void addIdleTime(long nanos) {
+        IdleTimeNanos.addAndGet(nanos);
+        LastIdleTimeNanos.set(nanos);
+    }
+
+    public long getLastIdleTimeMillis() {
+        return LastIdleTimeNanos.get() / 1000000L;
+    }
+
+    /**
+     * @return average idle time per message in milliseconds
+     */
+    public double getAverageIdleTimeMillis() {
+        int messages = MessageCounter.get();
+        return (messages > 0) ? IdleTimeNanos.get() / 1000000.0 / messages : 0;
+    }
 }
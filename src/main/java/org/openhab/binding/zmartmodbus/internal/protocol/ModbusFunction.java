@@ -14,16 +14,23 @@
 package org.openhab.binding.zmartmodbus.internal.protocol;
 
 import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.openhab.core.thing.ThingUID;
 
 import org.openhab.binding.zmartmodbus.ModbusBindingClass;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionLane;
 import org.openhab.binding.zmartmodbus.ModbusBindingConstants;
 import org.openhab.binding.zmartmodbus.handler.ModbusBridgeHandler;
+import org.openhab.binding.zmartmodbus.internal.controller.ModbusController;
 import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolErrorCode;
 import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolException;
+import org.openhab.binding.zmartmodbus.internal.factory.ModbusBusThread;
+import org.openhab.binding.zmartmodbus.internal.transceiver.ModbusRequest;
 import org.openhab.binding.zmartmodbus.internal.util.BitVector;
+import org.openhab.binding.zmartmodbus.internal.util.Register;
 
 /**
  *
@@ -34,10 +41,21 @@ import org.openhab.binding.zmartmodbus.internal.util.BitVector;
  *         This service implements a subset of ModbusFunction Application Protocol as defined by ModbusFunction
  *         Organization : http://www.modbus.org/specs.php.<br>
  *         For the moment in Ethernet mode, only RTU over TCP/IP is supported
+ *
+ *         Every transaction is started on the bus thread of the bridge. The *Async methods queue the request in a
+ *         lane of the dispatcher and return at once, the blocking methods wait for them and may be called from any
+ *         thread.
  */
 
 public class ModbusFunction {
 
+    /**
+     * A request to the bus, run on the bus thread
+     */
+    @FunctionalInterface
+    public interface ModbusTransaction<T> {
+        T call() throws ModbusProtocolException;
+    }
 
     protected ModbusBridgeHandler bridgeHandler;
 
@@ -48,42 +66,22 @@ public class ModbusFunction {
         this.bridgeHandler = modbusBridgeHandler;
     }
 
-    private BitVector readBitVector(byte functionCode, int unitAddr, int dataAddress, int offset, int count)
-            throws ModbusProtocolException {
-        if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
-        }
-
-        dataAddress = +offset;
-
-        byte[] resp;
-        /*
-         * construct the command issue and get results
-         */
-        byte[] cmd = new byte[6];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = functionCode;
-        cmd[2] = (byte) (dataAddress / 256);
-        cmd[3] = (byte) (dataAddress % 256);
-        cmd[4] = (byte) (count / 256);
-        cmd[5] = (byte) (count % 256);
-
-        /*
-         * send the message and get the response
-         */
-        resp = msgTransaction(cmd);
-
-        /*
-         * process the response (address & CRC already confirmed)
-         */
-        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        if ((resp[2] & 0xff) != ((count + 7) / 8)) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
-        }
+    /**
+     * Tells if the unit can read a block of registers or coils covering several datasets in one request
+     *
+     * @return true for standard Modbus units
+     */
+    public boolean supportsBlockReads() {
+        return true;
+    }
 
-        return BitVector.createBitVector(Arrays.copyOfRange(resp, 3, resp.length), count);
+    /**
+     * Tells if the unit can write registers of several datasets in one request
+     *
+     * @return true for standard Modbus units
+     */
+    public boolean supportsBlockWrites() {
+        return true;
     }
 
     /**
@@ -109,7 +107,7 @@ public class ModbusFunction {
      *                                     the cause of the exception
      */
     public BitVector readCoils(int unitAddr, int dataAddress, int offset, int count) throws ModbusProtocolException {
-        return readBitVector((byte) ModbusBindingClass.READ_COIL_STATUS, unitAddr, dataAddress, offset, count);
+        return join(readCoilsAsync(unitAddr, dataAddress, offset, count));
     }
 
     /**
@@ -136,7 +134,7 @@ public class ModbusFunction {
      */
     public BitVector readDiscreteInputs(int unitAddr, int dataAddress, int offset, int count)
             throws ModbusProtocolException {
-        return readBitVector((byte) ModbusBindingClass.READ_INPUT_STATUS, unitAddr, dataAddress, offset, count);
+        return join(readDiscreteInputsAsync(unitAddr, dataAddress, offset, count));
     }
 
     /**
@@ -153,68 +151,7 @@ public class ModbusFunction {
      *                                     the cause of the exception
      */
     public BitVector readExceptionStatus(int unitAddr) throws ModbusProtocolException {
-        if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
-        }
-
-        byte[] resp;
-        /*
-         * construct the command issue and get results
-         */
-        byte[] cmd = new byte[2];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = (byte) ModbusBindingClass.READ_EXCEPTION_STATUS;
-
-        /*
-         * send the message and get the response
-         */
-        resp = msgTransaction(cmd);
-
-        /*
-         * process the response (address & CRC already confirmed)
-         */
-        if (resp.length < 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        return BitVector.createBitVector(Arrays.copyOfRange(resp, 2, 3), 8);
-    }
-
-    private byte[] readRegisters(byte functionCode, int unitAddr, int dataAddress, int count)
-            throws ModbusProtocolException {
-        if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
-        }
-
-        byte[] resp;
-        /*
-         * construct the command issue and get results, putting the results
-         * away at index and then incrementing index for the next command
-         */
-        byte[] cmd = new byte[6];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = functionCode;
-        cmd[2] = (byte) (dataAddress / 256);
-        cmd[3] = (byte) (dataAddress % 256);
-        cmd[4] = 0;
-        cmd[5] = (byte) count;
-
-        /*
-         * send the message and get the response
-         */
-        resp = msgTransaction(cmd);
-
-        /*
-         * process the response (address & CRC already confirmed)
-         */
-        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        if ((resp[2] & 0xff) == count * 2) {
-            return Arrays.copyOfRange(resp, 3, 3 + count * 3);
-        } else {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
-        }
-
+        return join(readExceptionStatusAsync(unitAddr));
     }
 
     /**
@@ -228,15 +165,15 @@ public class ModbusFunction {
      *                        starting address
      * @param count
      *                        quantity of registers (maximum 0x7D)
-     * @return an array of int representing the requested data points (data registers on 2 bytes).
+     * @return read-only view of the requested data points (data registers on 2 bytes, big endian).
      * @throws ModbusProtocolException with a {@link ModbusProtocolErrorCode#NOT_CONNECTED}
      *                                     current connection is in a status other than <b>CONNECTED</b>
      * @throws ModbusProtocolException with a {@link ModbusProtocolErrorCode#TRANSACTION_FAILURE}
      *                                     should include a protocol specific message to help clarify
      *                                     the cause of the exception
      */
-    public byte[] readHoldingRegisters(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
-         return readRegisters((byte) ModbusBindingClass.READ_HOLDING_REGS, unitAddr, dataAddress, count);
+    public ByteBuffer readHoldingRegisters(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
+        return join(readHoldingRegistersAsync(unitAddr, dataAddress, count));
     }
 
     /**
@@ -250,15 +187,15 @@ public class ModbusFunction {
      *                        starting address
      * @param count
      *                        quantity of registers (maximum 0x7D)
-     * @return an array of int representing the requested data points (data registers on 2 bytes).
+     * @return read-only view of the requested data points (data registers on 2 bytes, big endian).
      * @throws ModbusProtocolException with a {@link ModbusProtocolErrorCode#NOT_CONNECTED}
      *                                     current connection is in a status other than <b>CONNECTED</b>
      * @throws ModbusProtocolException with a {@link ModbusProtocolErrorCode#TRANSACTION_FAILURE}
      *                                     should include a protocol specific message to help clarify
      *                                     the cause of the exception
      */
-    public byte[] readInputRegisters(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
-        return readRegisters((byte) ModbusBindingClass.READ_INPUT_REGS, unitAddr, dataAddress, count);
+    public ByteBuffer readInputRegisters(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
+        return join(readInputRegistersAsync(unitAddr, dataAddress, count));
     }
 
     /**
@@ -282,50 +219,7 @@ public class ModbusFunction {
      */
     public void writeMultipleCoils(int unitAddr, int dataAddress, int offset, BitVector data)
             throws ModbusProtocolException {
-        if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
-        }
-
-        dataAddress = +offset;
-
-        /*
-         * write multiple boolean values
-         */
-        int localCnt = data.size();
-        byte[] resp;
-        /*
-         * construct the command, issue and verify response
-         */
-        int dataLength = (localCnt + 7) / 8;
-        byte[] cmd = new byte[dataLength + 7];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = ModbusBindingClass.FORCE_MULTIPLE_COILS;
-        cmd[2] = (byte) (dataAddress / 256);
-        cmd[3] = (byte) (dataAddress % 256);
-        cmd[4] = (byte) (localCnt / 256);
-        cmd[5] = (byte) (localCnt % 256);
-        cmd[6] = (byte) dataLength;
-
-        // make sure the BitVector size and localCnt matches
-        data.forceSize(localCnt);
-
-        /*
-         * send the message and get the response
-         */
-        resp = msgTransaction(ByteBuffer.allocate(cmd.length + data.byteSize())
-        .put(cmd).put(data.getBytes()).array());
-
-        /*
-         * process the response
-         */
-        if (resp.length < 6) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        for (int j = 0; j < 6; j++) {
-            if (cmd[j] != resp[j]) {
-                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-            }
-        }
+        join(writeMultipleCoilsAsync(unitAddr, dataAddress, offset, data));
     }
 
     /**
@@ -346,47 +240,7 @@ public class ModbusFunction {
      *                                     the cause of the exception
      */
     public void writeMultipleRegisters(int unitAddr, int dataAddress, byte[] data) throws ModbusProtocolException {
-        if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
-        }
-
-        // Only write and even number of bytes (i.e. registers)
-        int localCnt = (data.length / 2);
-        /*
-         * construct the command, issue and verify response
-         */
-        int dataLength = localCnt * 2;
-        byte[] cmd = new byte[dataLength + 7];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = ModbusBindingClass.PRESET_MULTIPLE_REGS;
-        cmd[2] = (byte) (dataAddress / 256);
-        cmd[3] = (byte) (dataAddress % 256);
-        cmd[4] = (byte) (localCnt / 256);
-        cmd[5] = (byte) (localCnt % 256);
-        cmd[6] = (byte) dataLength;
-
-        // put the data on the command
-        int byteOffset = 7;
-        for (int index = 0; index < data.length; index++) {
-            cmd[byteOffset + index] = data[index];
-        }
-
-        /*
-         * send the message and get the response
-         */
-        byte[] resp = msgTransaction(cmd);
-
-        /*
-         * process the response
-         */
-        if (resp.length < 6) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        for (int j = 0; j < 6; j++) {
-            if (cmd[j] != resp[j]) {
-                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-            }
-        }
+        join(writeMultipleRegistersAsync(unitAddr, dataAddress, data));
     }
 
     /**
@@ -410,39 +264,7 @@ public class ModbusFunction {
      */
     public void writeSingleCoil(int unitAddr, int dataAddress, int offset, boolean state)
             throws ModbusProtocolException {
-        if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
-        }
-
-        dataAddress = +offset;
-
-        byte[] resp;
-
-        byte[] cmd = new byte[6];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = ModbusBindingClass.FORCE_SINGLE_COIL;
-        cmd[2] = (byte) (dataAddress / 256);
-        cmd[3] = (byte) (dataAddress % 256);
-        cmd[4] = state == true ? (byte) 0xff : (byte) 0;
-        cmd[5] = 0;
-
-        /*
-         * send the message and get the response
-         */
-        resp = msgTransaction(cmd);
-
-        /*
-         * process the response
-         */
-        if (resp.length < 6) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        for (int i = 0; i < 6; i++) {
-            if (cmd[i] != resp[i]) {
-                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-            }
-        }
-
+        join(writeSingleCoilAsync(unitAddr, dataAddress, offset, state));
     }
 
     /**
@@ -461,40 +283,7 @@ public class ModbusFunction {
      * @see ModbusCommEvent
      */
     public ModbusCommEvent getCommEventCounter(int unitAddr) throws ModbusProtocolException {
-        ModbusCommEvent mce = new ModbusCommEvent();
-        if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
-        }
-
-        /*
-         * construct the command issue and get results
-         */
-        byte[] cmd = new byte[2];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = (byte) ModbusBindingClass.GET_COMM_EVENT_COUNTER;
-
-        /*
-         * send the message and get the response
-         */
-        byte[] resp;
-        resp = msgTransaction(cmd);
-
-        /*
-         * process the response (address & CRC already confirmed)
-         */
-        if (resp.length < 6) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        int val = resp[2] & 0xff;
-        val <<= 8;
-        val += resp[3] & 0xff;
-        mce.setStatus(val);
-        val = resp[4] & 0xff;
-        val <<= 8;
-        val += resp[5] & 0xff;
-        mce.setEventCount(val);
-
-        return mce;
+        return join(getCommEventCounterAsync(unitAddr));
     }
 
     /**
@@ -514,54 +303,7 @@ public class ModbusFunction {
      * @see ModbusCommEvent
      */
     public ModbusCommEvent getCommEventLog(int unitAddr) throws ModbusProtocolException {
-        ModbusCommEvent mce = new ModbusCommEvent();
-        if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
-        }
-
-        /*
-         * construct the command issue and get results
-         */
-        byte[] cmd = new byte[2];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = (byte) ModbusBindingClass.GET_COMM_EVENT_LOG;
-
-        /*
-         * send the message and get the response
-         */
-        byte[] resp;
-        resp = msgTransaction(cmd);
-
-        /*
-         * process the response (address & CRC already confirmed)
-         */
-        if (resp.length < (resp[2] & 0xff) + 3 || (resp[2] & 0xff) > 64 + 7) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        int val = resp[3] & 0xff;
-        val <<= 8;
-        val += resp[4] & 0xff;
-        mce.setStatus(val);
-
-        val = resp[5] & 0xff;
-        val <<= 8;
-        val += resp[6] & 0xff;
-        mce.setEventCount(val);
-
-        val = resp[7] & 0xff;
-        val <<= 8;
-        val += resp[8] & 0xff;
-        mce.setMessageCount(val);
-
-        int count = (resp[2] & 0xff) - 4;
-        int[] events = new int[count];
-        for (int j = 0; j < count; j++) {
-            int bval = resp[9 + j] & 0xff;
-            events[j] = bval;
-        }
-        mce.setEvents(events);
-
-        return mce;
+        return join(getCommEventLogAsync(unitAddr));
     }
 
     /**
@@ -582,75 +324,355 @@ public class ModbusFunction {
      *                                     the cause of the exception
      */
     public void writeSingleRegister(int unitAddr, int dataAddress, byte[] data) throws ModbusProtocolException {
+        join(writeSingleRegisterAsync(unitAddr, dataAddress, data));
+    }
+
+    public void startSubDeviceDiscovery(ThingUID thingUID) {
+        // Initiate auto discovery process
+    }
+
+    public boolean controllerOnline(int unitAddr) {
+        return controllerOnlineAsync(unitAddr).join();
+    }
+
+    public void setLogicalAddress(int unitAddr) {
+        // Initiate auto setup of address
+        // Currently only implemented for Jablotron AC-116
+    }
+
+    public void getDeviceInfo(ThingUID thingUID) {
+        // 
+    }
+
+    /**
+     * The *Async requests are queued in the on-demand lane (reads) or the write lane (writes) of the dispatcher and
+     * started on the bus thread; the blocking methods wait for them. Register reads complete with a read-only view of
+     * the response, so nothing is copied.
+     */
+    public CompletableFuture<BitVector> readCoilsAsync(int unitAddr, int dataAddress, int offset, int count) {
+        return readBitVectorAsync((byte) ModbusBindingClass.READ_COIL_STATUS, unitAddr, dataAddress + offset, count);
+    }
+
+    public CompletableFuture<BitVector> readDiscreteInputsAsync(int unitAddr, int dataAddress, int offset,
+            int count) {
+        return readBitVectorAsync((byte) ModbusBindingClass.READ_INPUT_STATUS, unitAddr, dataAddress + offset, count);
+    }
+
+    private CompletableFuture<BitVector> readBitVectorAsync(byte functionCode, int unitAddr, int dataAddress,
+            int count) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        ModbusRequest request = newRequest(unitAddr, functionCode).putShort(dataAddress).putShort(count);
+        return transactionAsync(request, ModbusBindingConstants.CUSTOMCODE_STANDARD, resp -> {
+            if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+            }
+            if ((resp[2] & 0xff) != ((count + 7) / 8)) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
+            }
+            return BitVector.createBitVector(resp, 3, count);
+        });
+    }
+
+    public CompletableFuture<BitVector> readExceptionStatusAsync(int unitAddr) {
         if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
+            return notConnected();
         }
+        ModbusRequest request = newRequest(unitAddr, ModbusBindingClass.READ_EXCEPTION_STATUS);
+        return transactionAsync(request, ModbusBindingConstants.CUSTOMCODE_STANDARD, resp -> {
+            if (resp.length < 3) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+            }
+            return BitVector.createBitVector(resp, 2, 8);
+        });
+    }
 
-        byte[] cmd = new byte[6];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = ModbusBindingClass.PRESET_SINGLE_REG;
-        cmd[2] = (byte) (dataAddress / 256);
-        cmd[3] = (byte) (dataAddress % 256);
-        cmd[4] = data[0];
-        cmd[5] = data[1];
+    public CompletableFuture<ByteBuffer> readHoldingRegistersAsync(int unitAddr, int dataAddress, int count) {
+        return readRegistersAsync((byte) ModbusBindingClass.READ_HOLDING_REGS, unitAddr, dataAddress, count);
+    }
 
-        /*
-         * send the message and get the response
-         */
-        byte[] resp = msgTransaction(cmd);
+    public CompletableFuture<ByteBuffer> readInputRegistersAsync(int unitAddr, int dataAddress, int count) {
+        return readRegistersAsync((byte) ModbusBindingClass.READ_INPUT_REGS, unitAddr, dataAddress, count);
+    }
+
+    private CompletableFuture<ByteBuffer> readRegistersAsync(byte functionCode, int unitAddr, int dataAddress,
+            int count) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        ModbusRequest request = newRequest(unitAddr, functionCode).putShort(dataAddress).put(0).put(count);
+        return transactionAsync(request, ModbusBindingConstants.CUSTOMCODE_STANDARD,
+                resp -> registersOf(resp, count));
+    }
+
+    /**
+     * @return a view of the registers in a read response, nothing is copied
+     */
+    protected static ByteBuffer registersOf(byte[] resp, int count) throws ModbusProtocolException {
+        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+        }
+        if ((resp[2] & 0xff) != count * 2) {
+            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
+        }
+        return Register.registerView(resp, 3, count * 2);
+    }
 
+    public CompletableFuture<Void> writeMultipleCoilsAsync(int unitAddr, int dataAddress, int offset,
+            BitVector data) {
+        if (!isConnected()) {
+            return notConnected();
+        }
         /*
-         * process the response
+         * write multiple boolean values, make sure the BitVector size and count matches
          */
-        if (resp.length < 6) {
+        int localCnt = data.size();
+        data.forceSize(localCnt);
+        ModbusRequest request = newRequest(unitAddr, ModbusBindingClass.FORCE_MULTIPLE_COILS)
+                .putShort(dataAddress + offset).putShort(localCnt).put((localCnt + 7) / 8)
+                .put(data.getBytes(), 0, data.byteSize());
+        return transactionAsync(request, ModbusBindingConstants.CUSTOMCODE_STANDARD, resp -> echoed(request, resp));
+    }
+
+    public CompletableFuture<Void> writeMultipleRegistersAsync(int unitAddr, int dataAddress, byte[] data) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        // Only write and even number of bytes (i.e. registers)
+        int localCnt = (data.length / 2);
+        ModbusRequest request = newRequest(unitAddr, ModbusBindingClass.PRESET_MULTIPLE_REGS).putShort(dataAddress)
+                .putShort(localCnt).put(localCnt * 2).put(data, 0, localCnt * 2);
+        return transactionAsync(request, ModbusBindingConstants.CUSTOMCODE_STANDARD, resp -> echoed(request, resp));
+    }
+
+    public CompletableFuture<Void> writeSingleCoilAsync(int unitAddr, int dataAddress, int offset, boolean state) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        ModbusRequest request = newRequest(unitAddr, ModbusBindingClass.FORCE_SINGLE_COIL)
+                .putShort(dataAddress + offset).put(state ? 0xff : 0).put(0);
+        return transactionAsync(request, ModbusBindingConstants.CUSTOMCODE_STANDARD, resp -> echoed(request, resp));
+    }
+
+    public CompletableFuture<Void> writeSingleRegisterAsync(int unitAddr, int dataAddress, byte[] data) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        ModbusRequest request = newRequest(unitAddr, ModbusBindingClass.PRESET_SINGLE_REG).putShort(dataAddress)
+                .put(data, 0, 2);
+        return transactionAsync(request, ModbusBindingConstants.CUSTOMCODE_STANDARD, resp -> echoed(request, resp));
+    }
+
+    /**
+     * A write is confirmed by echoing address and quantity (or value) of the request
+     */
+    private static Void echoed(ModbusRequest request, byte[] resp) throws ModbusProtocolException {
+        if (resp.length < 6 || !request.isEchoedBy(resp, 6)) {
             throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
         }
-        for (int i = 0; i < 6; i++) {
-            if (cmd[i] != resp[i]) {
+        return null;
+    }
+
+    public CompletableFuture<ModbusCommEvent> getCommEventCounterAsync(int unitAddr) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        ModbusRequest request = newRequest(unitAddr, ModbusBindingClass.GET_COMM_EVENT_COUNTER);
+        return transactionAsync(request, ModbusBindingConstants.CUSTOMCODE_STANDARD, resp -> {
+            if (resp.length < 6) {
                 throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
             }
+            ModbusCommEvent mce = new ModbusCommEvent();
+            mce.setStatus(((resp[2] & 0xff) << 8) + (resp[3] & 0xff));
+            mce.setEventCount(((resp[4] & 0xff) << 8) + (resp[5] & 0xff));
+            return mce;
+        });
+    }
+
+    public CompletableFuture<ModbusCommEvent> getCommEventLogAsync(int unitAddr) {
+        if (!isConnected()) {
+            return notConnected();
         }
+        ModbusRequest request = newRequest(unitAddr, ModbusBindingClass.GET_COMM_EVENT_LOG);
+        return transactionAsync(request, ModbusBindingConstants.CUSTOMCODE_STANDARD, resp -> {
+            if (resp.length < (resp[2] & 0xff) + 3 || (resp[2] & 0xff) > 64 + 7) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+            }
+            ModbusCommEvent mce = new ModbusCommEvent();
+            mce.setStatus(((resp[3] & 0xff) << 8) + (resp[4] & 0xff));
+            mce.setEventCount(((resp[5] & 0xff) << 8) + (resp[6] & 0xff));
+            mce.setMessageCount(((resp[7] & 0xff) << 8) + (resp[8] & 0xff));
+            int count = (resp[2] & 0xff) - 4;
+            int[] events = new int[count];
+            for (int j = 0; j < count; j++) {
+                events[j] = resp[9 + j] & 0xff;
+            }
+            mce.setEvents(events);
+            return mce;
+        });
     }
 
-    public void startSubDeviceDiscovery(ThingUID thingUID) {
-        // Initiate auto discovery process
+    public CompletableFuture<Boolean> controllerOnlineAsync(int unitAddr) {
+        if (!isConnected()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        // If we get an error, it's possible not connected
+        return readInputRegistersAsync(unitAddr, 0, 0).handle((registers, failure) -> failure == null);
     }
 
-    public boolean controllerOnline(int unitAddr) {
+    public CompletableFuture<Void> setLogicalAddressAsync(int unitAddr) {
+        return submit(ModbusActionLane.Write, () -> {
+            setLogicalAddress(unitAddr);
+            return null;
+        });
+    }
 
-        if (!isConnected()) {
-            return false;
+    /**
+     * Queue a blocking request in a lane of the dispatcher, it runs at once when called from the bus thread or before
+     * the bridge is connected
+     *
+     * @return completed with the result, or exceptionally with the {@link ModbusProtocolException}
+     */
+    public <T> CompletableFuture<T> submit(ModbusActionLane lane, ModbusTransaction<T> transaction) {
+        ModbusBusThread busThread = bridgeHandler.getBusThread();
+        ModbusController controller = bridgeHandler.getController();
+        if (busThread != null && !busThread.isCurrentThread() && controller != null) {
+            return controller.getActionDispatcher().submit(lane,
+                    () -> CompletableFuture.completedFuture(transaction.call()));
         }
+        try {
+            return CompletableFuture.completedFuture(transaction.call());
+        } catch (ModbusProtocolException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Checks the response to a request, run while the request is still held so the response can be compared with it
+     */
+    @FunctionalInterface
+    protected interface ModbusResponseParser<T> {
+        T parse(byte[] resp) throws ModbusProtocolException;
+    }
+
+    /**
+     * Send a request and parse its response. The request belongs to the transaction and is given back to the pool
+     * once the response is checked.
+     */
+    protected <T> CompletableFuture<T> transactionAsync(ModbusRequest request, int customCode,
+            ModbusResponseParser<T> parser) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        msgTransactionAsync(request, customCode).whenComplete((resp, failure) -> {
+            try {
+                if (failure != null) {
+                    result.completeExceptionally(causeOf(failure));
+                } else {
+                    result.complete(parser.parse(resp));
+                }
+            } catch (ModbusProtocolException | RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                release(request);
+            }
+        });
+        return result;
+    }
+
+    protected static <T> CompletableFuture<T> notConnected() {
+        return CompletableFuture.failedFuture(new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED));
+    }
 
+    /**
+     * Wait for a request started with one of the *Async methods
+     */
+    protected static <T> T join(CompletableFuture<T> future) throws ModbusProtocolException {
         try {
-            readInputRegisters(unitAddr, 0, 0);
-        } catch (ModbusProtocolException e) {
-            // If we get an error, it's possible not connected
-            return false;
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = causeOf(e);
+            if (cause instanceof ModbusProtocolException) {
+                throw (ModbusProtocolException) cause;
+            }
+            if (cause instanceof RuntimeException && !(cause instanceof CompletionException)) {
+                throw (RuntimeException) cause;
+            }
+            throw new ModbusProtocolException(cause.getMessage(), ModbusProtocolErrorCode.TRANSACTION_FAILURE);
         }
+    }
 
-        // If we reach here we got a successful read
-        return true;
+    private static Throwable causeOf(Throwable failure) {
+        return (failure instanceof CompletionException && failure.getCause() != null) ? failure.getCause() : failure;
     }
 
-    public void setLogicalAddress(int unitAddr) {
-        // Initiate auto setup of address
-        // Currently only implemented for Jablotron AC-116
+    /**
+     * Take a request buffer from the pool of the bridge and start encoding
+     */
+    protected ModbusRequest newRequest(int unitAddr, int functionCode) {
+        return bridgeHandler.getRequestPool().acquire().start(unitAddr, functionCode);
     }
 
-    public void getDeviceInfo(ThingUID thingUID) {
-        // 
+    /**
+     * Give a request buffer back to the pool, once the response is checked
+     */
+    protected void release(ModbusRequest request) {
+        bridgeHandler.getRequestPool().release(request);
+    }
+
+    public byte[] msgTransaction(ModbusRequest request) throws ModbusProtocolException {
+        return msgTransaction(request, ModbusBindingConstants.CUSTOMCODE_STANDARD);
+    }
+
+    /**
+     * Send a request and wait for the response
+     */
+    public byte[] msgTransaction(ModbusRequest request, int customCode) throws ModbusProtocolException {
+        return join(msgTransactionAsync(request, customCode));
+    }
+
+    /**
+     * Send a request, handed to the dispatcher when called from another thread than the bus thread. The request
+     * belongs to the transaction until the future completes.
+     *
+     * @return completed with unit id, function code and data of the response, or exceptionally with the
+     *         {@link ModbusProtocolException}
+     */
+    public CompletableFuture<byte[]> msgTransactionAsync(ModbusRequest request, int customCode) {
+        ModbusBusThread busThread = bridgeHandler.getBusThread();
+        ModbusController controller = bridgeHandler.getController();
+        if (busThread != null && !busThread.isCurrentThread() && controller != null) {
+            return controller.getActionDispatcher().submit(laneOf(request, customCode),
+                    () -> bridgeHandler.getTransceiver().msgTransactionAsync(request, customCode));
+        }
+        return bridgeHandler.getTransceiver().msgTransactionAsync(request, customCode);
     }
 
     /**
-    *
-    */
+     * @return the write lane for requests changing the unit, the on-demand lane for the others
+     */
+    private static ModbusActionLane laneOf(ModbusRequest request, int customCode) {
+        switch ((request.get(1) & 0xff) | customCode) {
+            case ModbusBindingClass.FORCE_SINGLE_COIL:
+            case ModbusBindingClass.PRESET_SINGLE_REG:
+            case ModbusBindingClass.FORCE_MULTIPLE_COILS:
+            case ModbusBindingClass.PRESET_MULTIPLE_REGS:
+            case ModbusBindingClass.ENUMERATION:
+            case ModbusBindingClass.WRITE_REGISTER_TO_INDEX:
+            case ModbusBindingClass.WRITE_REGISTER_TO_ADDRESS:
+            case ModbusBindingClass.WRITE_REGISTER_MASKED_TO_INDEX:
+            case ModbusBindingClass.WRITE_REGISTER_MASKED_TO_ADDRESS:
+                return ModbusActionLane.Write;
+            default:
+                return ModbusActionLane.OnDemand;
+        }
+    }
+
     public byte[] msgTransaction(byte[] msg) throws ModbusProtocolException {
-        return bridgeHandler.getTransceiver().msgTransaction(msg, ModbusBindingConstants.CUSTOMCODE_STANDARD);
+        return msgTransaction(msg, ModbusBindingConstants.CUSTOMCODE_STANDARD);
     }
 
     public byte[] msgTransaction(byte[] msg, int customCode) throws ModbusProtocolException {
-        return bridgeHandler.getTransceiver().msgTransaction(msg, customCode);
+        return msgTransaction(new ModbusRequest().put(msg), customCode);
     }
 
     public boolean isConnected() {
@@ -16,7 +16,9 @@ import static org.openhab.binding.zmartmodbus.ModbusBindingConstants.CUSTOMCODE_
 import static org.openhab.binding.zmartmodbus.internal.util.Register.intToRegisters;
 import static org.openhab.binding.zmartmodbus.internal.util.Register.toHex;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 import org.openhab.core.thing.ThingUID;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass;
@@ -28,6 +30,7 @@ import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolErrorCo
 import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolException;
 import org.openhab.binding.zmartmodbus.internal.factory.ModbusDataSet;
 import org.openhab.binding.zmartmodbus.internal.streams.ModbusAction;
+import org.openhab.binding.zmartmodbus.internal.transceiver.ModbusRequest;
 import org.openhab.binding.zmartmodbus.internal.util.BitVector;
 import org.openhab.binding.zmartmodbus.internal.util.Jablotron;
 import org.slf4j.Logger;
@@ -43,43 +46,51 @@ public class ModbusFunctionJablotron extends ModbusFunction {
     private Logger logger = LoggerFactory.getLogger(ModbusFunctionJablotron.class);
 
     @Override
-    public BitVector readCoils(int unitAddr, int dataAddress, int offset, int count) throws ModbusProtocolException {
-        BitVector ret = new BitVector(count + offset);
-        int length = ret.regSize();
-
-        byte[] resp = jablotronReadRegisterFromIndex(unitAddr, dataAddress, length);
-
-        ret = BitVector.createBitVectorSwap(resp, count + offset);
-
-        return ret.rangeOf(offset, count);
+    public boolean supportsBlockReads() {
+        // Jablotron addresses registers by index and packs coils in registers
+        return false;
     }
 
     @Override
-    public BitVector readDiscreteInputs(int unitAddr, int dataAddress, int offset, int count)
-            throws ModbusProtocolException {
-        BitVector ret = new BitVector(count + offset);
-        int length = ret.regSize();
+    public boolean supportsBlockWrites() {
+        // Registers are written one index at a time
+        return false;
+    }
 
-        byte[] resp = jablotronReadRegisterFromIndex(unitAddr, dataAddress, length);
+    @Override
+    public CompletableFuture<BitVector> readCoilsAsync(int unitAddr, int dataAddress, int offset, int count) {
+        return readBitVectorFromIndexAsync(unitAddr, dataAddress, offset, count);
+    }
 
-        ret = BitVector.createBitVectorSwap(resp, count + offset);
+    @Override
+    public CompletableFuture<BitVector> readDiscreteInputsAsync(int unitAddr, int dataAddress, int offset,
+            int count) {
+        return readBitVectorFromIndexAsync(unitAddr, dataAddress, offset, count);
+    }
 
-        return ret.rangeOf(offset, count);
+    /**
+     * Coils are packed in registers, read the registers holding them
+     */
+    private CompletableFuture<BitVector> readBitVectorFromIndexAsync(int unitAddr, int dataAddress, int offset,
+            int count) {
+        int length = new BitVector(count + offset).regSize();
+        return jablotronReadRegisterFromIndexAsync(unitAddr, dataAddress, length)
+                .thenApply(resp -> BitVector.createBitVectorSwap(resp, count + offset).rangeOf(offset, count));
     }
 
     @Override
-    public byte[] readHoldingRegisters(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
-        return jablotronReadRegisterFromIndex(unitAddr, dataAddress, count);
+    public CompletableFuture<ByteBuffer> readHoldingRegistersAsync(int unitAddr, int dataAddress, int count) {
+        return jablotronReadRegisterFromIndexAsync(unitAddr, dataAddress, count);
     }
 
     @Override
-    public byte[] readInputRegisters(int unitAddr, int dataAddress, int count) throws ModbusProtocolException {
-        return jablotronReadRegisterFromIndex(unitAddr, dataAddress, count);
+    public CompletableFuture<ByteBuffer> readInputRegistersAsync(int unitAddr, int dataAddress, int count) {
+        return jablotronReadRegisterFromIndexAsync(unitAddr, dataAddress, count);
     }
 
     @Override
-    public void writeMultipleCoils(int unitAddr, int dataAddress, int offset, BitVector data)
-            throws ModbusProtocolException {
+    public CompletableFuture<Void> writeMultipleCoilsAsync(int unitAddr, int dataAddress, int offset,
+            BitVector data) {
 
         BitVector dataAdjusted = new BitVector(data.size() + offset);
         BitVector dataMask = new BitVector(dataAdjusted.size());
@@ -97,65 +108,43 @@ public class ModbusFunctionJablotron extends ModbusFunction {
             dataMask.setBit(i, true);
         }
 
-        jablotronWriteRegisterMaskedToIndex(unitAddr, dataAddress, dataAdjusted, dataMask);
+        return jablotronWriteRegisterMaskedToIndexAsync(unitAddr, dataAddress, dataAdjusted, dataMask);
     }
 
     @Override
-    public void writeSingleCoil(int unitAddr, int dataAddress, int index, boolean state)
-            throws ModbusProtocolException {
+    public CompletableFuture<Void> writeSingleCoilAsync(int unitAddr, int dataAddress, int index, boolean state) {
 
         BitVector data = new BitVector(16);
         BitVector mask = BitVector.createBitVector((byte) 0xFF, 16);
         data.setBit(index, state);
         mask.setBit(index, false);
 
-        jablotronWriteRegisterMaskedToIndex(unitAddr, dataAddress, data, mask);
+        return jablotronWriteRegisterMaskedToIndexAsync(unitAddr, dataAddress, data, mask);
     }
 
-    private byte[] jablotronReadRegisterFromIndex(int unitAddr, int dataAddress, int count)
-            throws ModbusProtocolException {
-
+    private CompletableFuture<ByteBuffer> jablotronReadRegisterFromIndexAsync(int unitAddr, int dataAddress,
+            int count) {
         if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
+            return notConnected();
         }
 
-        byte[] resp;
-        /*
-         * construct the command issue and get results, putting the results
-         * away at index and then incrementing index for the next command
-         */
-        byte[] cmd = new byte[6];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = (byte) (ModbusBindingClass.READ_REGISTER_FROM_INDEX & 0xFF); // Strip Jablotron special function
-        // high
-        // byte
-        cmd[2] = Jablotron.getCategory(dataAddress);
-        cmd[3] = Jablotron.getIndex(dataAddress);
-        cmd[4] = Jablotron.getPage(dataAddress);
-        cmd[5] = (byte) count;
-
         /*
-         * send the message and get the response
+         * construct the command issue and get results
          */
-        resp = msgTransaction(cmd, CUSTOMCODE_JABLOTRON);
+        // Strip Jablotron special function high byte
+        ModbusRequest request = newRequest(unitAddr, ModbusBindingClass.READ_REGISTER_FROM_INDEX & 0xFF)
+                .put(Jablotron.getCategory(dataAddress)).put(Jablotron.getIndex(dataAddress))
+                .put(Jablotron.getPage(dataAddress)).put(count);
 
         /*
          * process the response (address & CRC already confirmed)
          */
-        if (resp.length < 3 || resp.length < (resp[2] & 0xff) + 3) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
-        if ((resp[2] & 0xff) == count * 2) {
-            return Arrays.copyOfRange(resp, 3, 3 + count * 2);
-        } else {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_ADDRESS);
-        }
+        return transactionAsync(request, CUSTOMCODE_JABLOTRON, resp -> registersOf(resp, count));
     }
 
-    private void jablotronWriteRegisterToIndex(int unitAddr, int dataAddress, byte[] data)
-            throws ModbusProtocolException {
+    private CompletableFuture<Void> jablotronWriteRegisterToIndexAsync(int unitAddr, int dataAddress, byte[] data) {
         if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
+            return notConnected();
         }
 
         int localCnt = data.length / 2;
@@ -164,46 +153,37 @@ public class ModbusFunctionJablotron extends ModbusFunction {
         /*
          * construct the command, issue and verify response
          */
-        byte[] cmd = new byte[dataLength + 6];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = (byte) ModbusBindingClass.WRITE_REGISTER_TO_INDEX & 0xFF;
-        cmd[2] = Jablotron.getCategory(dataAddress);
-        cmd[3] = Jablotron.getIndex(dataAddress);
-        cmd[4] = Jablotron.getPage(dataAddress);
-        cmd[5] = (byte) (localCnt & 0xff);
-
         // put the data on the command
-        for (int index = 0; index < data.length; index++) {
-            cmd[6 + index] = data[index];
-        }
+        ModbusRequest request = newRequest(unitAddr, ModbusBindingClass.WRITE_REGISTER_TO_INDEX & 0xFF)
+                .put(Jablotron.getCategory(dataAddress)).put(Jablotron.getIndex(dataAddress))
+                .put(Jablotron.getPage(dataAddress)).put(localCnt).put(data);
 
-        /*
-         * send the message and get the response
-         */
-        byte[] resp = msgTransaction(cmd, CUSTOMCODE_JABLOTRON);
-
-        /*
-         * process the response
-         */
-        if (resp.length < 6) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
+        return transactionAsync(request, CUSTOMCODE_JABLOTRON, resp -> {
+            /*
+             * process the response
+             */
+            if (resp.length < 6) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+            }
 
-        if ((cmd[0] != resp[0]) || // SlaveId
-                (cmd[1] != resp[1]) || // Function Code test
-                (cmd[2] != dataLength)) // Byte Count test
-        {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
+            if ((request.get(0) != resp[0]) || // SlaveId
+                    (request.get(1) != resp[1]) || // Function Code test
+                    (request.get(2) != dataLength)) // Byte Count test
+            {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+            }
+            return null;
+        });
     }
 
-    private void jablotronWriteRegisterMaskedToIndex(int unitAddr, int dataAddress, BitVector data, BitVector mask)
-            throws ModbusProtocolException {
+    private CompletableFuture<Void> jablotronWriteRegisterMaskedToIndexAsync(int unitAddr, int dataAddress,
+            BitVector data, BitVector mask) {
         if (!isConnected()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.NOT_CONNECTED);
+            return notConnected();
         }
         if (data.size() != mask.size()) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+            return CompletableFuture
+                    .failedFuture(new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE));
         }
 
         // Make sure we have an even number of bytes
@@ -216,38 +196,29 @@ public class ModbusFunctionJablotron extends ModbusFunction {
          * construct the command, issue and verify response
          */
 
-        byte[] cmd = new byte[data.byteSize() * 2 + 6];
-        cmd[0] = (byte) unitAddr;
-        cmd[1] = (byte) ModbusBindingClass.WRITE_REGISTER_MASKED_TO_INDEX & 0x00FF;
-        cmd[2] = Jablotron.getCategory(dataAddress);
-        cmd[3] = Jablotron.getIndex(dataAddress);
-        cmd[4] = Jablotron.getPage(dataAddress);
-        cmd[5] = (byte) data.regSize();
+        ModbusRequest request = newRequest(unitAddr, ModbusBindingClass.WRITE_REGISTER_MASKED_TO_INDEX & 0x00FF)
+                .put(Jablotron.getCategory(dataAddress)).put(Jablotron.getIndex(dataAddress))
+                .put(Jablotron.getPage(dataAddress)).put(data.regSize());
         for (int i = 0; i < data.regSize(); i++) {
             int index2 = i * 2;
-            int index4 = i * 4;
-            cmd[index4 + 6] = data.getByte(index2 + 1);
-            cmd[index4 + 7] = data.getByte(index2);
-            cmd[index4 + 8] = mask.getByte(index2 + 1);
-            cmd[index4 + 9] = mask.getByte(index2);
+            request.put(data.getByte(index2 + 1)).put(data.getByte(index2));
+            request.put(mask.getByte(index2 + 1)).put(mask.getByte(index2));
         }
 
-        /*
-         * send the message and get the response
-         */
-        byte[] resp = msgTransaction(cmd, CUSTOMCODE_JABLOTRON);
-
-        /*
-         * process the response
-         */
-        if (resp.length < 4) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
+        return transactionAsync(request, CUSTOMCODE_JABLOTRON, resp -> {
+            /*
+             * process the response
+             */
+            if (resp.length < 4) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+            }
 
-        // Test for correct unitAddress, FunctionCode and dataLength
-        if ((cmd[0] != resp[0]) || (cmd[1] != resp[1]) || (resp[2] != data.byteSize())) {
-            throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
-        }
+            // Test for correct unitAddress, FunctionCode and dataLength
+            if ((request.get(0) != resp[0]) || (request.get(1) != resp[1]) || (resp[2] != data.byteSize())) {
+                throw new ModbusProtocolException(ModbusProtocolErrorCode.INVALID_DATA_TYPE);
+            }
+            return null;
+        });
     }
 
     /**
@@ -268,13 +239,13 @@ public class ModbusFunctionJablotron extends ModbusFunction {
      *                                     the cause of the exception
      */
     @Override
-    public void writeSingleRegister(int unitAddr, int dataAddress, byte[] data) throws ModbusProtocolException {
-        jablotronWriteRegisterToIndex(unitAddr, dataAddress, data);
+    public CompletableFuture<Void> writeSingleRegisterAsync(int unitAddr, int dataAddress, byte[] data) {
+        return jablotronWriteRegisterToIndexAsync(unitAddr, dataAddress, data);
     }
 
     @Override
-    public void writeMultipleRegisters(int unitAddr, int dataAddress, byte[] data) throws ModbusProtocolException {
-        jablotronWriteRegisterToIndex(unitAddr, dataAddress, data);
+    public CompletableFuture<Void> writeMultipleRegistersAsync(int unitAddr, int dataAddress, byte[] data) {
+        return jablotronWriteRegisterToIndexAsync(unitAddr, dataAddress, data);
     }
 
     /**
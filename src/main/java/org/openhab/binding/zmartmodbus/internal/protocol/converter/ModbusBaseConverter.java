@@ -12,20 +12,15 @@
  */
 package org.openhab.binding.zmartmodbus.internal.protocol.converter;
 
-import static org.openhab.binding.zmartmodbus.internal.util.Register.floatToRegisters;
-import static org.openhab.binding.zmartmodbus.internal.util.Register.floatToRegistersSwap;
-import static org.openhab.binding.zmartmodbus.internal.util.Register.intToRegisters;
-import static org.openhab.binding.zmartmodbus.internal.util.Register.intToRegistersSwap;
+import static org.openhab.binding.zmartmodbus.internal.util.Register.copyOfRange;
 import static org.openhab.binding.zmartmodbus.internal.util.Register.registerToShort;
+import static org.openhab.binding.zmartmodbus.internal.util.Register.registerView;
 import static org.openhab.binding.zmartmodbus.internal.util.Register.registerToUnsignedShort;
-import static org.openhab.binding.zmartmodbus.internal.util.Register.registersToFloat;
-import static org.openhab.binding.zmartmodbus.internal.util.Register.registersToFloatSwap;
-import static org.openhab.binding.zmartmodbus.internal.util.Register.registersToInt;
 import static org.openhab.binding.zmartmodbus.internal.util.Register.registersToIntSwap;
 import static org.openhab.binding.zmartmodbus.internal.util.Register.registersToUnsignedInt;
-import static org.openhab.binding.zmartmodbus.internal.util.Register.registersToUnsignedIntSwap;
 import static org.openhab.binding.zmartmodbus.internal.util.Register.shortToRegister;
 import static org.openhab.binding.zmartmodbus.internal.util.Register.unsignedByteToInt;
+import static org.openhab.binding.zmartmodbus.internal.util.RegisterCodec.*;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -38,6 +33,8 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
 
 import javax.measure.Unit;
 
@@ -59,6 +56,7 @@ import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusValueClass;
 import org.openhab.binding.zmartmodbus.ModbusBindingClass.WeekDayClass;
 import org.openhab.binding.zmartmodbus.internal.controller.ModbusThingChannel;
 import org.openhab.binding.zmartmodbus.internal.util.BitVector;
+import org.openhab.binding.zmartmodbus.internal.util.RegisterCodec.WordOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,157 +69,259 @@ public class ModbusBaseConverter {
 
     private final static Logger logger = LoggerFactory.getLogger(ModbusBaseConverter.class);
 
-    public static State fromModbusToState(ModbusThingChannel channel, Object payload) {
+    // Time zone of the units reporting local time
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+
+    /**
+     * @return the payload bytes [from, to) a channel is converted from (for coils the byte holding the bit)
+     */
+    public static int[] payloadWindow(ModbusThingChannel channel) {
         int index = channel.getIndex() * channel.getValueClass().size();
-        State state = UnDefType.UNDEF;
-        // logger.debug("{} {} {}", state, channel.getUID().getClass(),
-        // channel.getValueClass());
         switch (channel.getValueClass()) {
         case Bit:
-            state = (OnOffType) (((BitVector) payload).getBit(channel.getIndex()) == true ? OnOffType.ON
-                    : OnOffType.OFF);
-            break;
+            return new int[] { channel.getIndex() / 8, channel.getIndex() / 8 + 1 };
+        case DOS_time:
+            return new int[] { index, index + 4 };
+        case Nilan_text:
+            return new int[] { index + 4, index + 14 };
+        case Jablotron_schedule:
+            // Reads the week from a fixed position
+            return new int[] { 0, Integer.MAX_VALUE };
+        default:
+            return new int[] { index, index + channel.getValueClass().size() };
+        }
+    }
+
+    public static State fromModbusToState(ModbusThingChannel channel, Object payload) {
+        return compileDecoder(channel).decode(payload);
+    }
+
+    /**
+     * Build the decoder of a channel. Index, unit and scale are resolved here, once, so converting a payload is a
+     * single call without looking at the value class again. Channels holding a single number get a
+     * {@link ModbusRawDecoder}.
+     *
+     * @return decoder turning a payload (register view or BitVector) into the state of the channel
+     */
+    public static ModbusChannelDecoder compileDecoder(ModbusThingChannel channel) {
+        final int index = channel.getIndex() * channel.getValueClass().size();
+        final int bit = channel.getIndex();
+        final NumberState number = new NumberState(channel);
+        final WordOrder order = wordOrder(channel);
+
+        switch (channel.getValueClass()) {
+        case Bit:
+            return raw(payload -> ((BitVector) payload).getBit(bit) ? 1 : 0, ModbusBaseConverter::onOff);
         case OnOff16:
-            state = (OnOffType) ((registerToShort((byte[]) payload, index) == 0) ? OnOffType.OFF : OnOffType.ON);
-            break;
+            return raw(payload -> (registerToShort(registerView(payload), index) == 0) ? 0 : 1,
+                    ModbusBaseConverter::onOff);
         case Int8:
-            state = new DecimalType(unsignedByteToInt(((byte[]) payload)[index]));
-            break;
+            return raw(payload -> unsignedByteToInt(registerView(payload), index), number::of);
         case Uint16:
-            state = new DecimalType(registerToUnsignedShort((byte[]) payload, index));
-            break;
+            return raw(payload -> getUint16(registerView(payload), index, order), number::of);
         case Int16:
-            state = new DecimalType(registerToShort((byte[]) payload, index));
-            break;
+            return raw(payload -> getInt16(registerView(payload), index, order), number::of);
         case Uint32:
-            state = new DecimalType(registersToUnsignedInt((byte[]) payload, index));
-            break;
+        case Uint32_swap:
+            // Unsigned 32 bit values are passed on as int
         case Int32:
-            state = new DecimalType(registersToInt((byte[]) payload, index));
-            break;
-        case Float32:
-            state = new DecimalType(registersToFloat((byte[]) payload, index));
-            break;
         case Int32_swap:
-            state = new DecimalType(registersToIntSwap((byte[]) payload, index));
-            break;
-        case Uint32_swap:
-            state = new DecimalType(registersToUnsignedIntSwap((byte[]) payload, index));
-            break;
+            return raw(payload -> getInt32(registerView(payload), index, order), number::of);
+        case Float32:
         case Float32_swap:
-            state = new DecimalType(registersToFloatSwap((byte[]) payload, index));
-            break;
+            return raw(payload -> bits(getFloat32(registerView(payload), index, order)), number::ofBits);
+        case Int64:
+            return raw(payload -> getInt64(registerView(payload), index, order), number::of);
+        case Float64:
+            return raw(payload -> bits(getFloat64(registerView(payload), index, order)), number::ofBits);
         case Jablotron_power16:
-            state = new DecimalType((float) registerToUnsignedShort((byte[]) payload, index) * 24 / 0.54);
-            break;
+            return raw(payload -> bits((float) registerToUnsignedShort(registerView(payload), index) * 24 / 0.54),
+                    number::ofBits);
         case Jablotron_power32:
-            state = new DecimalType((float) registersToIntSwap((byte[]) payload, index) * 24 / 0.54);
-            break;
+            return raw(payload -> bits((float) registersToIntSwap(registerView(payload), index) * 24 / 0.54),
+                    number::ofBits);
         case Jablotron_modeset:
-            state = new DecimalType((int) ((BitVector) payload).getByte(index) & 0x0F);
-            break;
+            return raw(payload -> (int) ((BitVector) payload).getByte(index) & 0x0F, number::of);
         case Custom8_4bit:
-            state = new DecimalType(unsignedByteToInt(((byte[]) payload)[index]) & 0x0F);
-            break;
+            return raw(payload -> unsignedByteToInt(registerView(payload), index) & 0x0F, number::of);
         case Custom8_5bit:
-            state = new DecimalType(unsignedByteToInt(((byte[]) payload)[index]) & 0x1F);
-            break;
+            return raw(payload -> unsignedByteToInt(registerView(payload), index) & 0x1F, number::of);
         case Custom8_6bit:
-            state = new DecimalType(unsignedByteToInt(((byte[]) payload)[index]) & 0x3F);
-            break;
+            return raw(payload -> unsignedByteToInt(registerView(payload), index) & 0x3F, number::of);
         case Custom8_7bit:
-            state = new DecimalType(unsignedByteToInt(((byte[]) payload)[index]) & 0x7F);
-            break;
+            return raw(payload -> unsignedByteToInt(registerView(payload), index) & 0x7F, number::of);
         case Jablotron_RSSI:
-            state = new DecimalType(unsignedByteToInt(((byte[]) payload)[index]) * 0.5 - 74);
-            break;
+            return raw(payload -> bits(unsignedByteToInt(registerView(payload), index) * 0.5 - 74), number::ofBits);
         case Jablotron_battery:
-            state = new DecimalType(unsignedByteToInt(((byte[]) payload)[index]) * 10);
-            break;
+            return raw(payload -> unsignedByteToInt(registerView(payload), index) * 10, number::of);
         case Jablotron_schedule:
-            JsonObject schedule = new JsonObject();
-            schedule.addProperty("kind", unsignedByteToInt(((byte[]) payload)[index]) & 0x7F);
-            for (WeekDayClass day : WeekDayClass.values()) {
-                int startIndexInclusive = 2 + day.ordinal() * 6;
-                int endIndexExclusive = startIndexInclusive + 6;
-
-                BitVector bv = BitVector.createBitVector(
-                        Arrays.copyOfRange(((byte[]) payload), startIndexInclusive, endIndexExclusive));
-                schedule.addProperty(day.getDay(), bv.toString());
-            }
-            state = new StringType(schedule.toString());
-            break;
+            return payload -> jablotronSchedule(registerView(payload), index);
+        case Nilan_text:
+            return payload -> nilanText(registerView(payload), index);
+        case Nilan_time:
+            return payload -> nilanTime(registerView(payload), index);
+        case DOS_time:
+            return payload -> dosTime(registerView(payload), index);
         case Jablotron_elementChangeFlags:
         case Jablotron_channelChangeFlags:
             // We should never arrive here - it's handled in ModbusFactory
-            break;
-        case Nilan_text:
-            int startIndex = index + 4;
-            int endIndex = startIndex + 10;
-
-            byte[] textAsByte = Arrays.copyOfRange((byte[]) payload, startIndex, endIndex);
-            // Swap the bytes
-            for (int i = 0; i < 8; i = i + 2) {
-                byte b = textAsByte[i];
-                textAsByte[i] = textAsByte[i + 1];
-                textAsByte[i + 1] = b;
+        default:
+            return payload -> UnDefType.UNDEF;
+        }
+    }
+
+    /**
+     * @return the word order set for the channel, otherwise the one of its value class
+     */
+    public static WordOrder wordOrder(ModbusThingChannel channel) {
+        if (channel.getWordOrder() != null) {
+            return channel.getWordOrder();
+        }
+        switch (channel.getValueClass()) {
+        case Int32_swap:
+        case Uint32_swap:
+        case Float32_swap:
+            return WordOrder.LittleBig;
+        default:
+            return WordOrder.BigBig;
+        }
+    }
+
+    private static ModbusRawDecoder raw(ToLongFunction<Object> reader, LongFunction<State> state) {
+        return new ModbusRawDecoder() {
+            @Override
+            public long raw(Object payload) {
+                return reader.applyAsLong(payload);
             }
 
-            // Do character set conversion
-            byte b;
-            for (int i = 0; i < 8; i++) {
-                switch ((byte) textAsByte[i]) {
-                case (byte) 0xDF:
-                    b = (byte) 186;
-                    break; //
-                case (byte) 0x09:
-                    b = (byte) 216;
-                    break; // Ø
-                default:
-                    b = textAsByte[i];
+            @Override
+            public State toState(long raw) {
+                return state.apply(raw);
+            }
+        };
+    }
 
-                }
-                textAsByte[i] = b;
+    private static long bits(double value) {
+        return Double.doubleToLongBits(value);
+    }
+
+    private static State onOff(long raw) {
+        return (raw == 0) ? OnOffType.OFF : OnOffType.ON;
+    }
+
+    /**
+     * Turns a number read from the payload into the state of a channel, unit and scale are resolved once
+     */
+    private static final class NumberState {
+        private final boolean quantity;
+        private final @Nullable Unit<?> unit;
+        private final int scale;
+
+        NumberState(ModbusThingChannel channel) {
+            quantity = channel.getUnitsOfMeasure() != null;
+            unit = quantity ? channel.getUnitsOfMeasure().getApi() : null;
+            scale = channel.getScale();
+        }
+
+        State of(long value) {
+            if (!quantity) {
+                return new DecimalType(value);
             }
-            BitVector attrib = new BitVector(16);
-            attrib.setBytes(Arrays.copyOfRange(textAsByte, 8, 2));
-            // logger.info("Attrib: {}", attrib.toString());
+            return new QuantityType<>(
+                    (scale >= 0) ? BigDecimal.valueOf(value, scale) : BigDecimal.valueOf(value).movePointLeft(scale),
+                    unit);
+        }
 
-            state = new StringType(new String(Arrays.copyOfRange(textAsByte, 0, 8), StandardCharsets.ISO_8859_1));
-            break;
-        case Nilan_time:
-            int second = registerToShort((byte[]) payload, index);
-            int minute = registerToShort((byte[]) payload, index + 2);
-            int hour = registerToShort((byte[]) payload, index + 4);
-            int day = registerToShort((byte[]) payload, index + 6);
-            int month = registerToShort((byte[]) payload, index + 8);
-            int year = registerToShort((byte[]) payload, index + 10);
-            try {
-                state = new DateTimeType(
-                        LocalDateTime.of(year, month, day, hour, minute, second).atZone(ZoneId.of("Europe/Paris")));
-            } catch (DateTimeException e) {
-                state = UnDefType.UNDEF;
+        State of(double value) {
+            if (!quantity) {
+                return new DecimalType(value);
             }
-            break;
-        case DOS_time:
-            long dosTime = registersToUnsignedInt((byte[]) payload, index);
-            try {
-                state = new DateTimeType(LocalDateTime
-                        .of((int) (((dosTime >> 25) & 0x7f) + 1980), (int) (((dosTime >> 21) & 0x0f) - 1),
-                                (int) ((dosTime >> 16) & 0x1f), (int) ((dosTime >> 11) & 0x1f),
-                                (int) ((dosTime >> 5) & 0x3f), (int) ((dosTime << 1) & 0x3e))
-                        .atZone(ZoneId.of("Europe/Paris")));
-            } catch (DateTimeException e) {
-                state = UnDefType.UNDEF;
+            // Units of measure are applied to the whole number
+            return of((long) value);
+        }
+
+        State ofBits(long bits) {
+            return of(Double.longBitsToDouble(bits));
+        }
+    }
+
+    private static State jablotronSchedule(ByteBuffer registers, int index) {
+        JsonObject schedule = new JsonObject();
+        schedule.addProperty("kind", unsignedByteToInt(registers, index) & 0x7F);
+        for (WeekDayClass day : WeekDayClass.values()) {
+            int startIndexInclusive = 2 + day.ordinal() * 6;
+            int endIndexExclusive = startIndexInclusive + 6;
+
+            BitVector bv = BitVector.createBitVector(
+                    copyOfRange(registers, startIndexInclusive, endIndexExclusive));
+            schedule.addProperty(day.getDay(), bv.toString());
+        }
+        return new StringType(schedule.toString());
+    }
+
+    private static State nilanText(ByteBuffer registers, int index) {
+        int startIndex = index + 4;
+        int endIndex = startIndex + 10;
+
+        byte[] textAsByte = copyOfRange(registers, startIndex, endIndex);
+        // Swap the bytes
+        for (int i = 0; i < 8; i = i + 2) {
+            byte b = textAsByte[i];
+            textAsByte[i] = textAsByte[i + 1];
+            textAsByte[i + 1] = b;
+        }
+
+        // Do character set conversion
+        byte b;
+        for (int i = 0; i < 8; i++) {
+            switch ((byte) textAsByte[i]) {
+            case (byte) 0xDF:
+                b = (byte) 186;
+                break; //
+            case (byte) 0x09:
+                b = (byte) 216;
+                break; // Ø
+            default:
+                b = textAsByte[i];
+
             }
-            break;
-        default:
-            break;
+            textAsByte[i] = b;
         }
-        if ((channel.getUnitsOfMeasure() != null) && (state instanceof Number)) {
-            state = (new QuantityType<>(
-                    BigDecimal.valueOf(((Number) state).longValue()).movePointLeft(channel.getScale()),
-                    channel.getUnitsOfMeasure().getApi()));
+        BitVector attrib = new BitVector(16);
+        attrib.setBytes(Arrays.copyOfRange(textAsByte, 8, 2));
+        // logger.info("Attrib: {}", attrib.toString());
+
+        return new StringType(new String(Arrays.copyOfRange(textAsByte, 0, 8), StandardCharsets.ISO_8859_1));
+    }
+
+    private static State nilanTime(ByteBuffer registers, int index) {
+        State state;
+        int second = registerToShort(registers, index);
+        int minute = registerToShort(registers, index + 2);
+        int hour = registerToShort(registers, index + 4);
+        int day = registerToShort(registers, index + 6);
+        int month = registerToShort(registers, index + 8);
+        int year = registerToShort(registers, index + 10);
+        try {
+            state = new DateTimeType(
+                    LocalDateTime.of(year, month, day, hour, minute, second).atZone(ZONE));
+        } catch (DateTimeException e) {
+            state = UnDefType.UNDEF;
+        }
+        return state;
+    }
+
+    private static State dosTime(ByteBuffer registers, int index) {
+        State state;
+        long dosTime = registersToUnsignedInt(registers, index);
+        try {
+            state = new DateTimeType(LocalDateTime
+                    .of((int) (((dosTime >> 25) & 0x7f) + 1980), (int) (((dosTime >> 21) & 0x0f) - 1),
+                            (int) ((dosTime >> 16) & 0x1f), (int) ((dosTime >> 11) & 0x1f),
+                            (int) ((dosTime >> 5) & 0x3f), (int) ((dosTime << 1) & 0x3e))
+                    .atZone(ZONE));
+        } catch (DateTimeException e) {
+            state = UnDefType.UNDEF;
         }
         return state;
     }
@@ -262,21 +362,23 @@ public class ModbusBaseConverter {
             break;
         case Uint16:
         case Int16:
-            payload = shortToRegister(value.shortValue());
+            payload = int16ToRegisters(value.shortValue(), wordOrder(channel));
             break;
         case Uint32:
         case Int32:
-            payload = intToRegisters(value.intValue());
-            break;
-        case Float32:
-            payload = floatToRegisters(value.floatValue());
-            break;
         case Int32_swap:
         case Uint32_swap:
-            payload = intToRegistersSwap(value.intValue());
+            payload = int32ToRegisters(value.intValue(), wordOrder(channel));
             break;
+        case Float32:
         case Float32_swap:
-            payload = floatToRegistersSwap(value.floatValue());
+            payload = float32ToRegisters(value.floatValue(), wordOrder(channel));
+            break;
+        case Int64:
+            payload = int64ToRegisters(value.longValue(), wordOrder(channel));
+            break;
+        case Float64:
+            payload = float64ToRegisters(value.doubleValue(), wordOrder(channel));
             break;
         case Jablotron_power16:
         case Jablotron_power32:
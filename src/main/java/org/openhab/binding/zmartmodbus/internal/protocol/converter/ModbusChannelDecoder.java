@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.protocol.converter;
+
+import org.openhab.core.types.State;
+
+/**
+ * The {@link ModbusChannelDecoder} converts the payload of a dataset into the state of one channel. It is built once
+ * per channel by {@link ModbusBaseConverter#compileDecoder}, with everything that does not depend on the payload
+ * already worked out.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@FunctionalInterface
+public interface ModbusChannelDecoder {
+
+    /**
+     * @param payload register view (or byte[]) of registers or BitVector of coils
+     * @return the state of the channel
+     */
+    State decode(Object payload);
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.protocol.converter;
+
+import org.openhab.core.types.State;
+
+/**
+ * The {@link ModbusRawDecoder} is a {@link ModbusChannelDecoder} for channels holding a single number. The number is
+ * read as a raw long first (the bits of a floating point value), so it can be compared with the previous one before
+ * a state is built.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public interface ModbusRawDecoder extends ModbusChannelDecoder {
+
+    /**
+     * @param payload register view (or byte[]) of registers or BitVector of coils
+     * @return the raw value of the channel
+     */
+    long raw(Object payload);
+
+    /**
+     * @param raw a value returned by {@link #raw(Object)}
+     * @return the state of the channel
+     */
+    State toState(long raw);
+
+    @Override
+    default State decode(Object payload) {
+        return toState(raw(payload));
+    }
+}
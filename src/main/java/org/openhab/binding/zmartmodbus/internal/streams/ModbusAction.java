@@ -44,6 +44,7 @@ public class ModbusAction {
     private ModbusMessageClass messageClass = ModbusMessageClass.Unknown;
     private ModbusActionClass actionClass = ModbusActionClass.Undef;  // (read or write)
     private ModbusFeedRepeat feedRepeat = ModbusFeedRepeat.Unknown;    // One time or repeated modbus message
+    private long pollInterval = 0;              // Polling interval (ms) when feedRepeat is Interval
     private int start = 0;                      // Start address
     private int length = 0;                 // Address length in words or coils
     @Nullable Object payload = null;          // Object used for writing to Modbus
@@ -54,6 +55,7 @@ public class ModbusAction {
     private int offset = 0;
     private ModbusReportOn reportOn = ModbusReportOn.Unknown; // Only report on change
     private boolean internal = false;
+    private ModbusAction origin = this; // The action a retry was copied from
 
     private AtomicInteger retryCount = new AtomicInteger(0);
 
@@ -79,6 +81,7 @@ public class ModbusAction {
         this(dataSet.getThingUID(),dataSet.getDataSetId(), dataSet.getMessageClass(), actionClass, dataSet.getFeedRepeat(),
         dataSet.getStart(), dataSet.getLength(), dataSet.getOffset(), dataSet.getReportOn());
         this.internal = dataSet.isInternal();
+        this.pollInterval = dataSet.getPollInterval();
     }
 
     public ModbusAction(ModbusDataSet dataSet, ModbusActionClass actionClass, ModbusFeedRepeat feedRepeat) {
@@ -86,6 +89,27 @@ public class ModbusAction {
         this.feedRepeat = feedRepeat;
     }
 
+    /**
+     * Read of another address range of the same unit, repeated like the given action
+     */
+    protected ModbusAction(ModbusAction action, int start, int length) {
+        this(action.thingUID, action.dataSetId, action.messageClass, ModbusActionClass.Read, action.feedRepeat, start,
+                length, 0, action.reportOn);
+        this.pollInterval = action.pollInterval;
+    }
+
+    /**
+     * Copy of an action, sent once
+     */
+    protected ModbusAction(ModbusAction action) {
+        this(action.thingUID, action.dataSetId, action.messageClass, action.actionClass, ModbusFeedRepeat.Once,
+                action.start, action.length, action.offset, action.reportOn);
+        this.pollInterval = action.pollInterval;
+        this.payload = action.payload;
+        this.internal = action.internal;
+        this.origin = action.origin;
+    }
+
     public ModbusAction(ModbusDataSet dataSet, int index, ModbusActionClass actionClass, ModbusFeedRepeat feedRepeat,
             Object payload) {
         // Used for creating ModbusMessage of Action write
@@ -161,12 +185,16 @@ public class ModbusAction {
         return payload;
     }
 
+    public void setPayload(Object payload) {
+        this.payload = payload;
+    }
+
     public ModbusFeedRepeat getFeedRepeat() {
         return feedRepeat;
     }
 
-    public void setFeedRepeat(ModbusFeedRepeat feedRepeat) {
-        this.feedRepeat = feedRepeat;
+    public long getPollInterval() {
+        return pollInterval;
     }
 
     public ModbusMessageClass getMessageClass() {
@@ -185,6 +213,22 @@ public class ModbusAction {
         this.internal = internal;
     }
 
+    /**
+     * Periodic actions are shared with the action feed, so they are sent again as a copy
+     *
+     * @return a copy of this action, sent once
+     */
+    public ModbusAction copyOnce() {
+        return new ModbusAction(this);
+    }
+
+    /**
+     * @return the action this one was copied from, itself if it is not a copy
+     */
+    public ModbusAction getOrigin() {
+        return origin;
+    }
+
     public boolean retry() {
         if (retryCount.getAndIncrement() < DEFAULT_RETRIES) {
             logger.debug("Thing {}: Retry message {} {} {}", thingUID, dataSetId, messageClass, actionClass);
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.streams;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read action covering the address range of several datasets of the same unit and message class. The response
+ * is split back into one {@link ModbusMessage} per member action.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public class ModbusActionBlock extends ModbusAction {
+
+    private final List<ModbusAction> members;
+
+    /**
+     * @param first member with the lowest address
+     * @param start first address of the block (for coils including the bit offset)
+     * @param length number of registers or coils in the block
+     * @param members the actions read by this block
+     */
+    public ModbusActionBlock(ModbusAction first, int start, int length, List<ModbusAction> members) {
+        super(first, start, length);
+        this.members = Collections.unmodifiableList(members);
+    }
+
+    private ModbusActionBlock(ModbusActionBlock block) {
+        super(block);
+        this.members = block.members;
+    }
+
+    @Override
+    public ModbusAction copyOnce() {
+        return new ModbusActionBlock(this);
+    }
+
+    public List<ModbusAction> getMembers() {
+        return members;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + ", block " + getStart() + "+" + getLength() + " (" + members.size() + " datasets)";
+    }
+}
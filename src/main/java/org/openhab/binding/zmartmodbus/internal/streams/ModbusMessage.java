@@ -26,8 +26,11 @@ package org.openhab.binding.zmartmodbus.internal.streams;
 public class ModbusMessage {
 
     private int dataSetId;
+    // Read-only ByteBuffer view of registers, BitVector of coils
     private Object payload = null;
     private boolean internal = true;
+    // Read again by the next poll, so it may be dropped when the event thread falls behind
+    private boolean periodic = false;
 
     /**
      * Constructor. Creates a new instance of the ModbusMessage class.
@@ -36,10 +39,15 @@ public class ModbusMessage {
     }
 
     public ModbusMessage(final int dataSetId, final Object payload, final boolean internal) {
+        this(dataSetId, payload, internal, false);
+    }
+
+    public ModbusMessage(final int dataSetId, final Object payload, final boolean internal, final boolean periodic) {
         super();
         this.dataSetId = dataSetId;
         this.payload = payload;
         this.internal = internal;
+        this.periodic = periodic;
     }
 
     public ModbusMessage(final int dataSetId, final Object payload) {
@@ -62,6 +70,10 @@ public class ModbusMessage {
         this.internal = internal;
     }
 
+    public boolean isPeriodic() {
+        return periodic;
+    }
+
     public boolean isLast() {
         return false;
     }
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.transceiver;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link ModbusAsciiFrameDecoder} turns the characters of an ASCII frame (':', hex digits, LRC, CR LF) into the
+ * binary frame while they arrive. Hex digits are looked up in a table and the LRC is summed up on the way, so a
+ * frame is decoded in one pass without allocating. A ':' always starts a new frame, anything that is not a hex digit
+ * inside a frame drops it. A frame with a wrong LRC is counted and dropped as well, decoding resyncs on the next ':'.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusAsciiFrameDecoder {
+
+    private static final int MAX_FRAME_LENGTH = 256; // address, function code, data and LRC
+
+    // Value of a hex digit, -1 for other characters
+    private static final byte[] HEX_VALUE = new byte[256];
+
+    static {
+        Arrays.fill(HEX_VALUE, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUE['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUE['A' + i] = (byte) (10 + i);
+            HEX_VALUE['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private enum State {
+        IDLE, // waiting for ':'
+        HIGH, // waiting for the high digit of a byte
+        LOW, // waiting for the low digit of a byte
+        LF // got CR, waiting for LF
+    }
+
+    private final byte[] frame = new byte[MAX_FRAME_LENGTH];
+    private State state = State.IDLE;
+    private int length = 0;
+    private int high = 0;
+    private int lrc = 0;
+    private int characters = 0;
+    private int lrcErrors = 0;
+
+    /**
+     * Prepare for a new response
+     */
+    public void reset() {
+        state = State.IDLE;
+        length = 0;
+        lrc = 0;
+        characters = 0;
+        lrcErrors = 0;
+    }
+
+    /**
+     * Add a received character
+     *
+     * @return true when a frame with a correct LRC is complete, it is then found in {@link #frame()}
+     */
+    public boolean put(byte c) {
+        if (c == ':') {
+            state = State.HIGH;
+            length = 0;
+            lrc = 0;
+            characters = 1;
+            return false;
+        }
+        if (state == State.IDLE) {
+            return false;
+        }
+        characters++;
+        int value = HEX_VALUE[c & 0xff];
+        switch (state) {
+            case HIGH:
+                if (value >= 0) {
+                    high = value;
+                    state = State.LOW;
+                } else if (c == '\r') {
+                    state = State.LF;
+                } else {
+                    state = State.IDLE;
+                }
+                return false;
+            case LOW:
+                if (value < 0 || length >= frame.length) {
+                    state = State.IDLE;
+                    return false;
+                }
+                int b = (high << 4) | value;
+                frame[length++] = (byte) b;
+                lrc += b;
+                state = State.HIGH;
+                return false;
+            case LF:
+                state = State.IDLE;
+                if (c != '\n' || length == 0) {
+                    return false;
+                }
+                // The sum of all bytes including the LRC is 0
+                if ((lrc & 0xff) != 0) {
+                    // Wait for the next frame, the response may still follow
+                    lrcErrors++;
+                    return false;
+                }
+                length--;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the binary frame (without LRC), valid until the next character is put
+     */
+    public byte[] frame() {
+        return frame;
+    }
+
+    /**
+     * @return number of bytes in {@link #frame()}, without the LRC
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return number of complete frames dropped for a wrong LRC since {@link #reset()}
+     */
+    public int lrcErrors() {
+        return lrcErrors;
+    }
+
+    /**
+     * @return number of characters received of the current frame
+     */
+    public int characters() {
+        return characters;
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.transceiver;
+
+import java.nio.ByteBuffer;
+
+import org.openhab.binding.zmartmodbus.internal.util.Crc16;
+
+/**
+ * The {@link ModbusRequest} is a reusable buffer a request (unit id, function code and data) is encoded into. Room
+ * is kept in front of the message for the MBAP header and behind it for the CRC, so each transceiver frames the
+ * request in place without copying. Requests are taken from and given back to a {@link ModbusRequestPool}.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public class ModbusRequest {
+
+    // MBAP header without the unit id: transaction id, protocol id and length
+    public static final int HEADER_LENGTH = 6;
+    // Unit id and PDU
+    public static final int MAX_MESSAGE_LENGTH = 254;
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+
+    private final byte[] buffer = new byte[HEADER_LENGTH + MAX_MESSAGE_LENGTH + 2];
+    private final ByteBuffer frame = ByteBuffer.wrap(buffer);
+    private byte[] ascii = null;
+    private int length = 0;
+
+    /**
+     * Start a new request, anything encoded before is dropped
+     */
+    public ModbusRequest start(int unitAddr, int functionCode) {
+        length = 0;
+        return put(unitAddr).put(functionCode);
+    }
+
+    /**
+     * Append the low byte of the value
+     */
+    public ModbusRequest put(int value) {
+        if (length >= MAX_MESSAGE_LENGTH) {
+            throw new IllegalStateException("Request longer than " + MAX_MESSAGE_LENGTH + " bytes");
+        }
+        buffer[HEADER_LENGTH + length++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Append the value as two bytes, high byte first
+     */
+    public ModbusRequest putShort(int value) {
+        return put(value >> 8).put(value);
+    }
+
+    public ModbusRequest put(byte[] data) {
+        return put(data, 0, data.length);
+    }
+
+    public ModbusRequest put(byte[] data, int offset, int count) {
+        if (length + count > MAX_MESSAGE_LENGTH) {
+            throw new IllegalStateException("Request longer than " + MAX_MESSAGE_LENGTH + " bytes");
+        }
+        System.arraycopy(data, offset, buffer, HEADER_LENGTH + length, count);
+        length += count;
+        return this;
+    }
+
+    /**
+     * @return length of the message (unit id, function code and data)
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return byte of the message, 0 is the unit id
+     */
+    public byte get(int index) {
+        return buffer[HEADER_LENGTH + index];
+    }
+
+    /**
+     * Tells if the response starts with the same bytes as the request, as write responses do
+     */
+    public boolean isEchoedBy(byte[] response, int count) {
+        if (response.length < count || length < count) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (buffer[HEADER_LENGTH + i] != response[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Put the RTU CRC behind the message
+     *
+     * @return the frame, from {@link #HEADER_LENGTH} holding message and CRC
+     */
+    public byte[] appendCrc() {
+        int crc = Crc16.getCrc16(buffer, HEADER_LENGTH, length, 0x0ffff);
+        buffer[HEADER_LENGTH + length] = (byte) crc;
+        buffer[HEADER_LENGTH + length + 1] = (byte) (crc >> 8);
+        return buffer;
+    }
+
+    /**
+     * @return number of bytes of the RTU frame made by {@link #appendCrc()}
+     */
+    public int rtuLength() {
+        return length + 2;
+    }
+
+    /**
+     * Put the MBAP header in front of the message
+     *
+     * @return the TCP frame, valid until the request is started again
+     */
+    public ByteBuffer mbapFrame(int transactionId) {
+        buffer[0] = (byte) (transactionId >> 8);
+        buffer[1] = (byte) transactionId;
+        buffer[2] = 0; // protocol identifier, 0 = Modbus
+        buffer[3] = 0;
+        buffer[4] = (byte) (length >> 8);
+        buffer[5] = (byte) length;
+        frame.clear().limit(HEADER_LENGTH + length);
+        return frame;
+    }
+
+    /**
+     * Encode the message as an ASCII frame (':', hex digits, LRC, CR LF)
+     *
+     * @return the frame, valid until the request is encoded again
+     */
+    public byte[] asciiFrame() {
+        if (ascii == null) {
+            ascii = new byte[MAX_MESSAGE_LENGTH * 2 + 5];
+        }
+        int lrc = 0;
+        ascii[0] = ':';
+        for (int i = 0; i < length; i++) {
+            int value = buffer[HEADER_LENGTH + i] & 0xff;
+            lrc += value;
+            ascii[i * 2 + 1] = HEX[value >>> 4];
+            ascii[i * 2 + 2] = HEX[value & 0x0f];
+        }
+        lrc = ((lrc ^ 0xff) + 1) & 0xff;
+        ascii[length * 2 + 1] = HEX[lrc >>> 4];
+        ascii[length * 2 + 2] = HEX[lrc & 0x0f];
+        ascii[length * 2 + 3] = 13;
+        ascii[length * 2 + 4] = 10;
+        return ascii;
+    }
+
+    /**
+     * @return number of bytes of the ASCII frame made by {@link #asciiFrame()}
+     */
+    public int asciiLength() {
+        return length * 2 + 5;
+    }
+
+    /**
+     * @return copy of the message
+     */
+    public byte[] toByteArray() {
+        byte[] message = new byte[length];
+        System.arraycopy(buffer, HEADER_LENGTH, message, 0, length);
+        return message;
+    }
+
+    /**
+     * @return the message in hex
+     */
+    @Override
+    public String toString() {
+        StringBuilder hex = new StringBuilder(length * 2);
+        for (int i = 0; i < length; i++) {
+            int value = buffer[HEADER_LENGTH + i] & 0xff;
+            hex.append((char) HEX[value >>> 4]).append((char) HEX[value & 0x0f]);
+        }
+        return hex.toString();
+    }
+}
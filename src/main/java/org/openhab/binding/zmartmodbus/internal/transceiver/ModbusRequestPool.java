@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.transceiver;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The {@link ModbusRequestPool} keeps a few {@link ModbusRequest} buffers of a bridge for reuse. Taking and giving
+ * back a request is lock free and does not allocate; only when every pooled request is in use a new one is made,
+ * and it is dropped again if the pool is full when given back.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public class ModbusRequestPool {
+
+    public static final int DEFAULT_SIZE = 4;
+
+    private final AtomicReferenceArray<ModbusRequest> slots;
+
+    public ModbusRequestPool() {
+        this(DEFAULT_SIZE);
+    }
+
+    public ModbusRequestPool(int size) {
+        slots = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            slots.set(i, new ModbusRequest());
+        }
+    }
+
+    /**
+     * Take a request from the pool
+     */
+    public ModbusRequest acquire() {
+        for (int i = 0; i < slots.length(); i++) {
+            ModbusRequest request = slots.get(i);
+            if (request != null && slots.compareAndSet(i, request, null)) {
+                return request;
+            }
+        }
+        return new ModbusRequest();
+    }
+
+    /**
+     * Give a request back, it must not be used afterwards
+     */
+    public void release(ModbusRequest request) {
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, request)) {
+                return;
+            }
+        }
+    }
+}
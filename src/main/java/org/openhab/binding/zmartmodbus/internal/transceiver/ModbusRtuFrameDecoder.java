@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.transceiver;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass;
+import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolErrorCode;
+import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolException;
+import org.openhab.binding.zmartmodbus.internal.util.Crc16;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ModbusRtuFrameDecoder} finds the response to a RTU request in a stream of received bytes.
+ *
+ * The transport reads whatever is available in bulk into {@link #buffer()} and calls {@link #decode()}. The
+ * decoder syncs on the slave address, derives the frame length from the function code and checks the CRC. The CRC is
+ * carried along as the bytes of the frame arrive, so no byte is added twice. On a CRC failure the first byte is
+ * dropped and decoding continues with the rest of the received bytes.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusRtuFrameDecoder {
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusRtuFrameDecoder.class);
+
+    private static final int MIN_FRAME_LENGTH = 5; // address, function code, 1 byte, CRC
+    private static final int MAX_FRAME_LENGTH = 256;
+    private static final int MAX_DISCARDED = 1000; // give up when the line is this noisy
+
+    private final byte[] buffer = new byte[MAX_FRAME_LENGTH * 2];
+    private int length = 0;
+    private int needed = MIN_FRAME_LENGTH;
+    private int discarded = 0;
+
+    // Running CRC of the first crcLength bytes of the buffer
+    private int crc = Crc16.SEED;
+    private int crcLength = 0;
+
+    private byte address;
+    private int customCode;
+
+    // Statistics of the current response
+    private int bytesReceived = 0;
+    private int crcErrors = 0;
+    private boolean exceptionResponse = false;
+
+    /**
+     * Prepare for a new response
+     *
+     * @param address slave address the response must come from
+     * @param customCode custom function code high byte used for the request
+     */
+    public void reset(byte address, int customCode) {
+        this.address = address;
+        this.customCode = customCode;
+        length = 0;
+        needed = MIN_FRAME_LENGTH;
+        discarded = 0;
+        crc = Crc16.SEED;
+        crcLength = 0;
+        bytesReceived = 0;
+        crcErrors = 0;
+        exceptionResponse = false;
+    }
+
+    /**
+     * @return number of bytes received since {@link #reset(byte, int)}
+     */
+    public int bytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return number of complete frames from the slave dropped for a wrong CRC since {@link #reset(byte, int)}
+     */
+    public int crcErrors() {
+        return crcErrors;
+    }
+
+    /**
+     * @return true if the response was an exception response
+     */
+    public boolean isExceptionResponse() {
+        return exceptionResponse;
+    }
+
+    /**
+     * @return receive buffer, new data must be placed from {@link #length()}
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return number of bytes held in the buffer
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return free space in the buffer
+     */
+    public int capacity() {
+        return buffer.length - length;
+    }
+
+    /**
+     * @return number of bytes still missing for the frame currently being received
+     */
+    public int missing() {
+        return Math.max(1, Math.min(needed - length, capacity()));
+    }
+
+    /**
+     * @return true when the slave address has been found and we are receiving the rest of a frame
+     */
+    public boolean inFrame() {
+        return length > 0;
+    }
+
+    /**
+     * Mark count bytes read into {@link #buffer()} as received
+     */
+    public void received(int count) {
+        if (count > 0) {
+            length += count;
+            bytesReceived += count;
+            if (buffer[0] == address) {
+                // Bytes up to the needed length belong to the frame started at the address
+                crcTo(Math.min(length, needed));
+            }
+        }
+    }
+
+    /**
+     * Read whatever the stream has ready (at least one byte, blocking as the stream does) into the buffer
+     *
+     * @return number of bytes read, -1 at end of stream
+     */
+    public int readFrom(InputStream in) throws IOException {
+        int count = in.read(buffer, length, Math.max(missing(), Math.min(in.available(), capacity())));
+        received(count);
+        return count;
+    }
+
+    /**
+     * Try to decode a response from the received bytes. The response is copied out of the receive buffer, which is
+     * reused for the next frame; the copy belongs to the caller and is handed on as the payload without further copies.
+     *
+     * @return the response (without CRC for write responses) or null if more data is needed
+     * @throws ModbusProtocolException on an exception response or a too noisy line
+     */
+    public byte @Nullable [] decode() throws ModbusProtocolException {
+        while (true) {
+            // address byte must match first
+            int skip = 0;
+            while (skip < length && buffer[skip] != address) {
+                skip++;
+            }
+            discard(skip);
+
+            if (length < MIN_FRAME_LENGTH) {
+                needed = MIN_FRAME_LENGTH;
+                return null;
+            }
+
+            // Check first for an Exception response
+            if ((buffer[1] & 0x80) == 0x80) {
+                if (crcTo(MIN_FRAME_LENGTH) == 0) {
+                    exceptionResponse = true;
+                    throw new ModbusProtocolException("Exception response = " + Byte.toString(buffer[2]),
+                            ModbusProtocolErrorCode.TRANSACTION_FAILURE);
+                }
+                crcErrors++;
+                discard(1);
+                continue;
+            }
+
+            // add customCode to high byte to separate custom modbus functions
+            int frameLength;
+            int resultLength;
+            switch (buffer[1] | customCode) {
+                case ModbusBindingClass.ENUMERATION:
+                case ModbusBindingClass.FORCE_SINGLE_COIL:
+                case ModbusBindingClass.PRESET_SINGLE_REG:
+                case ModbusBindingClass.FORCE_MULTIPLE_COILS:
+                case ModbusBindingClass.PRESET_MULTIPLE_REGS:
+                    frameLength = 8;
+                    resultLength = 6;
+                    break;
+                case ModbusBindingClass.READ_COIL_STATUS:
+                case ModbusBindingClass.READ_INPUT_STATUS:
+                case ModbusBindingClass.READ_INPUT_REGS:
+                case ModbusBindingClass.READ_HOLDING_REGS:
+                case ModbusBindingClass.READ_REGISTER_FROM_INDEX:
+                case ModbusBindingClass.WRITE_REGISTER_TO_INDEX:
+                case ModbusBindingClass.WRITE_REGISTER_MASKED_TO_INDEX:
+                    frameLength = (buffer[2] & 0xff) + 5;
+                    resultLength = frameLength;
+                    break;
+                default:
+                    // Not a function we expect, must be noise
+                    discard(1);
+                    continue;
+            }
+
+            if (length < frameLength) {
+                // wait for more data
+                needed = frameLength;
+                return null;
+            }
+
+            if (crcTo(frameLength) == 0) {
+                byte[] frame = new byte[resultLength];
+                System.arraycopy(buffer, 0, frame, 0, resultLength);
+                if (logger.isTraceEnabled()) {
+                    logger.trace("MODBUS receive: {}", DatatypeConverter.printHexBinary(frame));
+                }
+                return frame;
+            }
+
+            // if required length then must have failed, drop first byte and try again
+            crcErrors++;
+            discard(1);
+        }
+    }
+
+    /**
+     * Add the bytes up to end to the running CRC
+     *
+     * @return CRC of the first end bytes
+     */
+    private int crcTo(int end) {
+        if (end > crcLength) {
+            crc = Crc16.update(crc, buffer, crcLength, end - crcLength);
+            crcLength = end;
+        }
+        return crc;
+    }
+
+    private void discard(int count) throws ModbusProtocolException {
+        if (count <= 0) {
+            return;
+        }
+        // The frame now starts elsewhere, its length and CRC start over
+        needed = MIN_FRAME_LENGTH;
+        crc = Crc16.SEED;
+        crcLength = 0;
+        length -= count;
+        System.arraycopy(buffer, count, buffer, 0, length);
+        discarded += count;
+        if (discarded >= MAX_DISCARDED) {
+            throw new ModbusProtocolException("Too much activity on recv line",
+                    ModbusProtocolErrorCode.TRANSACTION_FAILURE);
+        }
+    }
+}
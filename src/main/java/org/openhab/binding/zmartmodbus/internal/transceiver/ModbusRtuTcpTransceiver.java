@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.transceiver;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.zmartmodbus.internal.config.ModbusTcpConfiguration;
+import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolErrorCode;
+import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolException;
+import org.openhab.binding.zmartmodbus.internal.protocol.ModbusCounters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ModbusRtuTcpTransceiver} sends RTU frames (with CRC) over a TCP connection, as done by most
+ * serial to Ethernet converters. There is only one RS485 bus behind the converter, so transactions are sent one
+ * at a time.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public class ModbusRtuTcpTransceiver extends ModbusTransceiver {
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusRtuTcpTransceiver.class);
+
+    private final ModbusTcpConfiguration tcpConfig;
+
+    private @Nullable Socket socket;
+
+    private final ModbusRtuFrameDecoder frameDecoder = new ModbusRtuFrameDecoder();
+
+    public ModbusRtuTcpTransceiver(final ModbusTcpConfiguration tcpConfig, final ModbusCounters counters) {
+        super(counters);
+        this.tcpConfig = tcpConfig;
+    }
+
+    @Override
+    public synchronized void connect() throws ModbusProtocolException {
+        // Call disconnect to ensure we are not connected
+        if (socket != null) {
+            disconnect();
+        }
+
+        if (!tcpConfig.isValid()) {
+            throw new ModbusProtocolException("Host and port must be configured",
+                    ModbusProtocolErrorCode.INVALID_CONFIGURATION);
+        }
+
+        logger.debug("Connecting to RTU over TCP gateway {}:{}", tcpConfig.getHost(), tcpConfig.getPort());
+        final Socket newSocket = new Socket();
+        try {
+            newSocket.setTcpNoDelay(true);
+            newSocket.setKeepAlive(true);
+            newSocket.connect(new InetSocketAddress(tcpConfig.getHost(), tcpConfig.getPort()),
+                    tcpConfig.getConnectTimeoutMillis());
+
+            socket = newSocket;
+            inputStream = newSocket.getInputStream();
+            outputStream = newSocket.getOutputStream();
+
+            setConnected(true);
+        } catch (final IOException e) {
+            logger.error("IOException {}", e.getMessage());
+            try {
+                newSocket.close();
+            } catch (final IOException ce) {
+                // Nothing more we can do
+            }
+            throw new ModbusProtocolException(e.getMessage(), e.getCause(), ModbusProtocolErrorCode.CONNECTION_FAILURE);
+        }
+
+        logger.info("ModbusRtuTcpTransceiver initialized");
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        logger.debug("Shutting down transceiver");
+
+        if (socket != null) {
+            logger.debug("Closing socket");
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                logger.warn("Error while closing the socket: {}", e.getMessage());
+            }
+        }
+
+        socket = null;
+        outputStream = null;
+        inputStream = null;
+
+        setConnected(false);
+
+        logger.info("Transceiver shutdown");
+    }
+
+    /**
+     * msgTransaction appends the CRC to the request in place and sends it. It will return a byte array of the response
+     * to the message. Validation will include checking the CRC and verifying the command matches.
+     */
+    @Override
+    public synchronized byte[] msgTransaction(final ModbusRequest request, final int customCode)
+            throws ModbusProtocolException {
+        if (!isConnected()) {
+            connect();
+        }
+
+        // Update message counter
+        counters.incrementMessageCounter();
+
+        final byte[] cmd = request.appendCrc();
+        if (logger.isTraceEnabled()) {
+            logger.trace("MODBUS send ({}): {}", counters.getMessageCounter(), request);
+        }
+
+        final long start = System.nanoTime();
+        // Idle time is the time spent blocked waiting for the slave, as for the serial transceiver
+        long idle = 0;
+        frameDecoder.reset(request.get(0), customCode);
+        try {
+            // flush input
+            final int pending = inputStream.available();
+            if (pending > 0) {
+                inputStream.skip(pending);
+            }
+            // send all data
+            outputStream.write(cmd, ModbusRequest.HEADER_LENGTH, request.rtuLength());
+            outputStream.flush();
+
+            // wait for and process response
+            final long deadline = start + tcpConfig.getReceiveTimeoutMillis() * 1000000L;
+            while (true) {
+                final long remaining = (deadline - System.nanoTime()) / 1000000L;
+                if (remaining <= 0) {
+                    throw responseTimeout(request);
+                }
+                socket.setSoTimeout((int) remaining);
+                final long startWait = System.nanoTime();
+                final int count;
+                try {
+                    count = frameDecoder.readFrom(inputStream);
+                } finally {
+                    idle += System.nanoTime() - startWait;
+                }
+                if (count < 0) {
+                    throw new IOException("Connection closed by gateway");
+                }
+                final byte[] response = frameDecoder.decode();
+                if (response != null) {
+                    counters.recordRoundTrip(request.get(0), request.get(1), System.nanoTime() - start);
+                    return response;
+                }
+            }
+        } catch (final SocketTimeoutException e) {
+            throw responseTimeout(request);
+        } catch (final IOException e) {
+            // The connection is in an unknown state, connect again on the next transaction
+            disconnect();
+            throw new ModbusProtocolException(e.getMessage(), ModbusProtocolErrorCode.TRANSACTION_FAILURE);
+        } finally {
+            counters.addIdleTime(idle);
+            counters.addBytesSent(request.rtuLength());
+            counters.addBytesReceived(frameDecoder.bytesReceived());
+            counters.addCrcErrors(frameDecoder.crcErrors());
+            if (frameDecoder.isExceptionResponse()) {
+                counters.incrementExceptionCounter(request.get(0));
+            }
+        }
+    }
+
+    private ModbusProtocolException responseTimeout(final ModbusRequest request) {
+        // Increase Response Time Out counter
+        counters.incrementTimeOutCounter(request.get(0));
+        return new ModbusProtocolException(String.format("Recv timeout %d : respIndex=%d #%d cmd=%s",
+                tcpConfig.getReceiveTimeoutMillis(), frameDecoder.length(), counters.getMessageCounter(),
+                request), ModbusProtocolErrorCode.RESPONSE_TIMEOUT);
+    }
+
+    public ModbusTcpConfiguration getTcpConfig() {
+        return tcpConfig;
+    }
+}
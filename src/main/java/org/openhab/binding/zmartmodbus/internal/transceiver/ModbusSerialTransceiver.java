@@ -13,12 +13,15 @@
 package org.openhab.binding.zmartmodbus.internal.transceiver;
 
 import java.io.IOException;
+import java.util.TooManyListenersException;
 
 import javax.xml.bind.DatatypeConverter;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.io.transport.serial.PortInUseException;
 import org.openhab.core.io.transport.serial.SerialPort;
+import org.openhab.core.io.transport.serial.SerialPortEvent;
+import org.openhab.core.io.transport.serial.SerialPortEventListener;
 import org.openhab.core.io.transport.serial.SerialPortIdentifier;
 import org.openhab.core.io.transport.serial.SerialPortManager;
 import org.openhab.core.io.transport.serial.UnsupportedCommOperationException;
@@ -28,7 +31,6 @@ import org.openhab.binding.zmartmodbus.internal.config.ModbusSerialConfiguration
 import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolErrorCode;
 import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolException;
 import org.openhab.binding.zmartmodbus.internal.protocol.ModbusCounters;
-import org.openhab.binding.zmartmodbus.internal.util.Crc16;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,17 +38,43 @@ import org.slf4j.LoggerFactory;
  *
  * @author Daniel Weber - Initial contribution
  * @author Peter Kristensen - Adopted for ZmartModbus
- * 
+ *
  */
 
-public class ModbusSerialTransceiver extends ModbusTransceiver {
+public class ModbusSerialTransceiver extends ModbusTransceiver implements SerialPortEventListener {
 
     private final Logger logger = LoggerFactory.getLogger(ModbusSerialTransceiver.class);
 
     private @Nullable SerialPortManager serialPortManager;
     private @Nullable SerialPort serialPort;
 
-    private static int SLEEP_WHEN_NO_INPUT = 50; // Thread sleeps when input stream is empty
+    private static int SLEEP_WHEN_NO_INPUT = 50; // Thread sleeps when input stream is empty (poll mode only)
+
+    // Allowance for USB serial adapters holding back received characters (FTDI default latency timer)
+    private static final int SERIAL_LATENCY_MILLIS = 16;
+
+    // Character timeout once a response has started (poll mode only, event driven mode uses the frame gap)
+    private static final int POLL_CHARACTER_TIMEOUT_MILLIS = 100;
+
+    // Notified by serialEvent() whenever the serial port reports data available
+    private final Object dataAvailable = new Object();
+
+    private boolean eventDriven = false;
+    private int frameGapMillis = 100;
+    private int receiveThreshold = 1;
+
+    // RTU framing, shared with the RTU over TCP transceiver
+    private final ModbusRtuFrameDecoder frameDecoder = new ModbusRtuFrameDecoder();
+
+    // ASCII framing, characters are read in bulk and fed to the decoder
+    private final ModbusAsciiFrameDecoder asciiDecoder = new ModbusAsciiFrameDecoder();
+    private final byte[] asciiInput = new byte[64];
+
+    // Time spent waiting for input during the current transaction
+    private long transactionIdleNanos = 0;
+    // ASCII characters received and exception response seen during the current transaction
+    private int asciiReceived = 0;
+    private boolean asciiException = false;
 
     protected ModbusSerialConfiguration serialConfig;
 
@@ -85,9 +113,27 @@ public class ModbusSerialTransceiver extends ModbusTransceiver {
                     serialConfig.getStopBits(), serialConfig.getParity());
 
             serialPort.enableReceiveThreshold(1);
+            receiveThreshold = 1;
+
+            frameGapMillis = calculateFrameGapMillis();
+            eventDriven = serialConfig.isEventDriven();
+
+            if (eventDriven) {
+                try {
+                    serialPort.addEventListener(this);
+                    serialPort.notifyOnDataAvailable(true);
+                    // Blocking reads return once the threshold is reached or the line has been quiet for t3.5
+                    serialPort.enableReceiveTimeout(frameGapMillis);
+                } catch (final TooManyListenersException e) {
+                    logger.warn("Unable to register for serial events, falling back to polling: {}", e.getMessage());
+                    eventDriven = false;
+                }
+            }
 
-            // In ms. small values mean faster shutdown but more CPU usage.
-            serialPort.enableReceiveTimeout(serialConfig.getReceiveTimeoutMillis());
+            if (!eventDriven) {
+                // In ms. small values mean faster shutdown but more CPU usage.
+                serialPort.enableReceiveTimeout(serialConfig.getReceiveTimeoutMillis());
+            }
 
             inputStream = serialPort.getInputStream();
             outputStream = serialPort.getOutputStream();
@@ -108,7 +154,8 @@ public class ModbusSerialTransceiver extends ModbusTransceiver {
             throw new ModbusProtocolException(e.getMessage(), e.getCause(), ModbusProtocolErrorCode.CONNECTION_FAILURE);
         }
 
-        logger.info("ModbusSerialTransceiver initialized");
+        logger.info("ModbusSerialTransceiver initialized ({} receiver, frame gap {} ms)",
+                eventDriven ? "event driven" : "polling", frameGapMillis);
     }
 
     @Override
@@ -116,6 +163,10 @@ public class ModbusSerialTransceiver extends ModbusTransceiver {
 
         logger.debug("Shutting down transceiver");
 
+        if (serialPort != null && eventDriven) {
+            serialPort.removeEventListener();
+        }
+
         if (outputStream != null) {
             logger.debug("Closing serial output stream");
             try {
@@ -150,33 +201,45 @@ public class ModbusSerialTransceiver extends ModbusTransceiver {
         logger.info("Transceiver shutdown");
     }
 
+    @Override
+    public void serialEvent(SerialPortEvent event) {
+        if (event.getEventType() == SerialPortEvent.DATA_AVAILABLE) {
+            synchronized (dataAvailable) {
+                dataAvailable.notifyAll();
+            }
+        }
+    }
+
     /**
-     * msgTransaction must be called with a byte array having two extra bytes for
-     * the CRC. It will return a byte array of the response to the message.
-     * Validation will include checking the CRC and verifying the command matches.
+     * msgTransaction frames the request in place (CRC or ASCII) and sends it. It will return a byte array of the
+     * response to the message. Validation will include checking the CRC and verifying the command matches.
      */
 
     @Override
-    public byte[] msgTransaction(final byte[] msg, final int customCode) throws ModbusProtocolException {
-        byte[] cmd = null;
+    public byte[] msgTransaction(final ModbusRequest request, final int customCode) throws ModbusProtocolException {
+        final byte[] cmd;
+        final int cmdOffset;
+        final int cmdLength;
 
         // Update message counter
         counters.incrementMessageCounter();
 
         if (serialConfig.getTxMode() == ModbusBindingConstants.RTU_MODE) {
-            cmd = new byte[msg.length + 2];
-            for (int i = 0; i < msg.length; i++) {
-                cmd[i] = msg[i];
-            }
-            // Add crc calculation to end of message
-            final int crc = Crc16.getCrc16(msg, msg.length, 0x0ffff);
-            cmd[msg.length] = (byte) crc;
-            cmd[msg.length + 1] = (byte) (crc >> 8);
+            cmd = request.appendCrc();
+            cmdOffset = ModbusRequest.HEADER_LENGTH;
+            cmdLength = request.rtuLength();
         } else if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE) {
-            cmd = convertCommandToAscii(msg);
+            cmd = request.asciiFrame();
+            cmdOffset = 0;
+            cmdLength = request.asciiLength();
+        } else {
+            throw new ModbusProtocolException("Unsupported transmission mode " + serialConfig.getTxMode(),
+                    ModbusProtocolErrorCode.INVALID_CONFIGURATION);
         }
 
-        logger.trace("MODBUS send ({}): {}", counters.getMessageCounter(), DatatypeConverter.printHexBinary(cmd));
+        if (logger.isTraceEnabled()) {
+            logger.trace("MODBUS send ({}): {}", counters.getMessageCounter(), request);
+        }
         // Send the message
         try {
             //
@@ -186,181 +249,249 @@ public class ModbusSerialTransceiver extends ModbusTransceiver {
                 throw new ModbusProtocolException("Thread interrupted", ModbusProtocolErrorCode.TRANSACTION_FAILURE);
             }
 
-            synchronized (outputStream) {
-                synchronized (inputStream) {
-                    // flush input
-                    while (inputStream.available() > 0) {
-                        inputStream.read();
-                    }
-                    // send all data
-                    outputStream.write(cmd, 0, cmd.length);
-                    outputStream.flush();
-                    // outputStream.waitAllSent(respTout);
-
-                    // wait for and process response
-                    byte[] response = new byte[262]; // response buffer
-                    int respIndex = 0;
-                    int minimumLength = 5; // default minimum message length
-                    if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE) {
-                        minimumLength = 11;
-                    }
-                    int timeOut = serialConfig.getConnectTimeoutMillis();
-
-                    for (int maxLoop = 0; maxLoop < 1000; maxLoop++) {
-                        boolean endFrame = false;
-                        // while (respIndex < minimumLength) {
-                        while (!endFrame) {
-                            final long start = System.currentTimeMillis();
-                            while (inputStream.available() == 0) {
-                                try {
-                                    Thread.sleep(SLEEP_WHEN_NO_INPUT); // avoid a high cpu load
-                                } catch (final InterruptedException e) {
-                                    throw new ModbusProtocolException("Thread interrupted",
-                                            ModbusProtocolErrorCode.TRANSACTION_FAILURE);
-                                }
-
-                                final long elapsed = System.currentTimeMillis() - start;
-                                if (elapsed > timeOut) {
-
-                                    final String failMsg = String.format(
-                                            "Recv timeout %d : minLength=%d respIndex=%d #%d cmd=%s", elapsed,
-                                            minimumLength, respIndex, counters.getMessageCounter(),
-                                            DatatypeConverter.printHexBinary(cmd));
-
-                                    // Increase Response Time Out counter
-                                    counters.incrementTimeOutCounter();
-                                    throw new ModbusProtocolException(failMsg,
-                                            ModbusProtocolErrorCode.RESPONSE_TIMEOUT);
-                                }
-                            }
-                            // address byte must match first
-                            if (respIndex == 0) {
-                                if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE) {
-                                    if ((response[0] = (byte) inputStream.read()) == ':') {
-                                        respIndex++;
-                                    }
-                                } else {
-                                    if ((response[0] = (byte) inputStream.read()) == msg[0]) {
-                                        respIndex++;
-                                    }
-                                }
-                            } else {
-                                response[respIndex++] = (byte) inputStream.read();
-                            }
-
-                            if (serialConfig.getTxMode() == ModbusBindingConstants.RTU_MODE) {
-                                timeOut = 100; // move to character timeout
-                                if (respIndex >= minimumLength) {
-                                    endFrame = true;
-                                }
-                            } else {
-                                if (response[respIndex - 1] == 10 && response[respIndex - 2] == 13) {
-                                    endFrame = true;
-                                }
-                            }
-                        }
+            // Only the bus thread of the bridge sends, the streams need no locking
+            transactionIdleNanos = 0;
+            final long start = System.nanoTime();
+            try {
+                final byte[] response = sendAndReceive(cmd, cmdOffset, cmdLength, request, customCode);
+                counters.recordRoundTrip(request.get(0), request.get(1), System.nanoTime() - start);
+                return response;
+            } finally {
+                counters.addIdleTime(transactionIdleNanos);
+                countTransaction(request, cmdLength);
+            }
+        } catch (final IOException e) {
+            // e.printStackTrace();
+            throw new ModbusProtocolException(e.getMessage(), ModbusProtocolErrorCode.TRANSACTION_FAILURE);
+        }
+    }
 
-                        // if ASCII mode convert response
-                        if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE) {
-                            final byte lrcRec = asciiLrcCalc(response, respIndex);
-                            response = convertAsciiResponseToBin(response, respIndex);
-                            final byte lrcCalc = (byte) binLrcCalc(response);
-                            if (lrcRec != lrcCalc) {
-                                throw new ModbusProtocolException("Bad LRC",
-                                        ModbusProtocolErrorCode.TRANSACTION_FAILURE);
-                            }
-                        }
+    /**
+     * Add the bytes on the wire and the errors of the transaction to the counters
+     */
+    private void countTransaction(final ModbusRequest request, final int cmdLength) {
+        counters.addBytesSent(cmdLength);
+        if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE) {
+            counters.addBytesReceived(asciiReceived);
+            counters.addCrcErrors(asciiDecoder.lrcErrors());
+            if (asciiException) {
+                counters.incrementExceptionCounter(request.get(0));
+            }
+        } else {
+            counters.addBytesReceived(frameDecoder.bytesReceived());
+            counters.addCrcErrors(frameDecoder.crcErrors());
+            if (frameDecoder.isExceptionResponse()) {
+                counters.incrementExceptionCounter(request.get(0));
+            }
+        }
+    }
 
-                        // Check first for an Exception response
-                        if ((response[1] & 0x80) == 0x80) {
-                            if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE
-                                    || Crc16.getCrc16(response, 5, 0xffff) == 0) {
-                                throw new ModbusProtocolException("Exception response = " + Byte.toString(response[2]),
-                                        ModbusProtocolErrorCode.TRANSACTION_FAILURE);
-                            }
-                        } else {
-                            // then check for a valid message
-                            // add customCode to high byte to separate custom modbus functions
-                            int byteCnt;
-                            switch (response[1] | customCode) {
-                            case ModbusBindingClass.ENUMERATION:
-                                if (respIndex < 6) {
-                                    // wait for more data
-                                    minimumLength = 6;
-                                } else if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE
-                                        || Crc16.getCrc16(response, 8, 0xffff) == 0) {
-                                    final byte[] ret = new byte[6];
-                                    for (int i = 0; i < 6; i++) {
-                                        ret[i] = response[i];
-                                    }
-                                    return ret;
-                                }
-                                break;
-                            case ModbusBindingClass.FORCE_SINGLE_COIL:
-                            case ModbusBindingClass.PRESET_SINGLE_REG:
-                            case ModbusBindingClass.FORCE_MULTIPLE_COILS:
-                            case ModbusBindingClass.PRESET_MULTIPLE_REGS:
-                                if (respIndex < 8) {
-                                    // wait for more data
-                                    minimumLength = 8;
-                                } else if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE
-                                        || Crc16.getCrc16(response, 8, 0xffff) == 0) {
-                                    final byte[] ret = new byte[6];
-                                    for (int i = 0; i < 6; i++) {
-                                        ret[i] = response[i];
-                                    }
-                                    return ret;
-                                }
-                                break;
-                            case ModbusBindingClass.READ_COIL_STATUS:
-                            case ModbusBindingClass.READ_INPUT_STATUS:
-                            case ModbusBindingClass.READ_INPUT_REGS:
-                            case ModbusBindingClass.READ_HOLDING_REGS:
-                            case ModbusBindingClass.READ_REGISTER_FROM_INDEX:
-                            case ModbusBindingClass.WRITE_REGISTER_TO_INDEX:
-                            case ModbusBindingClass.WRITE_REGISTER_MASKED_TO_INDEX:
-                                if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE) {
-                                    byteCnt = (response[2] & 0xff) + 3;
-                                } else {
-                                    byteCnt = (response[2] & 0xff) + 5;
-                                }
-                                if (respIndex < byteCnt) {
-                                    // wait for more data
-                                    minimumLength = byteCnt;
-                                } else if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE
-                                        || Crc16.getCrc16(response, byteCnt, 0xffff) == 0) {
-                                    final byte[] ret = new byte[byteCnt];
-                                    for (int i = 0; i < byteCnt; i++) {
-                                        ret[i] = response[i];
-                                    }
-                                    logger.trace("MODBUS receive: {}", DatatypeConverter.printHexBinary(ret));
-                                    return ret;
-                                }
-                                break;
-                            }
-                        }
+    private byte[] sendAndReceive(final byte[] cmd, final int cmdOffset, final int cmdLength,
+            final ModbusRequest request, final int customCode) throws IOException, ModbusProtocolException {
+        // Start the response (and its statistics) over before anything is sent
+        if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE) {
+            asciiDecoder.reset();
+            asciiReceived = 0;
+            asciiException = false;
+        } else {
+            frameDecoder.reset(request.get(0), customCode);
+        }
+        // flush input
+        int pending = inputStream.available();
+        if (pending > 0) {
+            inputStream.skip(pending);
+        }
+        // send all data
+        outputStream.write(cmd, cmdOffset, cmdLength);
+        outputStream.flush();
+        // outputStream.waitAllSent(respTout);
+
+        // wait for and process response
+        if (serialConfig.getTxMode() == ModbusBindingConstants.ASCII_MODE) {
+            return receiveAscii(request, customCode);
+        }
+        return receiveRtu(request, customCode);
+    }
 
-                        /*
-                         * if required length then must have failed, drop first byte and try again
-                         */
-                        if (respIndex >= minimumLength) {
-                            respIndex--;
-                            for (int i = 0; i < respIndex; i++) {
-                                response[i] = response[i + 1];
-                            }
-                            minimumLength = 5; // reset minimum length
-                        }
+    private byte[] receiveRtu(final ModbusRequest request, final int customCode)
+            throws IOException, ModbusProtocolException {
+        int timeOut = serialConfig.getConnectTimeoutMillis();
+        final long start = System.currentTimeMillis();
+
+        while (true) {
+            if (!waitForInput(timeOut)) {
+                throw responseTimeout(request, start, frameDecoder.length());
+            }
+            // Read what is ready, in event mode block until the frame is complete or the line goes quiet
+            int count;
+            if (eventDriven) {
+                setReceiveThreshold(frameDecoder.missing());
+                count = inputStream.read(frameDecoder.buffer(), frameDecoder.length(), frameDecoder.missing());
+            } else {
+                count = inputStream.read(frameDecoder.buffer(), frameDecoder.length(),
+                        Math.min(frameDecoder.capacity(), Math.max(1, inputStream.available())));
+            }
+            frameDecoder.received(count);
+
+            final byte[] response = frameDecoder.decode();
+            if (response != null) {
+                return response;
+            }
+            if (frameDecoder.inFrame()) {
+                // move to character timeout, polling keeps the old fixed one
+                timeOut = eventDriven ? frameGapMillis : POLL_CHARACTER_TIMEOUT_MILLIS;
+            }
+        }
+    }
+
+    private byte[] receiveAscii(final ModbusRequest request, final int customCode)
+            throws IOException, ModbusProtocolException {
+        setReceiveThreshold(1);
+        final int timeOut = serialConfig.getConnectTimeoutMillis();
+        final long start = System.currentTimeMillis();
+        int frames = 0;
+
+        // Frames dropped for a wrong LRC count as well, so a noisy line ends the transaction
+        while (frames + asciiDecoder.lrcErrors() < 1000) {
+            if (!waitForInput(timeOut)) {
+                throw responseTimeout(request, start, asciiDecoder.characters());
+            }
+            final int count = inputStream.read(asciiInput, 0,
+                    Math.min(asciiInput.length, Math.max(1, inputStream.available())));
+            asciiReceived += Math.max(0, count);
+            for (int i = 0; i < count; i++) {
+                if (!asciiDecoder.put(asciiInput[i])) {
+                    continue;
+                }
+                frames++;
+                final byte[] frame = asciiDecoder.frame();
+                if (asciiDecoder.length() < 3) {
+                    continue;
+                }
+
+                // Check first for an Exception response
+                if ((frame[1] & 0x80) == 0x80) {
+                    asciiException = true;
+                    throw new ModbusProtocolException("Exception response = " + Byte.toString(frame[2]),
+                            ModbusProtocolErrorCode.TRANSACTION_FAILURE);
+                }
+
+                // then check for a valid message
+                // add customCode to high byte to separate custom modbus functions
+                int byteCnt = 0;
+                switch (frame[1] | customCode) {
+                case ModbusBindingClass.ENUMERATION:
+                case ModbusBindingClass.FORCE_SINGLE_COIL:
+                case ModbusBindingClass.PRESET_SINGLE_REG:
+                case ModbusBindingClass.FORCE_MULTIPLE_COILS:
+                case ModbusBindingClass.PRESET_MULTIPLE_REGS:
+                    byteCnt = 6;
+                    break;
+                case ModbusBindingClass.READ_COIL_STATUS:
+                case ModbusBindingClass.READ_INPUT_STATUS:
+                case ModbusBindingClass.READ_INPUT_REGS:
+                case ModbusBindingClass.READ_HOLDING_REGS:
+                case ModbusBindingClass.READ_REGISTER_FROM_INDEX:
+                case ModbusBindingClass.WRITE_REGISTER_TO_INDEX:
+                case ModbusBindingClass.WRITE_REGISTER_MASKED_TO_INDEX:
+                    byteCnt = (frame[2] & 0xff) + 3;
+                    break;
+                }
+                if (byteCnt > 0 && asciiDecoder.length() >= byteCnt) {
+                    final byte[] ret = new byte[byteCnt];
+                    System.arraycopy(frame, 0, ret, 0, byteCnt);
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("MODBUS receive: {}", DatatypeConverter.printHexBinary(ret));
                     }
+                    return ret;
                 }
+                // Not the frame we are waiting for, wait for the next one
             }
-        } catch (final IOException e) {
-            // e.printStackTrace();
-            throw new ModbusProtocolException(e.getMessage(), ModbusProtocolErrorCode.TRANSACTION_FAILURE);
         }
         throw new ModbusProtocolException("Too much activity on recv line",
                 ModbusProtocolErrorCode.TRANSACTION_FAILURE);
     }
 
+    private ModbusProtocolException responseTimeout(final ModbusRequest request, final long start,
+            final int received) {
+        final long elapsed = System.currentTimeMillis() - start;
+        final String failMsg = String.format("Recv timeout %d : respIndex=%d #%d cmd=%s", elapsed, received,
+                counters.getMessageCounter(), request);
+
+        // Increase Response Time Out counter
+        counters.incrementTimeOutCounter(request.get(0));
+        return new ModbusProtocolException(failMsg, ModbusProtocolErrorCode.RESPONSE_TIMEOUT);
+    }
+
+    /**
+     * Waits until the serial port has data available. In event driven mode the thread is parked until
+     * {@link #serialEvent(SerialPortEvent)} signals new data, otherwise the input stream is polled.
+     *
+     * @param timeOut maximum time to wait in milliseconds
+     * @return true if data is available, false if timed out
+     */
+    private boolean waitForInput(final int timeOut) throws IOException, ModbusProtocolException {
+        if (inputStream.available() > 0) {
+            return true;
+        }
+        final long startWait = System.nanoTime();
+        final long deadline = startWait + timeOut * 1000000L;
+        try {
+            if (eventDriven) {
+                synchronized (dataAvailable) {
+                    while (inputStream.available() == 0) {
+                        final long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        dataAvailable.wait(remaining / 1000000L, (int) (remaining % 1000000L));
+                    }
+                }
+            } else {
+                while (inputStream.available() == 0) {
+                    if (System.nanoTime() - deadline > 0) {
+                        return false;
+                    }
+                    Thread.sleep(SLEEP_WHEN_NO_INPUT); // avoid a high cpu load
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModbusProtocolException("Thread interrupted", ModbusProtocolErrorCode.TRANSACTION_FAILURE);
+        } finally {
+            transactionIdleNanos += System.nanoTime() - startWait;
+        }
+        return true;
+    }
+
+    private void setReceiveThreshold(final int threshold) {
+        if (!eventDriven || serialPort == null || threshold == receiveThreshold) {
+            return;
+        }
+        try {
+            serialPort.enableReceiveThreshold(threshold);
+            receiveThreshold = threshold;
+        } catch (final UnsupportedCommOperationException e) {
+            logger.debug("Receive threshold {} not supported by serial driver", threshold);
+        }
+    }
+
+    /**
+     * Calculates the RTU inter-frame gap (t3.5) for the configured baud rate. Above 19200 baud the
+     * Modbus specification uses a fixed value of 1.75 ms.
+     *
+     * @return frame gap in milliseconds including serial adapter latency
+     */
+    private int calculateFrameGapMillis() {
+        if (serialConfig.getFrameGapMillis() > 0) {
+            return serialConfig.getFrameGapMillis();
+        }
+        final int baud = serialConfig.getBaud();
+        // 3.5 characters of 11 bits each
+        final long gapMicros = (baud <= 0 || baud > 19200) ? 1750 : 38500000L / baud;
+        return (int) ((gapMicros + 999) / 1000) + SERIAL_LATENCY_MILLIS;
+    }
+
     public ModbusSerialConfiguration getSerialConfig() {
         return serialConfig;
     }
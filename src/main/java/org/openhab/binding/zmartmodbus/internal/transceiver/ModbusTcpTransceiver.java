@@ -0,0 +1,380 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.transceiver;
+
+import static org.openhab.binding.zmartmodbus.ModbusBindingClass.MAX_TRANSACTION_ID;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.zmartmodbus.internal.config.ModbusTcpConfiguration;
+import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolErrorCode;
+import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolException;
+import org.openhab.binding.zmartmodbus.internal.protocol.ModbusCounters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ModbusTcpTransceiver} talks Modbus TCP (MBAP framing) to a gateway.
+ *
+ * Requests are written on a non-blocking {@link SocketChannel} and responses are picked up by a reader thread
+ * which matches them to the waiting request by transaction identifier. Up to maxTransactionsInFlight requests
+ * are handed over by the dispatcher before the first response arrives, so a gateway fronting several slaves is not
+ * limited to one round-trip at a time. A response to a request that has already timed out carries an identifier
+ * nobody waits for any more and is dropped, so it cannot be taken for the answer to a later request.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+public class ModbusTcpTransceiver extends ModbusTransceiver {
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusTcpTransceiver.class);
+
+    private static final int MBAP_HEADER_LENGTH = 7; // transaction id, protocol id, length, unit id
+    private static final int MAX_PDU_LENGTH = 253;
+    private static final int RECEIVE_BUFFER_SIZE = 8192;
+
+    private final ModbusTcpConfiguration tcpConfig;
+
+    private @Nullable SocketChannel channel;
+    private @Nullable Selector selector;
+    private @Nullable Thread readerThread;
+
+    // Requests waiting for a response, keyed by transaction identifier
+    private final Map<Integer, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger transactionId = new AtomicInteger(0);
+    private final Object writeLock = new Object();
+
+    public ModbusTcpTransceiver(final ModbusTcpConfiguration tcpConfig, final ModbusCounters counters) {
+        super(counters);
+        this.tcpConfig = tcpConfig;
+    }
+
+    @Override
+    public synchronized void connect() throws ModbusProtocolException {
+        // Call disconnect to ensure we are not connected
+        if (channel != null) {
+            disconnect();
+        }
+
+        if (!tcpConfig.isValid()) {
+            throw new ModbusProtocolException("Host and port must be configured",
+                    ModbusProtocolErrorCode.INVALID_CONFIGURATION);
+        }
+
+        logger.debug("Connecting to Modbus TCP gateway {}:{}", tcpConfig.getHost(), tcpConfig.getPort());
+        SocketChannel socketChannel = null;
+        try {
+            socketChannel = SocketChannel.open();
+            socketChannel.socket().setTcpNoDelay(true);
+            socketChannel.socket().setKeepAlive(true);
+            socketChannel.socket().connect(new InetSocketAddress(tcpConfig.getHost(), tcpConfig.getPort()),
+                    tcpConfig.getConnectTimeoutMillis());
+            socketChannel.configureBlocking(false);
+
+            final Selector readSelector = Selector.open();
+            socketChannel.register(readSelector, SelectionKey.OP_READ);
+
+            channel = socketChannel;
+            selector = readSelector;
+
+            final Thread thread = new Thread(() -> receive(readSelector),
+                    "zmartmodbus-tcp-" + tcpConfig.getHost() + ":" + tcpConfig.getPort());
+            thread.setDaemon(true);
+            readerThread = thread;
+            thread.start();
+
+            setConnected(true);
+        } catch (final IOException e) {
+            logger.error("IOException {}", e.getMessage());
+            if (socketChannel != null) {
+                try {
+                    socketChannel.close();
+                } catch (final IOException ce) {
+                    // Nothing more we can do
+                }
+            }
+            channel = null;
+            throw new ModbusProtocolException(e.getMessage(), e.getCause(), ModbusProtocolErrorCode.CONNECTION_FAILURE);
+        }
+
+        logger.info("ModbusTcpTransceiver initialized ({} transactions in flight)",
+                tcpConfig.getMaxTransactionsInFlight());
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        logger.debug("Shutting down transceiver");
+
+        setConnected(false);
+
+        final Thread thread = readerThread;
+        readerThread = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+
+        final Selector readSelector = selector;
+        selector = null;
+        if (readSelector != null) {
+            try {
+                readSelector.close();
+            } catch (final IOException e) {
+                logger.warn("Error while closing the selector: {}", e.getMessage());
+            }
+        }
+
+        final SocketChannel socketChannel = channel;
+        channel = null;
+        if (socketChannel != null) {
+            logger.debug("Closing socket channel");
+            try {
+                socketChannel.close();
+            } catch (final IOException e) {
+                logger.warn("Error while closing the socket: {}", e.getMessage());
+            }
+        }
+
+        failPending(new ModbusProtocolException("Connection closed", ModbusProtocolErrorCode.NOT_CONNECTED));
+
+        logger.info("Transceiver shutdown");
+    }
+
+    /**
+     * msgTransaction sends the message without CRC (unit id, function code and data) wrapped in a MBAP header and
+     * waits for the matching response. The returned array holds unit id, function code and data of the response.
+     */
+    @Override
+    public byte[] msgTransaction(final ModbusRequest request, final int customCode) throws ModbusProtocolException {
+        try {
+            return msgTransactionAsync(request, customCode).join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof ModbusProtocolException) {
+                throw (ModbusProtocolException) e.getCause();
+            }
+            throw new ModbusProtocolException(e.getMessage(), e.getCause(),
+                    ModbusProtocolErrorCode.TRANSACTION_FAILURE);
+        }
+    }
+
+    /**
+     * Sends the message and returns a future completed by the reader thread when the response with the same
+     * transaction identifier arrives, or exceptionally when none arrives within the receive timeout. A late response
+     * is dropped then.
+     *
+     * @param request unit id, function code and data, the MBAP header is put in front of it; the request may be reused
+     *            when this returns
+     * @return future completed with unit id, function code and data of the response
+     */
+    @Override
+    public CompletableFuture<byte[]> msgTransactionAsync(final ModbusRequest request, final int customCode) {
+        if (request.length() < 2 || request.length() - 1 > MAX_PDU_LENGTH) {
+            return CompletableFuture.failedFuture(new ModbusProtocolException(
+                    "Invalid message length " + request.length(), ModbusProtocolErrorCode.INVALID_DATA_LENGTH));
+        }
+        if (!isConnected()) {
+            try {
+                connect();
+            } catch (final ModbusProtocolException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        // Update message counter
+        counters.incrementMessageCounter();
+
+        final CompletableFuture<byte[]> response = new CompletableFuture<>();
+        final int id = nextTransactionId(response);
+        final int unitAddr = request.get(0);
+        final int functionCode = request.get(1);
+        final long timeout = tcpConfig.getReceiveTimeoutMillis();
+        final long start = System.nanoTime();
+        // Forget the transaction however it ends (response, timeout or failure)
+        response.whenComplete((r, t) -> {
+            pending.remove(id, response);
+            // Idle time is the time spent waiting for the slave once the request is written
+            final long roundTrip = System.nanoTime() - start;
+            counters.addIdleTime(roundTrip);
+            if (r != null) {
+                counters.recordRoundTrip(unitAddr, functionCode, roundTrip);
+            }
+        });
+
+        final ByteBuffer frame = request.mbapFrame(id);
+        counters.addBytesSent(frame.remaining());
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("MODBUS send ({}): {}", id, request);
+        }
+        try {
+            write(frame);
+        } catch (final IOException e) {
+            response.completeExceptionally(
+                    new ModbusProtocolException(e.getMessage(), ModbusProtocolErrorCode.TRANSACTION_FAILURE));
+            disconnect();
+            return response;
+        }
+
+        CompletableFuture.delayedExecutor(timeout, TimeUnit.MILLISECONDS).execute(() -> {
+            // Give up the transaction so a late response is dropped, unless the reader has taken it
+            if (pending.remove(id, response)) {
+                counters.incrementTimeOutCounter(unitAddr);
+                response.completeExceptionally(new ModbusProtocolException(
+                        String.format("Recv timeout %d : #%d unit=%d", timeout, counters.getMessageCounter(), unitAddr),
+                        ModbusProtocolErrorCode.RESPONSE_TIMEOUT));
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Allocates the next transaction identifier not already in use and registers the response future for it
+     */
+    private int nextTransactionId(final CompletableFuture<byte[]> response) {
+        while (true) {
+            final int id = transactionId.updateAndGet(i -> (i >= MAX_TRANSACTION_ID) ? 1 : i + 1);
+            if (pending.putIfAbsent(id, response) == null) {
+                return id;
+            }
+        }
+    }
+
+    private void write(final ByteBuffer frame) throws IOException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tcpConfig.getReceiveTimeoutMillis());
+        synchronized (writeLock) {
+            final SocketChannel socketChannel = channel;
+            if (socketChannel == null) {
+                throw new IOException("Not connected");
+            }
+            while (frame.hasRemaining()) {
+                if (socketChannel.write(frame) == 0) {
+                    // Socket send buffer is full, give the gateway a moment
+                    if (System.nanoTime() - deadline > 0) {
+                        throw new IOException("Write timeout");
+                    }
+                    LockSupport.parkNanos(100000);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reader loop, runs on its own thread until the transceiver is disconnected
+     */
+    private void receive(final Selector readSelector) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        try {
+            while (!Thread.currentThread().isInterrupted() && readSelector.isOpen()) {
+                if (readSelector.select() == 0) {
+                    continue;
+                }
+                readSelector.selectedKeys().clear();
+
+                final SocketChannel socketChannel = channel;
+                if (socketChannel == null) {
+                    break;
+                }
+                final int count = socketChannel.read(buffer);
+                if (count < 0) {
+                    throw new IOException("Connection closed by gateway");
+                }
+                counters.addBytesReceived(count);
+                buffer.flip();
+                decodeFrames(buffer);
+                buffer.compact();
+            }
+        } catch (final IOException | RuntimeException e) {
+            if (isConnected()) {
+                logger.warn("Modbus TCP receive failed: {}", e.getMessage());
+                counters.incrementFailedCounter();
+                setConnected(false);
+                failPending(new ModbusProtocolException(e.getMessage(), ModbusProtocolErrorCode.CONNECTION_FAILURE));
+            }
+        }
+    }
+
+    /**
+     * Decodes all complete MBAP frames in the buffer and completes the matching transactions. An incomplete frame is
+     * left in the buffer.
+     */
+    private void decodeFrames(final ByteBuffer buffer) throws IOException {
+        while (buffer.remaining() >= MBAP_HEADER_LENGTH) {
+            final int start = buffer.position();
+            final int id = buffer.getShort(start) & 0xffff;
+            final int protocol = buffer.getShort(start + 2) & 0xffff;
+            final int length = buffer.getShort(start + 4) & 0xffff;
+
+            if (protocol != 0 || length < 2 || length > MAX_PDU_LENGTH + 1) {
+                // We have lost track of the stream, there is no way to resync MBAP
+                throw new IOException(String.format("Invalid MBAP header id=%d protocol=%d length=%d", id, protocol,
+                        length));
+            }
+            if (buffer.remaining() < MBAP_HEADER_LENGTH - 1 + length) {
+                return;
+            }
+
+            final byte[] response = new byte[length];
+            buffer.position(start + MBAP_HEADER_LENGTH - 1);
+            buffer.get(response);
+
+            // Taken off the map, so the transaction cannot time out any more
+            final CompletableFuture<byte[]> transaction = pending.remove(id);
+            if (transaction == null) {
+                logger.debug("Response for unknown transaction {} dropped: {}", id,
+                        DatatypeConverter.printHexBinary(response));
+                continue;
+            }
+
+            if (logger.isTraceEnabled()) {
+                logger.trace("MODBUS receive ({}): {}", id, DatatypeConverter.printHexBinary(response));
+            }
+            if ((response[1] & 0x80) == 0x80) {
+                counters.incrementExceptionCounter(response[0]);
+                transaction.completeExceptionally(new ModbusProtocolException(
+                        "Exception response = " + (response.length > 2 ? Byte.toString(response[2]) : "?"),
+                        ModbusProtocolErrorCode.TRANSACTION_FAILURE));
+            } else {
+                transaction.complete(response);
+            }
+        }
+    }
+
+    private void failPending(final ModbusProtocolException e) {
+        for (final CompletableFuture<byte[]> transaction : pending.values()) {
+            transaction.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public int getMaxTransactionsInFlight() {
+        return tcpConfig.getMaxTransactionsInFlight();
+    }
+
+    public ModbusTcpConfiguration getTcpConfig() {
+        return tcpConfig;
+    }
+}
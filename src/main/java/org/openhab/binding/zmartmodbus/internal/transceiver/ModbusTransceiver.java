@@ -14,6 +14,7 @@ package org.openhab.binding.zmartmodbus.internal.transceiver;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -51,79 +52,52 @@ public abstract class ModbusTransceiver {
 
     /**
      * msgTransaction is responsible for the low level communication with the modbus device
-     *  
-     * msgTransaction must be called with a byte array having two extra bytes for
-     * the CRC. It will return a byte array of the response to the message.
+     *
+     * The request holds unit id, function code and data; the transceiver frames it in place (CRC, MBAP header or
+     * ASCII). It will return a byte array of the response to the message.
      * Validation will include checking the CRC and verifying the command matches.
-     * 
-     * @param msg
+     *
+     * @param request
      * @param customCode
      * @return msg
      * @throws ModbusProtocolException
      */
-    public byte[] msgTransaction(byte[] msg, int customCode) throws ModbusProtocolException {
+    public byte[] msgTransaction(ModbusRequest request, int customCode) throws ModbusProtocolException {
         return new byte[0];
     }
 
-    protected byte asciiLrcCalc(byte[] msg, int len) {
-        char[] ac = new char[2];
-        ac[0] = (char) msg[len - 4];
-        ac[1] = (char) msg[len - 3];
-        String s = new String(ac);
-        byte lrc = (byte) Integer.parseInt(s, 16);
-        return lrc;
-    }
-
-    protected int binLrcCalc(byte[] msg) {
-        int llrc = 0;
-        for (byte element : msg) {
-            llrc += element & 0xff;
+    /**
+     * msgTransactionAsync sends the request and returns a future completed with the response (unit id, function code
+     * and data), or exceptionally with the {@link ModbusProtocolException}. The request belongs to the transaction
+     * until the future completes.
+     *
+     * Serial transceivers wait for the response on the calling thread and return a completed future.
+     *
+     * @param request
+     * @param customCode
+     * @return future response
+     */
+    public CompletableFuture<byte[]> msgTransactionAsync(ModbusRequest request, int customCode) {
+        try {
+            return CompletableFuture.completedFuture(msgTransaction(request, customCode));
+        } catch (ModbusProtocolException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        llrc = (llrc ^ 0xff) + 1;
-        // byte lrc=(byte)(llrc & 0x0ff);
-        return llrc;
     }
 
     /**
-     * convertCommandToAscii: convert a binary command into a standard
-     * ModbusFunction ASCII frame
+     * @return number of requests that may wait for a response at the same time, 1 unless the framing tells the
+     *         responses apart
      */
-    protected byte[] convertCommandToAscii(byte[] msg) {
-        int lrc = binLrcCalc(msg);
-
-        char[] hexArray = "0123456789ABCDEF".toCharArray();
-        byte[] ab = new byte[msg.length * 2 + 5];
-        ab[0] = ':';
-        int v;
-        for (int i = 0; i < msg.length; i++) {
-            v = msg[i] & 0xff;
-            ab[i * 2 + 1] = (byte) hexArray[v >>> 4];
-            ab[i * 2 + 2] = (byte) hexArray[v & 0x0f];
-        }
-        v = lrc & 0x0ff;
-        ab[ab.length - 4] = (byte) hexArray[v >>> 4];
-        ab[ab.length - 3] = (byte) hexArray[v & 0x0f];
-        ab[ab.length - 2] = 13;
-        ab[ab.length - 1] = 10;
-        return ab;
+    public int getMaxTransactionsInFlight() {
+        return 1;
     }
 
     /**
-     * convertAsciiResponseToBin: convert a standard ModbusFunction frame to byte
-     * array
+     * msgTransaction for a message (unit id, function code and data) in an array of its own
      */
-    protected byte[] convertAsciiResponseToBin(byte[] msg, int len) {
-        int l = (len - 5) / 2;
-        byte[] ab = new byte[l];
-        char[] ac = new char[2];
-        // String s=new String(msg);
-        for (int i = 0; i < l; i++) {
-            ac[0] = (char) msg[i * 2 + 1];
-            ac[1] = (char) msg[i * 2 + 2];
-            // String s=new String(ac);
-            ab[i] = (byte) Integer.parseInt(new String(ac), 16);
-        }
-        return ab;
+    public byte[] msgTransaction(byte[] msg, int customCode) throws ModbusProtocolException {
+        return msgTransaction(new ModbusRequest().put(msg), customCode);
     }
 
     public void setConnected(boolean connected) {
@@ -12,11 +12,14 @@
  */
 package org.openhab.binding.zmartmodbus.internal.util;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
- * Class that implements a collection for bits, storing them packed into bytes.
+ * Class that implements a collection for bits, storing them packed into longs.
  * Per default the access operations will index from the LSB (rightmost) bit.
+ * Byte access sees the bits as packed into bytes, bit 0 being the LSB of byte 0.
+ * Bits beyond the byte store are always 0.
  *
  * @author Peter Kristensen - Initial contribution
  *
@@ -27,7 +30,8 @@ public final class BitVector {
 
     // instance attributes
     private int m_Size;
-    private byte[] m_Data;
+    private int m_ByteSize;
+    private long[] m_Words;
     private boolean m_MSBAccess = false;
 
     /**
@@ -40,9 +44,8 @@ public final class BitVector {
         // store bits
         m_Size = size;
         // calculate size in bytes
-        m_Data = new byte[(size + 7) / 8];
-        // make sure its all zeros
-        Arrays.fill(m_Data, (byte) 0x00);
+        m_ByteSize = (size + 7) / 8;
+        m_Words = new long[wordCount(m_ByteSize)];
     }// constructor
 
     /**
@@ -94,29 +97,34 @@ public final class BitVector {
     }// isMSBAccess
 
     /**
-     * Returns the <tt>byte[]</tt> which is used to store the bits of this
-     * <tt>BitVector</tt>.
+     * Returns the bits of this <tt>BitVector</tt> packed into bytes.
      * <p>
      *
-     * @return the <tt>byte[]</tt> used to store the bits.
+     * @return a copy of the bits as <tt>byte[]</tt>.
      */
     public final byte[] getBytes() {
-        return m_Data;
+        byte[] data = new byte[m_ByteSize];
+        for (int i = 0; i < m_ByteSize; i++) {
+            data[i] = getByte(i);
+        }
+        return data;
     }// getBytes
 
     /**
-     * Returns the <tt>byte[]</tt> which is used to store the bits of this
-     * <tt>BitVector</tt>.
+     * Returns a byte of the bits of this <tt>BitVector</tt>.
      * <p>
      *
-     * @return the <tt>byte[]</tt> used to store the bits.
+     * @return the byte holding bits index * 8 up to index * 8 + 7.
      */
     public final byte getByte(int index) {
-        return m_Data[index];
+        checkByteIndex(index);
+        return (byte) (m_Words[index >>> 3] >>> ((index & 7) << 3));
     }// getByte
 
     public final void setByte(int index, byte data) {
-        m_Data[index] = data;
+        checkByteIndex(index);
+        int shift = (index & 7) << 3;
+        m_Words[index >>> 3] = (m_Words[index >>> 3] & ~(0xFFL << shift)) | ((data & 0xFFL) << shift);
     }// setByte
 
     public final int toInt() {
@@ -155,8 +163,8 @@ public final class BitVector {
     public final void doBytesSwap(byte[] data) {
         // Only works with even sets of bytes
         for (int i = 1; i < data.length; i = i + 2) {
-            m_Data[i - 1] = data[i];
-            m_Data[i] = data[i - 1];
+            setByte(i - 1, data[i]);
+            setByte(i, data[i - 1]);
         }
     }// setBytes
 
@@ -167,7 +175,7 @@ public final class BitVector {
      * @param data a <tt>byte[]</tt>.
      */
     public final void setBytes(byte[] data) {
-        System.arraycopy(data, 0, m_Data, 0, data.length);
+        setBytes(data, 0, data.length);
     }// setBytes
 
     /**
@@ -177,10 +185,35 @@ public final class BitVector {
      * @param data a <tt>byte[]</tt>.
      */
     public final void setBytes(byte[] data, int size) {
-        System.arraycopy(data, 0, m_Data, 0, data.length);
+        setBytes(data);
         m_Size = size;
     }// setBytes
 
+    /**
+     * Copies packed bits from a part of a <tt>byte[]</tt>, e.g. a response frame,
+     * to the start of this <tt>BitVector</tt>, eight bytes at a time.
+     *
+     * @param data a <tt>byte[]</tt> containing packed bits.
+     * @param offset index of the first byte to copy.
+     * @param count number of bytes to copy.
+     */
+    private void setBytes(byte[] data, int offset, int count) {
+        if (count > m_ByteSize) {
+            throw new IndexOutOfBoundsException();
+        }
+        int i = 0;
+        for (; i + 8 <= count; i += 8) {
+            long word = 0;
+            for (int j = 7; j >= 0; j--) {
+                word = (word << 8) | (data[offset + i + j] & 0xFFL);
+            }
+            m_Words[i >>> 3] = word;
+        }
+        for (; i < count; i++) {
+            setByte(i, data[offset + i]);
+        }
+    }// setBytes
+
     /**
      * Returns the state of the bit at the given index of this <tt>BitVector</tt>.
      * <p>
@@ -192,10 +225,42 @@ public final class BitVector {
      * @throws IndexOutOfBoundsException if the index is out of bounds.
      */
     public final boolean getBit(int index) throws IndexOutOfBoundsException {
-        index = translateIndex(index);
-        return ((m_Data[byteIndex(index)] & (0x01 << bitIndex(index))) != 0) ? true : false;
+        index = checkIndex(translateIndex(index));
+        return (m_Words[index >>> 6] & (1L << index)) != 0;
     }// getBit
 
+    /**
+     * Returns the index of the first set bit at or after the given index, bits
+     * are indexed as with LSB access.
+     * <p>
+     *
+     * @param from the index to start looking at.
+     *
+     * @return the index of the next set bit below {@link #size()}, or -1 if
+     *         there is none.
+     */
+    public final int nextSetBit(int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        int limit = Math.min(m_Size, m_ByteSize * 8);
+        if (from >= limit) {
+            return -1;
+        }
+        int wordIndex = from >>> 6;
+        long word = m_Words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int index = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                return (index < limit) ? index : -1;
+            }
+            if (++wordIndex >= m_Words.length) {
+                return -1;
+            }
+            word = m_Words[wordIndex];
+        }
+    }// nextSetBit
+
     /**
      * Returns the state of the bits as an array of booleans give the state of this
      * <tt>BitVector</tt>.
@@ -209,14 +274,14 @@ public final class BitVector {
     public final boolean[] getBits() throws IndexOutOfBoundsException {
         boolean[] bits = new boolean[m_Size];
         for (int i = 0; i < m_Size; i++) {
-            int index = translateIndex(i);
-            bits[i] = ((m_Data[byteIndex(index)] & (0x01 << bitIndex(index))) != 0) ? true : false;
+            bits[i] = getBit(i);
         }
         return bits;
     }// getBits
 
     /**
-     * Returns a range of a BitVector <tt>BitVector</tt>.
+     * Returns a range of a BitVector <tt>BitVector</tt>, copied 64 bits at a time.
+     * Bits beyond the byte store are 0.
      * <p>
      *
      * @param start where the range starts (inclusive)
@@ -228,6 +293,16 @@ public final class BitVector {
      */
     public final BitVector rangeOf(int start, int stop) throws IndexOutOfBoundsException {
         BitVector ret_Data = new BitVector(stop - start);
+        if (!m_MSBAccess) {
+            if (start < 0) {
+                throw new IndexOutOfBoundsException();
+            }
+            for (int i = 0; i < ret_Data.m_Words.length; i++) {
+                ret_Data.m_Words[i] = wordAt(start + (i << 6));
+            }
+            ret_Data.clearBitsFrom(ret_Data.size());
+            return ret_Data;
+        }
         for (int i = 0; i < ret_Data.size(); i++) {
             if (i < m_Size) {
                 ret_Data.setBit(i, getBit(i + start));
@@ -248,11 +323,12 @@ public final class BitVector {
      * @throws IndexOutOfBoundsException if the index is out of bounds.
      */
     public final void setBit(int index, boolean b) throws IndexOutOfBoundsException {
-        index = translateIndex(index);
-        int value = ((b) ? 1 : 0);
-        int byteNum = byteIndex(index);
-        int bitNum = bitIndex(index);
-        m_Data[byteNum] = (byte) ((m_Data[byteNum] & ~(0x01 << bitNum)) | ((value & 0x01) << bitNum));
+        index = checkIndex(translateIndex(index));
+        if (b) {
+            m_Words[index >>> 6] |= 1L << index;
+        } else {
+            m_Words[index >>> 6] &= ~(1L << index);
+        }
     }// setBit
 
     /**
@@ -273,7 +349,7 @@ public final class BitVector {
      *                                  multiplied by 8.
      */
     public final void forceSize(int size) {
-        if (size > m_Data.length * 8) {
+        if (size > m_ByteSize * 8) {
             throw new IllegalArgumentException("Size exceeds byte[] store.");
         } else {
             m_Size = size;
@@ -287,16 +363,9 @@ public final class BitVector {
      * @param size
      */
     public final void forceSizeOrExtent(int size) {
-        if (size > m_Data.length * 8) {
-            // store bits
-            byte[] new_Data = new byte[(size + 7) / 8];
-            // make sure its all zeros
-            Arrays.fill(new_Data, (byte) 0x00);
-            // store bits
-            for (int i = 0; i < m_Data.length; i++) {
-                new_Data[i] = m_Data[i];
-            }
-            m_Data = new_Data;
+        if (size > m_ByteSize * 8) {
+            m_ByteSize = (size + 7) / 8;
+            m_Words = Arrays.copyOf(m_Words, wordCount(m_ByteSize));
         }
         m_Size = size;
     }// forceSizeOrExtent
@@ -309,7 +378,7 @@ public final class BitVector {
      * @return the number of bytes in this <tt>BitVector</tt>.
      */
     public final int byteSize() {
-        return m_Data.length;
+        return m_ByteSize;
     }// byteSize
 
     /**
@@ -320,7 +389,7 @@ public final class BitVector {
      * @return the number of registers (16 bit) in this <tt>BitVector</tt>.
      */
     public final int regSize() {
-        return (m_Data.length + 1) / 2;
+        return (m_ByteSize + 1) / 2;
     }// regSize
 
     /**
@@ -359,44 +428,67 @@ public final class BitVector {
     }
 
     /**
-     * Returns the index of the byte in the the byte array that contains the given
-     * bit.
+     * Checks the index of a bit against the byte store.
      * <p>
      *
      * @param index the index of the bit.
      *
-     * @return the index of the byte where the given bit is stored.
+     * @return the index.
      *
      * @throws IndexOutOfBoundsException if index is out of bounds.
      */
-    private final int byteIndex(int index) throws IndexOutOfBoundsException {
-
-        if (index < 0 || index >= m_Data.length * 8) {
+    private final int checkIndex(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= m_ByteSize * 8) {
             throw new IndexOutOfBoundsException();
-        } else {
-            return index / 8;
         }
-    }// byteIndex
+        return index;
+    }// checkIndex
+
+    private final void checkByteIndex(int index) throws ArrayIndexOutOfBoundsException {
+        if (index < 0 || index >= m_ByteSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+    }// checkByteIndex
 
     /**
-     * Returns the index of the given bit in the byte where it it stored.
-     * <p>
-     *
-     * @param index the index of the bit.
-     *
-     * @return the bit index relative to the position in the byte that stores the
-     *         specified bit.
-     *
-     * @throws IndexOutOfBoundsException if index is out of bounds.
+     * Returns the 64 bits starting at the given bit, bits beyond the store are 0.
      */
-    private final int bitIndex(int index) throws IndexOutOfBoundsException {
+    private final long wordAt(int bit) {
+        int wordIndex = bit >>> 6;
+        int shift = bit & 63;
+        if (wordIndex >= m_Words.length) {
+            return 0;
+        }
+        long word = m_Words[wordIndex] >>> shift;
+        if (shift != 0 && wordIndex + 1 < m_Words.length) {
+            word |= m_Words[wordIndex + 1] << (64 - shift);
+        }
+        return word;
+    }// wordAt
 
-        if (index < 0 || index >= m_Data.length * 8) {
-            throw new IndexOutOfBoundsException();
-        } else {
-            return index % 8;
+    /**
+     * Clears the bits from the given index up to the end of the words.
+     */
+    private final void clearBitsFrom(int index) {
+        int wordIndex = index >>> 6;
+        if (wordIndex < m_Words.length && (index & 63) != 0) {
+            m_Words[wordIndex++] &= -1L >>> (64 - (index & 63));
+        }
+        for (; wordIndex < m_Words.length; wordIndex++) {
+            m_Words[wordIndex] = 0;
         }
-    }// bitIndex
+    }// clearBitsFrom
+
+    /**
+     * Keeps bits beyond the byte store 0.
+     */
+    private final void clearUnusedBits() {
+        clearBitsFrom(m_ByteSize * 8);
+    }// clearUnusedBits
+
+    private static int wordCount(int byteSize) {
+        return (byteSize + 7) / 8;
+    }// wordCount
 
     private final int translateIndex(int idx) {
         if (m_MSBAccess) {
@@ -437,11 +529,41 @@ public final class BitVector {
      * @return the newly created <tt>BitVector</tt> instance.
      */
     public static BitVector createBitVector(byte[] data, int size) {
+        return createBitVector(data, 0, size);
+    }// createBitVector
+
+    /**
+     * Factory method for creating a <tt>BitVector</tt> instance from bits packed
+     * inside a larger byte array, e.g. a response frame.
+     *
+     * @param data a byte[] containing packed bits.
+     * @param offset index of the first byte of the bits.
+     * @param size number of bits.
+     * @return the newly created <tt>BitVector</tt> instance.
+     */
+    public static BitVector createBitVector(byte[] data, int offset, int size) {
         BitVector bv = new BitVector(size);
-        bv.setBytes(Arrays.copyOfRange(data, 0, (size + 7) / 8));
+        bv.setBytes(data, offset, bv.m_ByteSize);
         return bv;
     }// createBitVector
 
+    /**
+     * Factory method for creating a <tt>BitVector</tt> instance from a register view.
+     * Swapping each pair of bytes to accommodate for LittleBigEndian
+     *
+     * @param data a ByteBuffer containing packed bits.
+     * @return the newly created <tt>BitVector</tt> instance.
+     */
+    public static BitVector createBitVectorSwap(ByteBuffer data, int size) {
+        BitVector bv = new BitVector(size);
+        int length = ((size + 7) / 8) & ~1;
+        for (int i = 1; i < length; i = i + 2) {
+            bv.setByte(i - 1, data.get(i));
+            bv.setByte(i, data.get(i - 1));
+        }
+        return bv;
+    }// createBitVectorSwap
+
     /**
      * Factory method for creating a <tt>BitVector</tt> instance wrapping the given
      * byte data.
@@ -451,7 +573,8 @@ public final class BitVector {
      */
     public static BitVector createBitVector(byte filler, int size) {
         BitVector bv = new BitVector(size);
-        Arrays.fill(bv.m_Data, filler);
+        Arrays.fill(bv.m_Words, (filler & 0xFFL) * 0x0101010101010101L);
+        bv.clearUnusedBits();
         return bv;
     }// createBitVector
 
@@ -525,17 +648,40 @@ public final class BitVector {
     }// createBitVector
 
     public boolean equals(BitVector compare) {
-        return Arrays.equals(m_Data, compare.getBytes());
+        return m_ByteSize == compare.m_ByteSize && Arrays.equals(m_Words, compare.m_Words);
     }
 
     public BitVector add(BitVector bv1, BitVector bv2) {
         BitVector bvret = new BitVector(bv1.size() + bv2.size());
         int length1 = bv1.size();
         int length2 = bv2.size();
-        bvret.setBytes(bv1.getBytes());
-        for (int i = 0; i < length2; i++) {
-            bvret.setBit(i + length1, bv2.getBit(i));
+        if (bv1.m_MSBAccess || bv2.m_MSBAccess) {
+            bvret.setBytes(bv1.getBytes());
+            for (int i = 0; i < length2; i++) {
+                bvret.setBit(i + length1, bv2.getBit(i));
+            }
+            return bvret;
+        }
+        if (bv1.m_ByteSize > bvret.m_ByteSize) {
+            throw new ArrayIndexOutOfBoundsException(bvret.m_ByteSize);
+        }
+        System.arraycopy(bv1.m_Words, 0, bvret.m_Words, 0, bv1.m_Words.length);
+        bvret.clearBitsFrom(length1);
+        // Shift the words of bv2 into place behind bv1
+        for (int i = 0; i < (length2 + 63) >>> 6; i++) {
+            long word = bv2.wordAt(i << 6);
+            if (((i + 1) << 6) > length2) {
+                word &= -1L >>> (64 - (length2 & 63));
+            }
+            int bit = length1 + (i << 6);
+            int wordIndex = bit >>> 6;
+            int shift = bit & 63;
+            bvret.m_Words[wordIndex] |= word << shift;
+            if (shift != 0 && wordIndex + 1 < bvret.m_Words.length) {
+                bvret.m_Words[wordIndex + 1] |= word >>> (64 - shift);
+            }
         }
+        bvret.clearUnusedBits();
         return bvret;
     }
 
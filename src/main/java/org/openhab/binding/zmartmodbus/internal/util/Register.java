@@ -12,6 +12,7 @@
  */
 package org.openhab.binding.zmartmodbus.internal.util;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -334,7 +335,8 @@ public final class Register {
     }// registersToInt
 
     public static final int registersToInt(byte[] bytes, int from) {
-        return registersToInt(Arrays.copyOfRange(bytes, from, from + 4));
+        return (((bytes[from] & 0xff) << 24) | ((bytes[from + 1] & 0xff) << 16) | ((bytes[from + 2] & 0xff) << 8)
+                | (bytes[from + 3] & 0xff));
     }// registersToInt
 
     public static final int registersToIntSwap(byte[] bytes) {
@@ -342,7 +344,8 @@ public final class Register {
     }// registersToInt
 
     public static final int registersToIntSwap(byte[] bytes, int from) {
-        return registersToInt(fromLittleBigEndian(Arrays.copyOfRange(bytes, from, from + 4)));
+        return (((bytes[from + 2] & 0xff) << 24) | ((bytes[from + 3] & 0xff) << 16) | ((bytes[from] & 0xff) << 8)
+                | (bytes[from + 1] & 0xff));
     }// registersToInt
 
     /**
@@ -385,7 +388,7 @@ public final class Register {
     }// registersToInt
 
     public static final int registersToUnsignedInt(byte[] bytes, int from) {
-        return registersToInt(Arrays.copyOfRange(bytes, from, from + 4));
+        return registersToInt(bytes, from);
     }// registersToInt
 
     public static final int registersToUnsignedIntSwap(byte[] bytes) {
@@ -393,7 +396,7 @@ public final class Register {
     }// registersToInt
 
     public static final int registersToUnsignedIntSwap(byte[] bytes, int from) {
-        return registersToInt(fromLittleBigEndian(Arrays.copyOfRange(bytes, from, from + 4)));
+        return registersToIntSwap(bytes, from);
     }// registersToInt
 
     /**
@@ -459,7 +462,7 @@ public final class Register {
     }// registersToFloat
 
     public static final float registersToFloat(byte[] bytes, int from) {
-        return registersToFloat(Arrays.copyOfRange(bytes, from, from + 4));
+        return Float.intBitsToFloat(registersToInt(bytes, from));
     }
 
     public static final float registersToFloatSwap(byte[] bytes) {
@@ -467,7 +470,7 @@ public final class Register {
     }// registersToFloatSwap
 
     public static final float registersToFloatSwap(byte[] bytes, int from) {
-        return registersToFloat(fromLittleBigEndian(Arrays.copyOfRange(bytes, from, from + 4)));
+        return Float.intBitsToFloat(registersToIntSwap(bytes, from));
     }// registersToFloatSwap
 
  
@@ -524,6 +527,98 @@ public final class Register {
         return toLittleBigEndian(longToRegisters(Double.doubleToLongBits(d)));
     }// doubleToRegisters
 
+    /**
+     * Returns a read-only view of registers received from a unit, the bytes are not copied.
+     *
+     * @param data the response holding the registers.
+     * @param from index of the first register byte.
+     * @param length number of register bytes.
+     * @return a big endian <tt>ByteBuffer</tt> with the first register byte at index 0.
+     */
+    public static final ByteBuffer registerView(byte[] data, int from, int length) {
+        return ByteBuffer.wrap(data, from, length).slice().asReadOnlyBuffer();
+    }// registerView
+
+    /**
+     * Returns a read-only view of a part of the given registers, the bytes are not copied.
+     *
+     * @param registers the registers.
+     * @param from index of the first byte of the part.
+     * @param length number of bytes of the part.
+     * @return a big endian <tt>ByteBuffer</tt> with the first byte of the part at index 0.
+     */
+    public static final ByteBuffer registerView(ByteBuffer registers, int from, int length) {
+        ByteBuffer view = registers.duplicate();
+        view.limit(from + length).position(from);
+        return view.slice().asReadOnlyBuffer();
+    }// registerView
+
+    /**
+     * Returns a view of the given registers, a <tt>byte[]</tt> is wrapped without copying.
+     *
+     * @param registers a <tt>ByteBuffer</tt> or <tt>byte[]</tt> of registers.
+     * @return the registers as big endian <tt>ByteBuffer</tt> with the first byte at index 0.
+     */
+    public static final ByteBuffer registerView(Object registers) {
+        if (registers instanceof ByteBuffer) {
+            return (ByteBuffer) registers;
+        }
+        return ByteBuffer.wrap((byte[]) registers);
+    }// registerView
+
+    /**
+     * Copies bytes out of a register view, like {@link Arrays#copyOfRange(byte[], int, int)} bytes beyond the
+     * view are 0.
+     *
+     * @param registers the registers.
+     * @param from index of the first byte to copy.
+     * @param to index behind the last byte to copy.
+     * @return the bytes as a new <tt>byte[]</tt>.
+     */
+    public static final byte[] copyOfRange(ByteBuffer registers, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length && from + i < registers.limit(); i++) {
+            bytes[i] = registers.get(from + i);
+        }
+        return bytes;
+    }// copyOfRange
+
+    public static final int registerToUnsignedShort(ByteBuffer registers, int from) {
+        return registers.getShort(from) & 0xffff;
+    }// registerToUnsignedShort
+
+    public static final short registerToShort(ByteBuffer registers, int from) {
+        return registers.getShort(from);
+    }// registerToShort
+
+    public static final int registersToInt(ByteBuffer registers, int from) {
+        return registers.getInt(from);
+    }// registersToInt
+
+    public static final int registersToIntSwap(ByteBuffer registers, int from) {
+        return (registers.getShort(from + 2) << 16) | (registers.getShort(from) & 0xffff);
+    }// registersToIntSwap
+
+    public static final int registersToUnsignedInt(ByteBuffer registers, int from) {
+        return registers.getInt(from);
+    }// registersToUnsignedInt
+
+    public static final int registersToUnsignedIntSwap(ByteBuffer registers, int from) {
+        return registersToIntSwap(registers, from);
+    }// registersToUnsignedIntSwap
+
+    public static final float registersToFloat(ByteBuffer registers, int from) {
+        return registers.getFloat(from);
+    }// registersToFloat
+
+    public static final float registersToFloatSwap(ByteBuffer registers, int from) {
+        return Float.intBitsToFloat(registersToIntSwap(registers, from));
+    }// registersToFloatSwap
+
+    public static final int unsignedByteToInt(ByteBuffer registers, int index) {
+        return registers.get(index) & 0xff;
+    }// unsignedByteToInt
+
     /**
      * Converts an unsigned byte to an integer.
      *
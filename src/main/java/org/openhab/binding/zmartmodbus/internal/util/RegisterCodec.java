@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.util;
+
+import static org.openhab.binding.zmartmodbus.internal.util.Register.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link RegisterCodec} reads and writes 16, 32 and 64 bit numbers spread over one or more registers, in any of
+ * the four word orders. Values are read straight out of a register view (or written into a <tt>byte[]</tt>) with a
+ * single big or little endian access; the two orders that swap the bytes of each register swap them in the value
+ * afterwards, so no bytes are rearranged in between.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public final class RegisterCodec {
+
+    /**
+     * Order of the bytes of a value, 1 being the most significant byte. Registers are 2 bytes, so the order tells
+     * both the order of the registers and the order of the bytes within a register.
+     */
+    public enum WordOrder {
+        BigBig(MODBUS_LONG_ORDER_BIG_BIG_ENDIAN, false, false), // high register first, high byte first
+        BigLittle(MODBUS_LONG_ORDER_BIG_LITTLE_ENDIAN, false, true), // high register first, low byte first
+        LittleBig(MODBUS_LONG_ORDER_LITTLE_BIG_ENDIAN, true, true), // low register first, high byte first
+        LittleLittle(MODBUS_LONG_ORDER_LITTLE_LITTLE_ENDIAN, true, false); // low register first, low byte first
+
+        private final String text;
+        private final boolean littleEndian; // access the whole value little endian
+        private final boolean swapBytes; // then swap the bytes of each register
+
+        private WordOrder(final String text, final boolean littleEndian, final boolean swapBytes) {
+            this.text = text;
+            this.littleEndian = littleEndian;
+            this.swapBytes = swapBytes;
+        }
+
+        public String getLabel() {
+            return text;
+        }
+
+        /**
+         * @return the word order, null if the text is not one of "1234", "2143", "3412" or "4321"
+         */
+        public static @Nullable WordOrder fromString(@Nullable String text) {
+            if (text != null) {
+                for (WordOrder c : WordOrder.values()) {
+                    if (text.trim().equals(c.text)) {
+                        return c;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final VarHandle SHORT_BE = MethodHandles.byteBufferViewVarHandle(short[].class,
+            ByteOrder.BIG_ENDIAN);
+    private static final VarHandle SHORT_LE = MethodHandles.byteBufferViewVarHandle(short[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_BE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteBufferViewVarHandle(int[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BE = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_LE = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle ARRAY_SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class,
+            ByteOrder.BIG_ENDIAN);
+    private static final VarHandle ARRAY_SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle ARRAY_INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class,
+            ByteOrder.BIG_ENDIAN);
+    private static final VarHandle ARRAY_INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle ARRAY_LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.BIG_ENDIAN);
+    private static final VarHandle ARRAY_LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private RegisterCodec() {
+    }
+
+    public static short getInt16(ByteBuffer registers, int index, WordOrder order) {
+        // A single register only has its bytes swapped, by reading it the other way
+        return (order.littleEndian != order.swapBytes) ? (short) SHORT_LE.get(registers, index)
+                : (short) SHORT_BE.get(registers, index);
+    }// getInt16
+
+    public static int getUint16(ByteBuffer registers, int index, WordOrder order) {
+        return getInt16(registers, index, order) & 0xffff;
+    }// getUint16
+
+    public static int getInt32(ByteBuffer registers, int index, WordOrder order) {
+        int value = order.littleEndian ? (int) INT_LE.get(registers, index) : (int) INT_BE.get(registers, index);
+        return order.swapBytes ? swapBytes(value) : value;
+    }// getInt32
+
+    public static long getUint32(ByteBuffer registers, int index, WordOrder order) {
+        return getInt32(registers, index, order) & 0xffffffffL;
+    }// getUint32
+
+    public static long getInt64(ByteBuffer registers, int index, WordOrder order) {
+        long value = order.littleEndian ? (long) LONG_LE.get(registers, index) : (long) LONG_BE.get(registers, index);
+        return order.swapBytes ? swapBytes(value) : value;
+    }// getInt64
+
+    public static float getFloat32(ByteBuffer registers, int index, WordOrder order) {
+        return Float.intBitsToFloat(getInt32(registers, index, order));
+    }// getFloat32
+
+    public static double getFloat64(ByteBuffer registers, int index, WordOrder order) {
+        return Double.longBitsToDouble(getInt64(registers, index, order));
+    }// getFloat64
+
+    public static void putInt16(byte[] registers, int index, short value, WordOrder order) {
+        if (order.littleEndian != order.swapBytes) {
+            ARRAY_SHORT_LE.set(registers, index, value);
+        } else {
+            ARRAY_SHORT_BE.set(registers, index, value);
+        }
+    }// putInt16
+
+    public static void putInt32(byte[] registers, int index, int value, WordOrder order) {
+        int swapped = order.swapBytes ? swapBytes(value) : value;
+        if (order.littleEndian) {
+            ARRAY_INT_LE.set(registers, index, swapped);
+        } else {
+            ARRAY_INT_BE.set(registers, index, swapped);
+        }
+    }// putInt32
+
+    public static void putInt64(byte[] registers, int index, long value, WordOrder order) {
+        long swapped = order.swapBytes ? swapBytes(value) : value;
+        if (order.littleEndian) {
+            ARRAY_LONG_LE.set(registers, index, swapped);
+        } else {
+            ARRAY_LONG_BE.set(registers, index, swapped);
+        }
+    }// putInt64
+
+    public static void putFloat32(byte[] registers, int index, float value, WordOrder order) {
+        putInt32(registers, index, Float.floatToIntBits(value), order);
+    }// putFloat32
+
+    public static void putFloat64(byte[] registers, int index, double value, WordOrder order) {
+        putInt64(registers, index, Double.doubleToLongBits(value), order);
+    }// putFloat64
+
+    public static byte[] int16ToRegisters(short value, WordOrder order) {
+        byte[] registers = new byte[2];
+        putInt16(registers, 0, value, order);
+        return registers;
+    }// int16ToRegisters
+
+    public static byte[] int32ToRegisters(int value, WordOrder order) {
+        byte[] registers = new byte[4];
+        putInt32(registers, 0, value, order);
+        return registers;
+    }// int32ToRegisters
+
+    public static byte[] int64ToRegisters(long value, WordOrder order) {
+        byte[] registers = new byte[8];
+        putInt64(registers, 0, value, order);
+        return registers;
+    }// int64ToRegisters
+
+    public static byte[] float32ToRegisters(float value, WordOrder order) {
+        return int32ToRegisters(Float.floatToIntBits(value), order);
+    }// float32ToRegisters
+
+    public static byte[] float64ToRegisters(double value, WordOrder order) {
+        return int64ToRegisters(Double.doubleToLongBits(value), order);
+    }// float64ToRegisters
+
+    private static int swapBytes(int value) {
+        return ((value & 0x00ff00ff) << 8) | ((value >>> 8) & 0x00ff00ff);
+    }// swapBytes
+
+    private static long swapBytes(long value) {
+        return ((value & 0x00ff00ff00ff00ffL) << 8) | ((value >>> 8) & 0x00ff00ff00ff00ffL);
+    }// swapBytes
+}
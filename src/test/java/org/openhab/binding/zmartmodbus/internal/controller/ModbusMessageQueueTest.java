@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusMessage;
+
+/**
+ * Tests the {@link ModbusMessageQueue} while the event thread is behind: the queue is filled before the event thread
+ * gets to run.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusMessageQueueTest {
+
+    private static final int CAPACITY = 3;
+
+    private final List<Runnable> eventThread = new ArrayList<>();
+    private final List<Integer> processed = new ArrayList<>();
+    private final ModbusMessageQueue queue = new ModbusMessageQueue(CAPACITY, eventThread::add,
+            message -> processed.add(message.getDataSetId()));
+
+    @Test
+    public void oldestPeriodicMessageIsDropped() {
+        queue.offer(periodic(1));
+        queue.offer(periodic(2));
+        queue.offer(periodic(3));
+        queue.offer(periodic(4));
+
+        runEventThread();
+        assertEquals(List.of(2, 3, 4), processed);
+        assertEquals(1, queue.getDropped());
+    }
+
+    @Test
+    public void internalAndOnDemandMessagesGetThrough() {
+        queue.offer(new ModbusMessage(1, new Object(), true, true));
+        queue.offer(new ModbusMessage(2, new Object(), false, false));
+        queue.offer(periodic(3));
+        queue.offer(new ModbusMessage(4, new Object(), false, false));
+        queue.offer(new ModbusMessage(5, new Object(), true, true));
+        queue.offer(periodic(6));
+
+        runEventThread();
+        assertEquals(List.of(1, 2, 4, 5), processed);
+        assertEquals(2, queue.getDropped());
+    }
+
+    private static ModbusMessage periodic(int dataSetId) {
+        return new ModbusMessage(dataSetId, new Object(), false, true);
+    }
+
+    private void runEventThread() {
+        assertEquals(1, eventThread.size());
+        eventThread.get(0).run();
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.factory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionClass;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusFeedRepeat;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusMessageClass;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusReportOn;
+import org.openhab.binding.zmartmodbus.internal.protocol.ModbusCounters;
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusAction;
+import org.openhab.core.thing.ThingUID;
+
+/**
+ * Tests the write coalescing and the window of the {@link ModbusActionDispatcher}. The bus is held while the writes
+ * are queued, then the writes sent are applied to a model of the unit's registers.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusActionDispatcherTest {
+
+    private final ThingUID thingUID = new ThingUID("zmartmodbus:data:test");
+    private final List<Runnable> bus = new ArrayList<>();
+    private final List<ModbusAction> sent = new ArrayList<>();
+    private final List<CompletableFuture<Void>> responses = new ArrayList<>();
+    private final ModbusActionDispatcher dispatcher = new ModbusActionDispatcher(action -> {
+        sent.add(action);
+        CompletableFuture<Void> response = new CompletableFuture<>();
+        responses.add(response);
+        return response;
+    }, new ModbusCounters());
+
+    @BeforeEach
+    public void setUp() {
+        dispatcher.start(bus::add, ModbusActionDispatcher.ORDERING_STRICT);
+    }
+
+    @Test
+    public void nextActionIsSentWhenOneInFlightIsDone() {
+        dispatcher.setMaxInFlight(2);
+        dispatcher.submit(write(1, 10, 1));
+        dispatcher.submit(write(2, 20, 2));
+        dispatcher.submit(write(3, 30, 3));
+
+        runBus();
+        // The window is full, the third write waits for a response
+        assertEquals(2, sent.size());
+
+        responses.get(1).complete(null);
+        runBus();
+        assertEquals(3, sent.size());
+        assertEquals(30, sent.get(2).getStart());
+    }
+
+    @Test
+    public void newestValueWinsOverlappingMergedWrite() {
+        dispatcher.setWriteMerging(uid -> true);
+        queueOverlappingWrites();
+
+        Map<Integer, Integer> registers = runBusAndAnswer();
+        assertEquals(1, sent.size());
+        assertEquals(3, registers.get(10));
+        assertEquals(2, registers.get(11));
+    }
+
+    @Test
+    public void newestValueWinsOverlappingWrite() {
+        queueOverlappingWrites();
+
+        Map<Integer, Integer> registers = runBusAndAnswer();
+        assertEquals(2, sent.size());
+        assertEquals(3, registers.get(10));
+        assertEquals(2, registers.get(11));
+    }
+
+    @Test
+    public void queuedWriteToSameTargetIsReplaced() {
+        dispatcher.submit(write(1, 20, 1));
+        dispatcher.submit(write(1, 20, 2));
+
+        Map<Integer, Integer> registers = runBusAndAnswer();
+        assertEquals(1, sent.size());
+        assertEquals(2, registers.get(20));
+    }
+
+    /**
+     * A(reg 10) = 1, B(reg 10-11) = 2, A'(reg 10) = 3
+     */
+    private void queueOverlappingWrites() {
+        dispatcher.submit(write(1, 10, 1));
+        dispatcher.submit(write(2, 10, 2, 2));
+        dispatcher.submit(write(1, 10, 3));
+    }
+
+    private ModbusAction write(int dataSetId, int start, int... values) {
+        ModbusAction action = new ModbusAction(thingUID, dataSetId, ModbusMessageClass.Holding,
+                ModbusActionClass.Write, ModbusFeedRepeat.Once, start, values.length, 0, ModbusReportOn.Always);
+        byte[] payload = new byte[values.length * 2];
+        for (int i = 0; i < values.length; i++) {
+            payload[i * 2] = (byte) (values[i] >> 8);
+            payload[i * 2 + 1] = (byte) values[i];
+        }
+        action.setPayload(payload);
+        return action;
+    }
+
+    /**
+     * Let the bus send the queued writes, answer them at once, and apply them in order
+     */
+    private Map<Integer, Integer> runBusAndAnswer() {
+        while (!bus.isEmpty()) {
+            runBus();
+            responses.forEach(response -> response.complete(null));
+        }
+        Map<Integer, Integer> registers = new HashMap<>();
+        for (ModbusAction action : sent) {
+            byte[] payload = (byte[]) action.getPayload();
+            int start = action.getStart() + action.getOffset();
+            for (int i = 0; i < payload.length / 2; i++) {
+                registers.put(start + i, ((payload[i * 2] & 0xff) << 8) | (payload[i * 2 + 1] & 0xff));
+            }
+        }
+        return registers;
+    }
+
+    private void runBus() {
+        List<Runnable> tasks = new ArrayList<>(bus);
+        bus.clear();
+        tasks.forEach(Runnable::run);
+    }
+}
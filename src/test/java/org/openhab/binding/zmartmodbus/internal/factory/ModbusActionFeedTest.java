@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.factory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionClass;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusFeedRepeat;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusMessageClass;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusReportOn;
+import org.openhab.binding.zmartmodbus.internal.listener.ActionListener;
+import org.openhab.binding.zmartmodbus.internal.streams.ModbusAction;
+import org.openhab.core.thing.ThingUID;
+
+/**
+ * Tests that the {@link ModbusActionFeed} plans a batch of added actions once, and only the intervals it touches.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusActionFeedTest {
+
+    private static final int CHANNELS = 50;
+
+    private final ThingUID thingUID = new ThingUID("zmartmodbus:data:test");
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<Integer> planned = new CopyOnWriteArrayList<>();
+    private final List<ModbusAction> polled = new CopyOnWriteArrayList<>();
+    private final ModbusActionFeed<ModbusAction> feed = new ModbusActionFeed<>();
+
+    @AfterEach
+    public void tearDown() {
+        feed.stop();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void batchOfActionsIsPlannedOnce() throws InterruptedException {
+        feed.register(new ActionListener() {
+            @Override
+            public void modbusAction(ModbusAction event) {
+                polled.add(event);
+            }
+
+            @Override
+            public void error(Throwable e) {
+            }
+        });
+        feed.setReadPlanner(new ModbusReadPlanner(0, uid -> true) {
+            @Override
+            public List<ModbusAction> plan(List<ModbusAction> actions) {
+                planned.add(actions.size());
+                return actions;
+            }
+        });
+        feed.start(scheduler, 60000, 10000);
+
+        for (int i = 0; i < CHANNELS; i++) {
+            feed.addAction(read(i, ModbusFeedRepeat.Slow));
+        }
+        awaitPolls(CHANNELS);
+        assertEquals(List.of(CHANNELS), planned);
+
+        // Only the fast interval is planned again
+        feed.addAction(read(CHANNELS, ModbusFeedRepeat.Fast));
+        awaitPolls(CHANNELS + 1);
+        assertEquals(List.of(CHANNELS, 1), planned);
+    }
+
+    private ModbusAction read(int dataSetId, ModbusFeedRepeat feedRepeat) {
+        return new ModbusAction(thingUID, dataSetId, ModbusMessageClass.Holding, ModbusActionClass.Read, feedRepeat,
+                dataSetId * 10, 1, 0, ModbusReportOn.Always);
+    }
+
+    private void awaitPolls(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (polled.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, polled.size());
+    }
+}
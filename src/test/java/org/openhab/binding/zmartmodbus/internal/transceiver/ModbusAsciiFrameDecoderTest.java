@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.transceiver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the {@link ModbusAsciiFrameDecoder} drops a frame with a wrong LRC and resyncs on the next one.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusAsciiFrameDecoderTest {
+
+    private final ModbusAsciiFrameDecoder decoder = new ModbusAsciiFrameDecoder();
+
+    @Test
+    public void frameWithWrongLrcIsCountedAndSkipped() {
+        // Unit 1 read holding registers, one register of value 10; the first frame has a wrong LRC
+        byte[] received = ":010302000AF1\r\n:010302000AF0\r\n".getBytes(StandardCharsets.US_ASCII);
+        decoder.reset();
+
+        int frames = 0;
+        for (byte c : received) {
+            if (decoder.put(c)) {
+                frames++;
+            }
+        }
+        assertEquals(1, frames);
+        assertEquals(1, decoder.lrcErrors());
+        assertArrayEquals(new byte[] { 1, 3, 2, 0, 10 }, Arrays.copyOf(decoder.frame(), decoder.length()));
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2010-2021 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.zmartmodbus.internal.transceiver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.binding.zmartmodbus.ModbusBindingClass.ModbusActionLane;
+import org.openhab.binding.zmartmodbus.internal.config.ModbusTcpConfiguration;
+import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolErrorCode;
+import org.openhab.binding.zmartmodbus.internal.exceptions.ModbusProtocolException;
+import org.openhab.binding.zmartmodbus.internal.factory.ModbusActionDispatcher;
+import org.openhab.binding.zmartmodbus.internal.factory.ModbusBusThread;
+import org.openhab.binding.zmartmodbus.internal.protocol.ModbusCounters;
+
+/**
+ * Tests the {@link ModbusTcpTransceiver} against a slave on a loopback socket, which answers the requests the test
+ * tells it to and in the order the test chooses.
+ *
+ * @author Peter Kristensen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusTcpTransceiverTest {
+
+    private static final int UNIT_ADDR = 1;
+    private static final int READ_HOLDING_REGISTERS = 3;
+    private static final int RECEIVE_TIMEOUT_MILLIS = 300;
+    private static final int IN_FLIGHT = 3;
+
+    private final ModbusCounters counters = new ModbusCounters();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private @Nullable ServerSocket server;
+    private @Nullable Socket slave;
+    private @Nullable DataInputStream fromMaster;
+    private @Nullable DataOutputStream toMaster;
+    private @Nullable ModbusTcpTransceiver transceiver;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        this.server = server;
+
+        ModbusTcpConfiguration config = new ModbusTcpConfiguration();
+        config.setHost(server.getInetAddress().getHostAddress());
+        config.setPort(server.getLocalPort());
+        config.setConnectTimeoutMillis(1000);
+        config.setReceiveTimeoutMillis(RECEIVE_TIMEOUT_MILLIS);
+        config.setMaxTransactionsInFlight(IN_FLIGHT);
+
+        ModbusTcpTransceiver transceiver = new ModbusTcpTransceiver(config, counters);
+        transceiver.connect();
+        this.transceiver = transceiver;
+
+        server.setSoTimeout(1000);
+        Socket slave = server.accept();
+        slave.setSoTimeout(1000);
+        this.slave = slave;
+        fromMaster = new DataInputStream(slave.getInputStream());
+        toMaster = new DataOutputStream(slave.getOutputStream());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        callers.shutdownNow();
+        ModbusTcpTransceiver transceiver = this.transceiver;
+        if (transceiver != null) {
+            transceiver.disconnect();
+        }
+        Socket slave = this.slave;
+        if (slave != null) {
+            slave.close();
+        }
+        ServerSocket server = this.server;
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void responseIsMatchedByTransactionId() throws Exception {
+        Future<byte[]> response = send(0x0010);
+
+        Request request = receive();
+        assertEquals(0x0010, request.address);
+        reply(request.id, 0x1234);
+
+        assertArrayEquals(registerResponse(0x1234), response.get(1, TimeUnit.SECONDS));
+
+        // The next request gets a new transaction id
+        Future<byte[]> next = send(0x0011);
+        Request nextRequest = receive();
+        assertNotEquals(request.id, nextRequest.id);
+        reply(nextRequest.id, 0x5678);
+
+        assertArrayEquals(registerResponse(0x5678), next.get(1, TimeUnit.SECONDS));
+        assertEquals(0, counters.getTimeOutCounter());
+    }
+
+    @Test
+    public void outOfOrderResponsesReachTheirOwnRequest() throws Exception {
+        Future<byte[]> first = send(0x0020);
+        Request firstRequest = receive();
+        Future<byte[]> second = send(0x0021);
+        Request secondRequest = receive();
+
+        // Answer the second request before the first one
+        reply(secondRequest.id, 0x2121);
+        reply(firstRequest.id, 0x2020);
+
+        assertArrayEquals(registerResponse(0x2020), first.get(1, TimeUnit.SECONDS));
+        assertArrayEquals(registerResponse(0x2121), second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void lateResponseToTimedOutRequestIsDropped() throws Exception {
+        Future<byte[]> timedOut = send(0x0030);
+        Request timedOutRequest = receive();
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> timedOut.get(RECEIVE_TIMEOUT_MILLIS * 4, TimeUnit.MILLISECONDS));
+        assertTrue(e.getCause() instanceof ModbusProtocolException);
+        assertEquals(ModbusProtocolErrorCode.RESPONSE_TIMEOUT, ((ModbusProtocolException) e.getCause()).getCode());
+        assertEquals(1, counters.getTimeOutCounter());
+
+        Future<byte[]> next = send(0x0031);
+        Request nextRequest = receive();
+
+        // The late answer arrives first and must not be taken for the answer to the next request
+        reply(timedOutRequest.id, 0x3030);
+        reply(nextRequest.id, 0x3131);
+
+        assertArrayEquals(registerResponse(0x3131), next.get(1, TimeUnit.SECONDS));
+        assertEquals(1, counters.getTimeOutCounter());
+    }
+
+    @Test
+    public void dispatcherKeepsTheWindowOfRequestsOnTheWire() throws Exception {
+        ModbusTcpTransceiver transceiver = this.transceiver;
+        assertNotNull(transceiver);
+        ModbusBusThread bus = new ModbusBusThread("test-bus");
+        bus.start();
+        try {
+            ModbusActionDispatcher dispatcher = new ModbusActionDispatcher(
+                    action -> CompletableFuture.completedFuture(null), counters);
+            dispatcher.setMaxInFlight(transceiver.getMaxTransactionsInFlight());
+            dispatcher.start(bus, ModbusActionDispatcher.ORDERING_STRICT);
+
+            List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+            for (int i = 0; i <= IN_FLIGHT; i++) {
+                ModbusRequest request = new ModbusRequest().start(UNIT_ADDR, READ_HOLDING_REGISTERS)
+                        .putShort(0x0040 + i).putShort(1);
+                responses.add(dispatcher.submit(ModbusActionLane.OnDemand,
+                        () -> transceiver.msgTransactionAsync(request, 0)));
+            }
+
+            // All requests of the window are on the wire before the first response
+            List<Request> requests = new ArrayList<>();
+            for (int i = 0; i < IN_FLIGHT; i++) {
+                requests.add(receive());
+            }
+            assertTrue(responses.stream().noneMatch(CompletableFuture::isDone));
+            // The next one waits for a free place in the window
+            Thread.sleep(RECEIVE_TIMEOUT_MILLIS / 3);
+            DataInputStream in = fromMaster;
+            assertNotNull(in);
+            assertEquals(0, in.available());
+
+            reply(requests.get(1).id, 0x4141);
+            Request last = receive();
+            assertEquals(0x0040 + IN_FLIGHT, last.address);
+            reply(last.id, 0x4343);
+            reply(requests.get(0).id, 0x4040);
+            reply(requests.get(2).id, 0x4242);
+
+            for (int i = 0; i <= IN_FLIGHT; i++) {
+                assertArrayEquals(registerResponse(0x4040 + i * 0x0101), responses.get(i).get(1, TimeUnit.SECONDS));
+            }
+            assertEquals(0, counters.getTimeOutCounter());
+        } finally {
+            bus.stop();
+        }
+    }
+
+    private Future<byte[]> send(int address) {
+        ModbusTcpTransceiver transceiver = this.transceiver;
+        assertNotNull(transceiver);
+        ModbusRequest request = new ModbusRequest().start(UNIT_ADDR, READ_HOLDING_REGISTERS).putShort(address)
+                .putShort(1);
+        return callers.submit(() -> transceiver.msgTransaction(request, 0));
+    }
+
+    /**
+     * Reads the next request from the master, checking the MBAP header
+     */
+    private Request receive() throws IOException {
+        DataInputStream in = fromMaster;
+        assertNotNull(in);
+        int id = in.readUnsignedShort();
+        assertEquals(0, in.readUnsignedShort());
+        int length = in.readUnsignedShort();
+        assertEquals(6, length);
+        assertEquals(UNIT_ADDR, in.readUnsignedByte());
+        assertEquals(READ_HOLDING_REGISTERS, in.readUnsignedByte());
+        int address = in.readUnsignedShort();
+        assertEquals(1, in.readUnsignedShort());
+        return new Request(id, address);
+    }
+
+    private void reply(int id, int value) throws IOException {
+        DataOutputStream out = toMaster;
+        assertNotNull(out);
+        byte[] pdu = registerResponse(value);
+        out.writeShort(id);
+        out.writeShort(0);
+        out.writeShort(pdu.length);
+        out.write(pdu);
+        out.flush();
+    }
+
+    private static byte[] registerResponse(int value) {
+        return new byte[] { UNIT_ADDR, READ_HOLDING_REGISTERS, 2, (byte) (value >> 8), (byte) value };
+    }
+
+    private static class Request {
+        final int id;
+        final int address;
+
+        Request(int id, int address) {
+            this.id = id;
+            this.address = address;
+        }
+    }
+}